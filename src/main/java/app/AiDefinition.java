@@ -7,22 +7,44 @@ public final class AiDefinition {
     private final int minLength;
     private final int maxLength;
     private final CharacterSet characterSet;
+    private final boolean requiresFnc1;
+    private final ElementValidator validator;
 
     public AiDefinition(String code, String description, int length, CharacterSet characterSet) {
-        this(code, description, true, length, length, characterSet);
+        this(code, description, true, length, length, characterSet, false);
     }
 
     public AiDefinition(String code, String description, int minLength, int maxLength, CharacterSet characterSet) {
-        this(code, description, false, minLength, maxLength, characterSet);
+        this(code, description, false, minLength, maxLength, characterSet, true);
     }
 
-    private AiDefinition(String code, String description, boolean fixedLength, int minLength, int maxLength, CharacterSet characterSet) {
+    public AiDefinition(String code,
+                        String description,
+                        boolean fixedLength,
+                        int minLength,
+                        int maxLength,
+                        CharacterSet characterSet,
+                        boolean requiresFnc1) {
+        this(code, description, fixedLength, minLength, maxLength, characterSet, requiresFnc1,
+                ValidatorRegistry.resolve(code));
+    }
+
+    public AiDefinition(String code,
+                        String description,
+                        boolean fixedLength,
+                        int minLength,
+                        int maxLength,
+                        CharacterSet characterSet,
+                        boolean requiresFnc1,
+                        ElementValidator validator) {
         this.code = code;
         this.description = description;
         this.fixedLength = fixedLength;
         this.minLength = minLength;
         this.maxLength = maxLength;
         this.characterSet = characterSet;
+        this.requiresFnc1 = requiresFnc1;
+        this.validator = validator == null ? ElementValidator.NONE : validator;
     }
 
     public String code() {
@@ -48,4 +70,12 @@ public final class AiDefinition {
     public CharacterSet characterSet() {
         return characterSet;
     }
+
+    public boolean requiresFnc1() {
+        return requiresFnc1;
+    }
+
+    public ElementValidator validator() {
+        return validator;
+    }
 }
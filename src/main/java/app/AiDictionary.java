@@ -0,0 +1,195 @@
+package app;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Application Identifier table compiled into dense arrays indexed by the numeric
+ * value of the first two, three and four digits. Matching is a handful of array
+ * reads and never allocates.
+ *
+ * <p>The table is read from the binary resource produced by {@link AiTableCompiler}
+ * when the class is first used, so it costs nothing until the first scan is parsed.
+ * A newer table can be dropped in without a rebuild: a file named by the
+ * {@value #OVERRIDE_PROPERTY} system property, or a {@value #TABLE_FILE} in the
+ * working directory, takes precedence over the bundled copy. An override that cannot
+ * be read falls back to the bundled table, and malformed entries in it are skipped;
+ * both are logged as warnings.
+ *
+ * <p>Each definition gets its validator from {@link ValidatorRegistry} as the table is
+ * loaded, so the parser never dispatches on the AI string.
+ */
+final class AiDictionary {
+    static final int MAGIC = 0x47533141;
+    static final int FORMAT_VERSION = 1;
+    static final int FLAG_FIXED = 1;
+    static final int FLAG_FNC1 = 2;
+    static final String OVERRIDE_PROPERTY = "gs1desk.aiTable";
+    static final String TABLE_FILE = "gs1-ai-table.bin";
+
+    private static final System.Logger LOG = System.getLogger(AiDictionary.class.getName());
+    private static final AiDefinition[] TWO_DIGIT = new AiDefinition[100];
+    private static final AiDefinition[] THREE_DIGIT = new AiDefinition[1000];
+    private static final AiDefinition[] FOUR_DIGIT = new AiDefinition[10000];
+
+    static {
+        List<AiDefinition> definitions = loadOverride();
+        if (definitions == null) {
+            definitions = loadBundled();
+        }
+        for (AiDefinition definition : definitions) {
+            register(definition);
+        }
+    }
+
+    private AiDictionary() {
+    }
+
+    private static List<AiDefinition> loadOverride() {
+        String configured = System.getProperty(OVERRIDE_PROPERTY);
+        Path path = configured != null && !configured.isBlank() ? Path.of(configured) : Path.of(TABLE_FILE);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(path)) {
+            List<AiDefinition> definitions = read(in, path.toString());
+            if (definitions.isEmpty()) {
+                LOG.log(Level.WARNING, "AI table {0} has no usable entries, using the bundled table", path);
+                return null;
+            }
+            LOG.log(Level.INFO, "Using AI table {0} with {1} entries", path, definitions.size());
+            return definitions;
+        } catch (IOException ex) {
+            LOG.log(Level.WARNING, "Unable to read AI table " + path + ", using the bundled table", ex);
+            return null;
+        }
+    }
+
+    private static List<AiDefinition> loadBundled() {
+        try (InputStream in = AiDictionary.class.getResourceAsStream(TABLE_FILE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing AI table resource " + TABLE_FILE);
+            }
+            return read(in, TABLE_FILE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read AI table resource", ex);
+        }
+    }
+
+    /**
+     * Reads a compiled table. Entries that could not have come from
+     * {@link AiTableCompiler} are skipped with a warning naming {@code source}.
+     */
+    static List<AiDefinition> read(InputStream source, String name) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(source));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not an AI table");
+        }
+        int version = in.readUnsignedShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported AI table version " + version);
+        }
+        in.readUTF();
+        int count = in.readUnsignedShort();
+        List<AiDefinition> definitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String code = in.readUTF();
+            char setCode = (char) in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            int minLength = in.readUnsignedByte();
+            int maxLength = in.readUnsignedByte();
+            String description = in.readUTF();
+            String problem = problem(code, setCode, (flags & FLAG_FIXED) != 0, minLength, maxLength);
+            if (problem != null) {
+                LOG.log(Level.WARNING, "Skipping entry {0} of AI table {1}: {2}", i + 1, name, problem);
+                continue;
+            }
+            definitions.add(new AiDefinition(code, description, (flags & FLAG_FIXED) != 0, minLength, maxLength,
+                    CharacterSet.fromFormatCode(setCode), (flags & FLAG_FNC1) != 0));
+        }
+        return definitions;
+    }
+
+    private static String problem(String code, char setCode, boolean fixed, int minLength, int maxLength) {
+        if (code.length() < 2 || code.length() > 4 || !code.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            return "AI must have 2 to 4 digits: " + code;
+        }
+        try {
+            CharacterSet.fromFormatCode(setCode);
+        } catch (IllegalArgumentException ex) {
+            return ex.getMessage();
+        }
+        if (minLength < 1 || minLength > maxLength || (fixed && minLength != maxLength)) {
+            return "Invalid length range " + minLength + ".." + maxLength + " for AI " + code;
+        }
+        return null;
+    }
+
+    private static void register(AiDefinition definition) {
+        String code = definition.code();
+        int key = Integer.parseInt(code);
+        switch (code.length()) {
+            case 2 -> TWO_DIGIT[key] = definition;
+            case 3 -> THREE_DIGIT[key] = definition;
+            default -> FOUR_DIGIT[key] = definition;
+        }
+    }
+
+    static AiDefinition lookup(String ai) {
+        if (ai == null || ai.length() < 2 || ai.length() > 4) {
+            return null;
+        }
+        AiDefinition definition = match(ai, 0, ai.length());
+        return definition != null && definition.code().length() == ai.length() ? definition : null;
+    }
+
+    /**
+     * Returns the longest AI starting at {@code index} that ends at or before
+     * {@code limit}, or {@code null} when none is defined.
+     */
+    static AiDefinition match(CharSequence input, int index, int limit) {
+        int available = limit - index;
+        if (available < 2) {
+            return null;
+        }
+        int d0 = digit(input.charAt(index));
+        int d1 = digit(input.charAt(index + 1));
+        if (d0 < 0 || d1 < 0) {
+            return null;
+        }
+        int key = d0 * 10 + d1;
+        AiDefinition best = TWO_DIGIT[key];
+        if (available >= 3) {
+            int d2 = digit(input.charAt(index + 2));
+            if (d2 >= 0) {
+                key = key * 10 + d2;
+                AiDefinition three = THREE_DIGIT[key];
+                if (available >= 4) {
+                    int d3 = digit(input.charAt(index + 3));
+                    if (d3 >= 0) {
+                        AiDefinition four = FOUR_DIGIT[key * 10 + d3];
+                        if (four != null) {
+                            return four;
+                        }
+                    }
+                }
+                if (three != null) {
+                    return three;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
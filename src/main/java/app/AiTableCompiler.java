@@ -0,0 +1,115 @@
+package app;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the tab-separated AI table source into the binary resource read by
+ * {@link AiDictionary}.
+ *
+ * <pre>java -cp GS1Desk.jar app.AiTableCompiler src/main/data/gs1-ai-table.tsv src/main/resources/app/gs1-ai-table.bin</pre>
+ */
+public final class AiTableCompiler {
+    private static final Pattern FORMAT_PATTERN = Pattern.compile("([NXYZ])(\\d+)?(?:\\.\\.(\\d+))?");
+
+    private AiTableCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AiTableCompiler <table.tsv> <table.bin>");
+            System.exit(2);
+        }
+        int count = compile(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Wrote " + count + " AI definitions to " + args[1]);
+    }
+
+    public static int compile(Path source, Path target) throws IOException {
+        String revision = "";
+        List<AiDefinition> definitions = new ArrayList<>();
+        List<String> lines = Files.readAllLines(source, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            if (fields[0].equals("@revision") && fields.length == 2) {
+                revision = fields[1].trim();
+                continue;
+            }
+            if (fields.length != 4) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected 4 tab-separated columns");
+            }
+            try {
+                expand(fields[0].trim(), fields[1].trim(), fields[2].trim().equals("FNC1"), fields[3].trim(), definitions);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + ex.getMessage(), ex);
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+            out.writeInt(AiDictionary.MAGIC);
+            out.writeShort(AiDictionary.FORMAT_VERSION);
+            out.writeUTF(revision);
+            out.writeShort(definitions.size());
+            for (AiDefinition definition : definitions) {
+                out.writeUTF(definition.code());
+                out.writeByte(definition.characterSet().formatCode());
+                out.writeByte((definition.fixedLength() ? AiDictionary.FLAG_FIXED : 0)
+                        | (definition.requiresFnc1() ? AiDictionary.FLAG_FNC1 : 0));
+                out.writeByte(definition.minLength());
+                out.writeByte(definition.maxLength());
+                out.writeUTF(definition.description());
+            }
+        }
+        return definitions.size();
+    }
+
+    private static void expand(String code, String format, boolean fnc1, String description, List<AiDefinition> target) {
+        Matcher matcher = FORMAT_PATTERN.matcher(format);
+        if (!matcher.matches() || (matcher.group(2) == null && matcher.group(3) == null)) {
+            throw new IllegalArgumentException("Invalid format " + format);
+        }
+        CharacterSet set = CharacterSet.fromFormatCode(matcher.group(1).charAt(0));
+        boolean fixed = matcher.group(3) == null;
+        int min = fixed ? Integer.parseInt(matcher.group(2)) : (matcher.group(2) == null ? 1 : Integer.parseInt(matcher.group(2)));
+        int max = fixed ? min : Integer.parseInt(matcher.group(3));
+        if (min < 1 || max > 255 || min > max) {
+            throw new IllegalArgumentException("Invalid length range in " + format);
+        }
+
+        if (code.endsWith("n")) {
+            String prefix = code.substring(0, code.length() - 1);
+            for (int i = 0; i <= 9; i++) {
+                target.add(definition(prefix + i, description + " (10^-" + i + ")", fixed, min, max, set, fnc1));
+            }
+        } else if (code.contains("-")) {
+            String[] bounds = code.split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            for (int value = start; value <= end; value++) {
+                String ai = String.format("%0" + bounds[0].length() + "d", value);
+                target.add(definition(ai, description + " (" + ai + ")", fixed, min, max, set, fnc1));
+            }
+        } else {
+            target.add(definition(code, description, fixed, min, max, set, fnc1));
+        }
+    }
+
+    private static AiDefinition definition(String code, String description, boolean fixed, int min, int max,
+                                           CharacterSet set, boolean fnc1) {
+        if (code.length() < 2 || code.length() > 4 || !code.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new IllegalArgumentException("AI must have 2 to 4 digits: " + code);
+        }
+        return new AiDefinition(code, description, fixed, min, max, set, fnc1);
+    }
+}
@@ -0,0 +1,119 @@
+package app;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Fork/join batch parsing behind {@link GS1Parser#parseAll}. Streams are consumed in
+ * fixed-size chunks with at most two chunks in flight, so memory stays bounded no
+ * matter how many scans pass through.
+ */
+final class BatchParser {
+    private static final int LEAF_SIZE = 256;
+    private static final int CHUNK_PER_WORKER = 2048;
+
+    private BatchParser() {
+    }
+
+    static ParseResult[] parseOrdered(List<String> inputs, ParseOptions options, ForkJoinPool pool) {
+        ParseResult[] results = new ParseResult[inputs.size()];
+        pool.invoke(new ChunkTask(inputs, 0, inputs.size(), 0, options, results, null));
+        return results;
+    }
+
+    static long parseStream(Stream<String> inputs, ParseOptions options, boolean ordered, ForkJoinPool pool, ParseResultSink sink) {
+        Objects.requireNonNull(sink, "sink");
+        int chunkSize = Math.max(LEAF_SIZE, pool.getParallelism() * CHUNK_PER_WORKER);
+        Iterator<String> iterator = inputs.iterator();
+        long base = 0;
+        Chunk pending = null;
+        while (iterator.hasNext()) {
+            String[] batch = new String[chunkSize];
+            int size = 0;
+            while (size < chunkSize && iterator.hasNext()) {
+                batch[size++] = iterator.next();
+            }
+            Chunk next = new Chunk(Arrays.asList(batch).subList(0, size), base, ordered ? new ParseResult[size] : null);
+            next.task = pool.submit(new ChunkTask(next.inputs, 0, size, base, options, next.results, ordered ? null : sink));
+            if (pending != null) {
+                pending.complete(sink);
+            }
+            pending = next;
+            base += size;
+        }
+        if (pending != null) {
+            pending.complete(sink);
+        }
+        return base;
+    }
+
+    private static final class Chunk {
+        private final List<String> inputs;
+        private final long base;
+        private final ParseResult[] results;
+        private ForkJoinTask<?> task;
+
+        private Chunk(List<String> inputs, long base, ParseResult[] results) {
+            this.inputs = inputs;
+            this.base = base;
+            this.results = results;
+        }
+
+        private void complete(ParseResultSink sink) {
+            task.join();
+            if (results != null) {
+                for (int i = 0; i < results.length; i++) {
+                    sink.accept(base + i, inputs.get(i), results[i]);
+                }
+            }
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> inputs;
+        private final int from;
+        private final int to;
+        private final long base;
+        private final ParseOptions options;
+        private final ParseResult[] results;
+        private final ParseResultSink sink;
+
+        private ChunkTask(List<String> inputs, int from, int to, long base, ParseOptions options,
+                          ParseResult[] results, ParseResultSink sink) {
+            this.inputs = inputs;
+            this.from = from;
+            this.to = to;
+            this.base = base;
+            this.options = options;
+            this.results = results;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    String input = inputs.get(i);
+                    ParseResult result = GS1Parser.parse(input, options);
+                    if (sink == null) {
+                        results[i] = result;
+                    } else {
+                        sink.accept(base + i, input, result);
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(inputs, from, middle, base, options, results, sink),
+                    new ChunkTask(inputs, middle, to, base, options, results, sink));
+        }
+    }
+}
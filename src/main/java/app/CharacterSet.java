@@ -1,13 +1,37 @@
 package app;
 
 public enum CharacterSet {
-    NUMERIC,
-    GS1_ALPHANUMERIC;
+    NUMERIC('N'),
+    GS1_ALPHANUMERIC('X'),
+    GS1_CSET39('Y'),
+    GS1_CSET64('Z');
+
+    private final char formatCode;
+
+    CharacterSet(char formatCode) {
+        this.formatCode = formatCode;
+    }
+
+    public char formatCode() {
+        return formatCode;
+    }
+
+    public static CharacterSet fromFormatCode(char code) {
+        for (CharacterSet set : values()) {
+            if (set.formatCode == code) {
+                return set;
+            }
+        }
+        throw new IllegalArgumentException("Unknown character set code: " + code);
+    }
 
     public boolean isAllowed(char c, boolean allowLowercase) {
         return switch (this) {
             case NUMERIC -> Character.isDigit(c);
             case GS1_ALPHANUMERIC -> isGs1Alphanumeric(c, allowLowercase);
+            case GS1_CSET39 -> isAsciiDigit(c) || (c >= 'A' && c <= 'Z') || c == '#' || c == '-' || c == '/';
+            case GS1_CSET64 -> isAsciiDigit(c) || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')
+                    || c == '-' || c == '_' || c == '=';
         };
     }
 
@@ -23,4 +47,8 @@ public enum CharacterSet {
         }
         return " !\"%&'()*+,-./:;<=>?_".indexOf(c) >= 0;
     }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
 }
@@ -0,0 +1,363 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@link NormalizationOptions} compiled for repeated use. Every step of
+ * {@link Normalizer#normalizeRaw} is applied while the scan is read once, left to
+ * right: AIM prefix, NBSP, control suffixes, tabs, placeholders, trimming and GS
+ * collapsing.
+ *
+ * <p>Placeholders are replaced in two cascaded stages, as before. The configured
+ * spellings are matched case-insensitively and the built-in escape spellings
+ * case-sensitively. Within the configured stage the leftmost and then longest
+ * spelling wins. This gives the same result as replacing each spelling in turn
+ * whenever no spelling overlaps another; previously overlapping spellings were
+ * replaced in an unspecified order.
+ *
+ * <p>Instances are immutable and may be shared between threads.
+ */
+public final class CompiledNormalizer {
+    private static final char GS = 0x1D;
+    private static final char NBSP = '\u00A0';
+    private static final List<String> BUILT_IN_PLACEHOLDERS = List.of(
+            "\\u001d", "\\u001D", "\\x1d", "\\x1D", "%1d", "%1D");
+    private static final PlaceholderMatcher BUILT_IN = PlaceholderMatcher.compile(BUILT_IN_PLACEHOLDERS, false);
+
+    private final PlaceholderMatcher configured;
+    private final boolean stripAimId;
+    private final boolean collapseMultipleGs;
+
+    private CompiledNormalizer(NormalizationOptions options) {
+        List<String> placeholders = new ArrayList<>();
+        for (String placeholder : options.gsPlaceholders()) {
+            if (placeholder != null && !placeholder.isBlank()) {
+                placeholders.add(placeholder);
+            }
+        }
+        this.configured = PlaceholderMatcher.compile(placeholders, true);
+        this.stripAimId = options.stripAimId();
+        this.collapseMultipleGs = options.collapseMultipleGs();
+    }
+
+    public static CompiledNormalizer compile(NormalizationOptions options) {
+        return new CompiledNormalizer(Objects.requireNonNull(options, "options"));
+    }
+
+    public NormalizationResult normalize(String raw) {
+        Objects.requireNonNull(raw, "raw");
+        Workspace workspace = new Workspace();
+        normalize(raw, workspace);
+        return workspace.toResult(raw);
+    }
+
+    /**
+     * Normalizes {@code raw} into {@code workspace}, replacing what it held before.
+     */
+    void normalize(CharSequence raw, Workspace workspace) {
+        long started = System.nanoTime();
+        int start = 0;
+        int aimEnd = aimPrefixEnd(raw);
+        if (aimEnd > 0 && stripAimId) {
+            start = aimEnd;
+        }
+        int end = raw.length();
+        while (end > start && isControlSuffix(raw.charAt(end - 1))) {
+            end--;
+        }
+
+        Sink first = workspace.begin(configured, collapseMultipleGs);
+        for (int i = start; i < end; i++) {
+            char c = raw.charAt(i);
+            if (c == '\t') {
+                continue;
+            }
+            first.accept(c == NBSP ? ' ' : c);
+        }
+        workspace.finish();
+        workspace.symbologyEnd = aimEnd;
+        workspace.aimStripped = aimEnd > 0 && stripAimId;
+        workspace.elapsedNanos = System.nanoTime() - started;
+    }
+
+    /**
+     * End of a leading {@code ](\w.)} AIM symbology identifier, or 0 when absent.
+     */
+    private static int aimPrefixEnd(CharSequence raw) {
+        if (raw.length() < 3 || raw.charAt(0) != ']' || !isWordChar(raw.charAt(1))) {
+            return 0;
+        }
+        char modifier = raw.charAt(2);
+        if (isLineTerminator(modifier)) {
+            return 0;
+        }
+        if (Character.isHighSurrogate(modifier) && raw.length() > 3 && Character.isLowSurrogate(raw.charAt(3))) {
+            return 4;
+        }
+        return 3;
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isControlSuffix(char c) {
+        return c == '\r' || c == '\n' || c == 0x00 || c == 0x03;
+    }
+
+    private static boolean isTrimChar(char c) {
+        return c == ' ' || c == NBSP || c == '\r' || c == '\n';
+    }
+
+    private interface Sink {
+        void accept(char c);
+    }
+
+    /**
+     * Reusable state for normalizing into a {@link ScanBuffer}. Not thread-safe; keep
+     * one per thread. The buffer is overwritten by the next scan.
+     */
+    static final class Workspace {
+        private final ScanBuffer text = new ScanBuffer(256);
+        private final Output output = new Output(text);
+        private final Stage builtIn = new Stage(BUILT_IN, output);
+        private Stage configured;
+        private Stage first;
+        private int symbologyEnd;
+        private boolean aimStripped;
+        private long elapsedNanos;
+
+        private Sink begin(PlaceholderMatcher matcher, boolean collapse) {
+            output.reset(collapse);
+            builtIn.reset();
+            if (matcher == null) {
+                first = builtIn;
+            } else {
+                if (configured == null || configured.matcher != matcher) {
+                    configured = new Stage(matcher, builtIn);
+                }
+                configured.reset();
+                first = configured;
+            }
+            return first;
+        }
+
+        private void finish() {
+            first.finish();
+            output.finish();
+        }
+
+        ScanBuffer text() {
+            return text;
+        }
+
+        /**
+         * AIM symbology identifier at the start of the raw scan, or {@code null}.
+         */
+        String symbologyId(CharSequence raw) {
+            return symbologyEnd > 0 ? raw.subSequence(0, symbologyEnd).toString() : null;
+        }
+
+        boolean aimStripped() {
+            return aimStripped;
+        }
+
+        boolean gsCollapsed() {
+            return output.collapsed;
+        }
+
+        long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        List<String> warnings(CharSequence raw) {
+            List<String> warnings = new ArrayList<>(2);
+            if (aimStripped) {
+                warnings.add("Removed AIM Symbology ID " + symbologyId(raw));
+            }
+            if (output.collapsed) {
+                warnings.add("Collapsed repeated GS characters");
+            }
+            return warnings;
+        }
+
+        NormalizationResult toResult(String raw) {
+            return new NormalizationResult(raw, text.toString(), symbologyId(raw), warnings(raw), elapsedNanos);
+        }
+    }
+
+    /**
+     * Leftmost-longest replacement of one matcher's spellings with GS. Characters are
+     * held back only while they could still start a match.
+     */
+    private static final class Stage implements Sink {
+        private final PlaceholderMatcher matcher;
+        private final Sink next;
+        private char[] pending = new char[16];
+        private int length;
+        private int scanned;
+        private int state;
+        private int matchStart = -1;
+        private int matchEnd;
+
+        Stage(PlaceholderMatcher matcher, Sink next) {
+            this.matcher = matcher;
+            this.next = next;
+        }
+
+        void reset() {
+            length = 0;
+            scanned = 0;
+            state = 0;
+            matchStart = -1;
+        }
+
+        @Override
+        public void accept(char c) {
+            if (length == pending.length) {
+                char[] grown = new char[pending.length * 2];
+                System.arraycopy(pending, 0, grown, 0, length);
+                pending = grown;
+            }
+            pending[length++] = c;
+            scan();
+        }
+
+        void finish() {
+            while (length > 0) {
+                if (matchStart >= 0) {
+                    replaceMatch();
+                    scan();
+                } else {
+                    release(length);
+                }
+            }
+            if (next instanceof Stage stage) {
+                stage.finish();
+            }
+        }
+
+        private void scan() {
+            while (scanned < length) {
+                char c = pending[scanned++];
+                state = matcher.next(state, c);
+                int matched = matcher.matchLength(state, c);
+                if (matched > 0) {
+                    int begin = scanned - matched;
+                    if (matchStart < 0 || begin <= matchStart) {
+                        matchStart = begin;
+                        matchEnd = scanned;
+                    }
+                }
+                int earliest = scanned - matcher.depth(state);
+                if (matchStart >= 0 && earliest > matchStart) {
+                    replaceMatch();
+                } else {
+                    release(matchStart >= 0 ? Math.min(earliest, matchStart) : earliest);
+                }
+            }
+        }
+
+        /**
+         * Emits the text before the current match and a GS for the match, then rescans
+         * whatever was read past it from the initial state.
+         */
+        private void replaceMatch() {
+            for (int i = 0; i < matchStart; i++) {
+                next.accept(pending[i]);
+            }
+            next.accept(GS);
+            System.arraycopy(pending, matchEnd, pending, 0, length - matchEnd);
+            length -= matchEnd;
+            scanned = 0;
+            state = 0;
+            matchStart = -1;
+        }
+
+        private void release(int count) {
+            if (count <= 0) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                next.accept(pending[i]);
+            }
+            System.arraycopy(pending, count, pending, 0, length - count);
+            length -= count;
+            scanned -= count;
+            if (matchStart >= 0) {
+                matchStart -= count;
+                matchEnd -= count;
+            }
+        }
+    }
+
+    /**
+     * Trims, collapses GS runs and drops leading GS as characters arrive, in the order
+     * the separate passes used to apply them.
+     */
+    private static final class Output implements Sink {
+        private static final int LEADING_SPACE = 0;
+        private static final int LEADING_GS = 1;
+        private static final int BODY = 2;
+
+        private final ScanBuffer text;
+        private boolean collapse;
+        private int phase;
+        private boolean collapsed;
+
+        Output(ScanBuffer text) {
+            this.text = text;
+        }
+
+        void reset(boolean collapse) {
+            this.collapse = collapse;
+            this.phase = LEADING_SPACE;
+            this.collapsed = false;
+            text.clear();
+        }
+
+        @Override
+        public void accept(char c) {
+            switch (phase) {
+                case LEADING_SPACE -> {
+                    if (c == GS) {
+                        phase = LEADING_GS;
+                    } else if (!isTrimChar(c)) {
+                        phase = BODY;
+                        text.append(c);
+                    }
+                }
+                case LEADING_GS -> {
+                    if (c == GS) {
+                        collapsed |= collapse;
+                    } else {
+                        phase = BODY;
+                        text.append(c);
+                    }
+                }
+                default -> {
+                    int last = text.length() - 1;
+                    if (collapse && c == GS && last >= 0 && text.charAt(last) == GS) {
+                        collapsed = true;
+                    } else {
+                        text.append(c);
+                    }
+                }
+            }
+        }
+
+        void finish() {
+            int end = text.length();
+            while (end > 0 && isTrimChar(text.charAt(end - 1))) {
+                end--;
+            }
+            text.setLength(end);
+        }
+    }
+}
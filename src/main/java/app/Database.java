@@ -1,60 +1,140 @@
 package app;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-public class Database {
-    private final String url;
+/**
+ * Scan storage split into one SQLite file per month. The file given to the
+ * constructor is the catalog: it lists the monthly partitions and still holds any
+ * scans stored before partitioning, which are kept there read-only. Inserts go to the
+ * partition of the current UTC month, which is created when the month begins; the
+ * previous one is then sealed and only read from. Ids keep rising across partitions,
+ * so each holds a range of them and queries by id open only the partitions they
+ * reach. The {@link RetentionPolicy} archives or drops old partitions on a
+ * background thread that never takes the insert lock; it can be changed while the
+ * database is open.
+ */
+public class Database implements AutoCloseable {
+    private static final String CREATE_PARTITIONS = "CREATE TABLE IF NOT EXISTS partitions (" +
+            "month TEXT PRIMARY KEY, " +
+            "file TEXT NOT NULL, " +
+            "first_id INTEGER NOT NULL, " +
+            "last_id INTEGER, " +
+            "scan_count INTEGER, " +
+            "oldest TEXT, " +
+            "newest TEXT" +
+            ")";
+    private static final String SELECT_PARTITIONS =
+            "SELECT month, file, first_id, last_id, scan_count, oldest, newest FROM partitions ORDER BY month DESC";
+    private static final String INSERT_PARTITION = "INSERT INTO partitions(month, file, first_id) VALUES(?, ?, ?)";
+    private static final String SEAL_PARTITION =
+            "UPDATE partitions SET last_id = ?, scan_count = ?, oldest = ?, newest = ? WHERE month = ?";
+    private static final String DELETE_PARTITION = "DELETE FROM partitions WHERE month = ?";
+    private static final long RETENTION_INTERVAL_MINUTES = 60;
+
+    private final Path catalogFile;
+    private final String baseName;
+    private final DatabaseOptions options;
+    private final Partition catalog;
+    private final Object writeLock = new Object();
+    private final Object partitionsLock = new Object();
+    private final Object retentionLock = new Object();
+    private final List<Consumer<List<PendingScan>>> insertListeners = new CopyOnWriteArrayList<>();
+    /** Partitions out of the query path whose file or catalog row is still to be deleted. */
+    private final List<Partition> unfinishedRemovals = new ArrayList<>();
+    /** Newest first, the catalog's own scans last. Replaced, never changed in place. */
+    private volatile List<Partition> partitions = List.of();
+    private volatile Partition hot;
+    private volatile RetentionPolicy retention;
+    private ScheduledExecutorService retentionRunner;
+    private Runnable retentionTask;
+    private volatile boolean closed;
 
     public Database(String filePath) {
-        this.url = "jdbc:sqlite:" + filePath;
+        this(filePath, DatabaseOptions.defaults());
+    }
+
+    public Database(String filePath, DatabaseOptions options) {
+        this.catalogFile = Path.of(filePath).toAbsolutePath();
+        String name = catalogFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.baseName = dot > 0 ? name.substring(0, dot) : name;
+        this.options = Objects.requireNonNull(options, "options");
+        this.catalog = new Partition(catalogFile, null, 0, options);
+        this.retention = options.retention();
     }
 
     public void initialize() throws SQLException {
-        try (Connection connection = getConnection(); Statement statement = connection.createStatement()) {
-            statement.execute("PRAGMA foreign_keys = ON");
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS scans (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "created_at TEXT NOT NULL, " +
-                    "raw TEXT NOT NULL, " +
-                    "normalized TEXT, " +
-                    "source TEXT, " +
-                    "port TEXT, " +
-                    "symbology_id TEXT, " +
-                    "parse_ok INTEGER NOT NULL DEFAULT 0, " +
-                    "error TEXT" +
-                    ")");
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS scan_elements (" +
-                    "scan_id INTEGER NOT NULL, " +
-                    "ai TEXT NOT NULL, " +
-                    "value TEXT NOT NULL, " +
-                    "pos_start INTEGER, " +
-                    "pos_end INTEGER, " +
-                    "FOREIGN KEY(scan_id) REFERENCES scans(id) ON DELETE CASCADE" +
-                    ")");
-            ensureColumn(statement, "normalized", "TEXT");
-            ensureColumn(statement, "source", "TEXT");
-            ensureColumn(statement, "port", "TEXT");
-            ensureColumn(statement, "symbology_id", "TEXT");
-            ensureColumn(statement, "parse_ok", "INTEGER NOT NULL DEFAULT 0");
-            ensureColumn(statement, "error", "TEXT");
-        }
-    }
-
-    private void ensureColumn(Statement statement, String name, String definition) {
-        try {
-            statement.executeUpdate("ALTER TABLE scans ADD COLUMN " + name + " " + definition);
-        } catch (SQLException ignored) {
+        synchronized (writeLock) {
+            catalog.initialize();
+            catalog.execute(CREATE_PARTITIONS);
+            List<Partition> loaded = new ArrayList<>(catalog.query(SELECT_PARTITIONS, this::readPartition));
+            for (Iterator<Partition> iterator = loaded.iterator(); iterator.hasNext(); ) {
+                Partition partition = iterator.next();
+                if (Files.exists(partition.file())) {
+                    continue;
+                }
+                if (partition.span() == null) {
+                    throw new SQLException("Partition file is missing: " + partition.file());
+                }
+                // Only retention deletes sealed partitions; this one's row outlived its file.
+                catalog.execute(DELETE_PARTITION, partition.month().toString());
+                iterator.remove();
+            }
+            catalog.compactIfSparse();
+            if (!loaded.isEmpty() && loaded.get(0).span() == null) {
+                hot = loaded.get(0);
+                hot.initialize();
+            }
+            for (int i = 1; i < loaded.size(); i++) {
+                if (loaded.get(i).span() == null) {
+                    // Left open by a rollover that did not finish.
+                    seal(loaded.get(i));
+                }
+            }
+            Partition.Span legacy = catalog.summarize();
+            if (!legacy.isEmpty()) {
+                catalog.markSealed(legacy);
+                loaded.add(catalog);
+            }
+            partitions = List.copyOf(loaded);
         }
     }
 
+    private Partition readPartition(ResultSet resultSet) throws SQLException {
+        long firstId = resultSet.getLong("first_id");
+        Partition partition = new Partition(catalogFile.resolveSibling(resultSet.getString("file")),
+                YearMonth.parse(resultSet.getString("month")), firstId, options);
+        long lastId = resultSet.getLong("last_id");
+        if (!resultSet.wasNull()) {
+            partition.markSealed(new Partition.Span(firstId, lastId, resultSet.getLong("scan_count"),
+                    instantOf(resultSet.getString("oldest")), instantOf(resultSet.getString("newest"))));
+        }
+        return partition;
+    }
+
+    private static Instant instantOf(String text) {
+        return text == null ? null : Instant.parse(text);
+    }
+
     public long insertScan(String raw,
                            String normalized,
                            String source,
@@ -63,73 +143,128 @@ public class Database {
                            boolean parseOk,
                            String error,
                            List<ParsedElement> elements) throws SQLException {
-        String now = Instant.now().toString();
-        try (Connection connection = getConnection()) {
-            connection.setAutoCommit(false);
-            try (PreparedStatement statement = connection.prepareStatement(
-                    "INSERT INTO scans(created_at, raw, normalized, source, port, symbology_id, parse_ok, error) VALUES(?, ?, ?, ?, ?, ?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS)) {
-                statement.setString(1, now);
-                statement.setString(2, raw);
-                statement.setString(3, normalized);
-                statement.setString(4, source);
-                statement.setString(5, port);
-                statement.setString(6, symbologyId);
-                statement.setInt(7, parseOk ? 1 : 0);
-                statement.setString(8, error);
-                statement.executeUpdate();
-                long id;
-                try (ResultSet keys = statement.getGeneratedKeys()) {
-                    if (keys.next()) {
-                        id = keys.getLong(1);
-                    } else {
-                        connection.rollback();
-                        return -1;
-                    }
-                }
-                try (PreparedStatement insertElement = connection.prepareStatement(
-                        "INSERT INTO scan_elements(scan_id, ai, value, pos_start, pos_end) VALUES(?, ?, ?, ?, ?)")) {
-                    for (ParsedElement element : elements) {
-                        insertElement.setLong(1, id);
-                        insertElement.setString(2, element.element().ai());
-                        insertElement.setString(3, element.element().value());
-                        insertElement.setInt(4, element.valueStart());
-                        insertElement.setInt(5, element.valueEnd());
-                        insertElement.addBatch();
-                    }
-                    insertElement.executeBatch();
-                }
-                connection.commit();
-                return id;
-            } catch (SQLException ex) {
-                connection.rollback();
-                throw ex;
-            } finally {
-                connection.setAutoCommit(true);
+        PendingScan scan = new PendingScan(Instant.now(), raw, normalized, source, port, symbologyId, parseOk, error,
+                PendingScan.elementsOf(elements));
+        return insertScans(List.of(scan))[0];
+    }
+
+    /**
+     * Inserts {@code scans} in one transaction and returns their ids in the same
+     * order, with -1 for a scan whose id could not be read back.
+     */
+    public long[] insertScans(List<PendingScan> scans) throws SQLException {
+        return insertScans(scans, null);
+    }
+
+    /**
+     * Inserts {@code scans} like {@link #insertScans(List)} and records
+     * {@code checkpoint}, if not {@code null}, in the same transaction, so the
+     * checkpoint never runs ahead of the scans stored.
+     */
+    public long[] insertScans(List<PendingScan> scans, ImportCheckpoint checkpoint) throws SQLException {
+        synchronized (writeLock) {
+            long[] ids = hotPartition().insertScans(scans, checkpoint);
+            for (Consumer<List<PendingScan>> listener : insertListeners) {
+                listener.accept(scans);
             }
+            return ids;
         }
     }
 
+    /**
+     * Has {@code listener} told about every batch of scans once it is committed, on
+     * the inserting thread and before {@link #insertScans} returns, so it must be
+     * quick.
+     */
+    public void addInsertListener(Consumer<List<PendingScan>> listener) {
+        insertListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * The partition for the current month, created and swapped in if the month has
+     * changed since the last insert.
+     */
+    private Partition hotPartition() throws SQLException {
+        ensureOpen();
+        YearMonth month = YearMonth.now(options.clock());
+        Partition previous = hot;
+        if (previous != null && !month.isAfter(previous.month())) {
+            return previous;
+        }
+        long lastId = newestScanId();
+        String name = baseName + "-" + month + ".db";
+        Partition next = new Partition(catalogFile.resolveSibling(name), month, lastId + 1, options);
+        try {
+            next.initialize();
+            next.seedSequence(lastId);
+            // Unfinished imports carry on in the new partition.
+            for (ImportCheckpoint checkpoint : (previous != null ? previous : catalog).importCheckpoints()) {
+                next.insertScans(List.of(), checkpoint);
+            }
+            catalog.execute(INSERT_PARTITION, month.toString(), name, lastId + 1);
+        } catch (SQLException ex) {
+            next.close();
+            throw ex;
+        }
+        synchronized (partitionsLock) {
+            List<Partition> updated = new ArrayList<>(partitions.size() + 1);
+            updated.add(next);
+            updated.addAll(partitions);
+            partitions = List.copyOf(updated);
+        }
+        hot = next;
+        if (previous != null) {
+            seal(previous);
+        }
+        return next;
+    }
+
+    private void seal(Partition partition) throws SQLException {
+        Partition.Span span = partition.summarize();
+        catalog.execute(SEAL_PARTITION, span.lastId(), span.count(), textOf(span.oldest()), textOf(span.newest()),
+                partition.month().toString());
+        partition.seal();
+        partition.markSealed(span);
+    }
+
+    private static String textOf(Instant instant) {
+        return instant == null ? null : instant.toString();
+    }
+
+    /**
+     * The checkpoint left by an unfinished import of {@code file}, or {@code null}.
+     */
+    public ImportCheckpoint findImportCheckpoint(String file) throws SQLException {
+        return writeTarget().findImportCheckpoint(file);
+    }
+
+    public void deleteImportCheckpoint(String file) throws SQLException {
+        synchronized (writeLock) {
+            writeTarget().deleteImportCheckpoint(file);
+        }
+    }
+
+    /**
+     * Where import checkpoints live: the current partition, or the catalog before the
+     * first one is created.
+     */
+    private Partition writeTarget() throws SQLException {
+        ensureOpen();
+        Partition current = hot;
+        return current != null ? current : catalog;
+    }
+
+    /**
+     * Returns the newest {@code limit} scans, newest first, with their elements.
+     */
     public List<Scan> listScans(int limit) throws SQLException {
         List<Scan> scans = new ArrayList<>();
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(
-                     "SELECT id, created_at, raw, normalized, source, port, symbology_id, parse_ok, error FROM scans ORDER BY id DESC LIMIT ?")) {
-            statement.setInt(1, limit);
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    long id = resultSet.getLong("id");
-                    String createdAt = resultSet.getString("created_at");
-                    String raw = resultSet.getString("raw");
-                    String normalized = resultSet.getString("normalized");
-                    String source = resultSet.getString("source");
-                    String port = resultSet.getString("port");
-                    String symbologyId = resultSet.getString("symbology_id");
-                    boolean parseOk = resultSet.getInt("parse_ok") == 1;
-                    String error = resultSet.getString("error");
-                    List<ScanElement> elements = loadElements(connection, id);
-                    scans.add(new Scan(id, createdAt, raw, normalized, source, port, symbologyId, parseOk, error, elements));
-                }
+        for (Partition partition : partitions()) {
+            if (scans.size() >= limit) {
+                break;
+            }
+            if (partition.reachesDownTo(Long.MAX_VALUE)) {
+                scans.addAll(partition.listScans(Long.MAX_VALUE, limit - scans.size()));
             }
         }
         return scans;
@@ -139,25 +274,447 @@ public class Database {
         return listScans(Integer.MAX_VALUE);
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url);
+    /**
+     * Streams every scan, newest first, to {@code handler} from one forward-only
+     * cursor per partition, so only the current scan is held in memory. With
+     * {@code withElements} the elements are read in the same pass by joining on the
+     * scan id index. Returns the number of scans handed over.
+     */
+    public long forEachScan(boolean withElements, ScanRowHandler handler) throws SQLException, IOException {
+        return forEachScan(withElements, true, handler);
+    }
+
+    /**
+     * Streams every scan like {@link #forEachScan(boolean, ScanRowHandler)}, oldest
+     * first unless {@code newestFirst}.
+     */
+    public long forEachScan(boolean withElements, boolean newestFirst, ScanRowHandler handler) throws SQLException, IOException {
+        List<Partition> ordered = new ArrayList<>(partitions());
+        if (!newestFirst) {
+            Collections.reverse(ordered);
+        }
+        boolean[] stopped = new boolean[1];
+        ScanRowHandler tracking = scan -> {
+            if (handler.onScan(scan)) {
+                return true;
+            }
+            stopped[0] = true;
+            return false;
+        };
+        long count = 0;
+        for (Partition partition : ordered) {
+            if (!partition.reachesDownTo(Long.MAX_VALUE)) {
+                continue;
+            }
+            count += partition.forEachScan(withElements, newestFirst, tracking);
+            if (stopped[0]) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns up to {@code limit} scans with ids up to {@code fromId}, newest first,
+     * without their elements. Paging on from the last id returned minus one walks the
+     * primary keys without skipping rows, opening older partitions only when the page
+     * reaches them.
+     */
+    public List<Scan> listScanHeaders(long fromId, int limit) throws SQLException {
+        List<Scan> scans = new ArrayList<>(Math.min(limit, 1024));
+        for (Partition partition : partitions()) {
+            if (scans.size() >= limit) {
+                break;
+            }
+            if (partition.reachesDownTo(fromId)) {
+                scans.addAll(partition.listScanHeaders(fromId, limit - scans.size()));
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * Returns up to {@code limit} scans created from {@code from} until before
+     * {@code to}, newest first, without their elements. Sealed partitions whose time
+     * range lies outside are not opened.
+     */
+    public List<Scan> listScanHeaders(Instant from, Instant to, int limit) throws SQLException {
+        List<Scan> scans = new ArrayList<>();
+        for (Partition partition : partitions()) {
+            if (scans.size() >= limit) {
+                break;
+            }
+            Partition.Span span = partition.span();
+            if (span == null || span.overlaps(from, to)) {
+                scans.addAll(partition.listScanHeaders(from, to, limit - scans.size()));
+            }
+        }
+        return scans;
+    }
+
+    /**
+     * Returns up to {@code limit} scans matching every field set in {@code search},
+     * newest first, without their elements.
+     */
+    public List<Scan> searchScans(ScanSearch search, int limit) throws SQLException {
+        if (search.isEmpty()) {
+            throw new IllegalArgumentException("search has no values");
+        }
+        return search(limit, (partition, remaining) -> partition.searchScans(search, remaining));
+    }
+
+    /**
+     * Returns up to {@code limit} scans whose GTIN, lot, serial or expiry is
+     * {@code value}, newest first, without their elements.
+     */
+    public List<Scan> searchScans(String value, int limit) throws SQLException {
+        return search(limit, (partition, remaining) -> partition.searchScans(value, remaining));
+    }
+
+    /**
+     * Returns up to {@code limit} scans with an element {@code ai} equal to
+     * {@code value}, newest first, without their elements.
+     */
+    public List<Scan> searchScansByElement(String ai, String value, int limit) throws SQLException {
+        return search(limit, (partition, remaining) -> partition.searchScansByElement(ai, value, remaining));
     }
 
-    private List<ScanElement> loadElements(Connection connection, long id) throws SQLException {
-        List<ScanElement> elements = new ArrayList<>();
-        try (PreparedStatement statement = connection.prepareStatement(
-                "SELECT ai, value, pos_start, pos_end FROM scan_elements WHERE scan_id = ? ORDER BY rowid")) {
-            statement.setLong(1, id);
-            try (ResultSet rs = statement.executeQuery()) {
-                while (rs.next()) {
-                    String ai = rs.getString("ai");
-                    String value = rs.getString("value");
-                    int start = rs.getInt("pos_start");
-                    int end = rs.getInt("pos_end");
-                    elements.add(new ScanElement(id, ai, value, start, end));
+    /**
+     * Whether a scan of {@code serial} for {@code gtin} has been stored.
+     */
+    public boolean serialSeen(String gtin, String serial) throws SQLException {
+        for (Partition partition : partitions()) {
+            if (partition.reachesDownTo(Long.MAX_VALUE) && partition.serialSeen(gtin, serial)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a scan with an element {@code ai} equal to {@code value} has been stored.
+     */
+    public boolean elementSeen(String ai, String value) throws SQLException {
+        for (Partition partition : partitions()) {
+            if (partition.reachesDownTo(Long.MAX_VALUE) && partition.elementSeen(ai, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Streams the GTIN and serial of every stored scan that has both to
+     * {@code serials}, and every SSCC to {@code ssccs}, without holding them in
+     * memory.
+     */
+    public void forEachSerialKey(BiConsumer<String, String> serials, Consumer<String> ssccs) throws SQLException {
+        for (Partition partition : partitions()) {
+            if (partition.reachesDownTo(Long.MAX_VALUE)) {
+                partition.forEachSerialKey(serials, SerialIndex.SSCC_AI, ssccs);
+            }
+        }
+    }
+
+    /**
+     * Returns the scan with {@code id} and its elements, or {@code null}.
+     */
+    public Scan findScan(long id) throws SQLException {
+        for (Partition partition : partitions()) {
+            if (partition.reachesDownTo(id)) {
+                return partition.findScan(id);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Id of the scan {@code offset} places below {@code topId}, counting {@code topId}
+     * itself as 0, or -1 when there are not that many.
+     */
+    public long scanIdAt(long topId, long offset) throws SQLException {
+        long remaining = offset;
+        for (Partition partition : partitions()) {
+            if (!partition.reachesDownTo(topId)) {
+                continue;
+            }
+            long found = partition.scanIdAt(topId, remaining);
+            if (found >= 0) {
+                return found;
+            }
+            remaining -= countUpTo(partition, topId);
+        }
+        return -1;
+    }
+
+    /**
+     * Id of the scan {@code distance} places above {@code id}, or -1 when there are
+     * not that many.
+     */
+    public long scanIdAbove(long id, int distance) throws SQLException {
+        List<Partition> newestFirst = partitions();
+        long remaining = distance;
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            Partition partition = newestFirst.get(i);
+            if (!partition.reachesAbove(id)) {
+                continue;
+            }
+            long found = partition.scanIdAbove(id, remaining);
+            if (found >= 0) {
+                return found;
+            }
+            Partition.Span span = partition.span();
+            remaining -= span != null && span.firstId() > id ? span.count() : partition.countScansAbove(id);
+        }
+        return -1;
+    }
+
+    /**
+     * Id of the newest scan, or 0 when there are none.
+     */
+    public long newestScanId() throws SQLException {
+        for (Partition partition : partitions()) {
+            Partition.Span span = partition.span();
+            long newest = span != null ? span.lastId() : partition.newestScanId();
+            if (newest > 0) {
+                return newest;
+            }
+        }
+        return 0;
+    }
+
+    public long countScans(long upToId) throws SQLException {
+        long count = 0;
+        for (Partition partition : partitions()) {
+            if (partition.reachesDownTo(upToId)) {
+                count += countUpTo(partition, upToId);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of scans with ids above {@code afterId} and up to {@code upToId}.
+     */
+    public long countScans(long afterId, long upToId) throws SQLException {
+        long count = 0;
+        for (Partition partition : partitions()) {
+            if (partition.reachesAbove(afterId) && partition.reachesDownTo(upToId)) {
+                count += partition.countScans(afterId, upToId);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Scans in {@code partition} with ids up to {@code id}, from the catalog if the
+     * partition is sealed and wholly below it.
+     */
+    private static long countUpTo(Partition partition, long id) throws SQLException {
+        Partition.Span span = partition.span();
+        return span != null && span.lastId() <= id ? span.count() : partition.countScans(id);
+    }
+
+    public RetentionPolicy retention() {
+        return retention;
+    }
+
+    /**
+     * Replaces the retention policy. Once {@link #startRetention} has been called,
+     * the new policy is applied straight away on the retention thread.
+     */
+    public void setRetention(RetentionPolicy policy) {
+        retention = Objects.requireNonNull(policy, "policy");
+        synchronized (retentionLock) {
+            if (retentionRunner != null && !retentionRunner.isShutdown()) {
+                retentionRunner.execute(retentionTask);
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #applyRetention} now and then every hour on a background thread,
+     * handing failures to {@code errorHandler} on that thread. Runs that find a
+     * policy keeping every partition do nothing.
+     */
+    public void startRetention(Consumer<Exception> errorHandler) {
+        Objects.requireNonNull(errorHandler, "errorHandler");
+        synchronized (retentionLock) {
+            if (retentionRunner != null) {
+                return;
+            }
+            retentionRunner = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "PartitionRetention");
+                thread.setDaemon(true);
+                return thread;
+            });
+            retentionTask = () -> {
+                try {
+                    applyRetention();
+                } catch (IOException | SQLException | RuntimeException ex) {
+                    if (!closed) {
+                        errorHandler.accept(ex);
+                    }
+                }
+            };
+            retentionRunner.scheduleWithFixedDelay(retentionTask, 0, RETENTION_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Archives or drops every sealed partition the retention policy no longer keeps
+     * and returns how many were removed. A partition is taken out of the query path,
+     * then its file is deleted and only then its catalog row; a removal that fails
+     * part way is finished by the next run, or at start-up. The catalog's own scans
+     * are deleted instead, once the newest of them is old enough. Inserts are never
+     * held up.
+     */
+    public int applyRetention() throws IOException, SQLException {
+        RetentionPolicy policy = retention;
+        synchronized (retentionLock) {
+            Exception failure = finishRemovals();
+            int removed = 0;
+            if (!policy.keepsAll()) {
+                YearMonth oldestKept = YearMonth.now(options.clock()).minusMonths(policy.keepMonths());
+                for (Partition partition : partitions()) {
+                    Partition.Span span = partition.span();
+                    YearMonth month = span == null ? null : monthOf(partition, span);
+                    if (month == null || !month.isBefore(oldestKept)) {
+                        continue;
+                    }
+                    if (policy.action() == RetentionPolicy.Action.ARCHIVE && !span.isEmpty()) {
+                        archive(partition, policy.archiveDirectory());
+                    }
+                    synchronized (partitionsLock) {
+                        List<Partition> updated = new ArrayList<>(partitions);
+                        updated.remove(partition);
+                        partitions = List.copyOf(updated);
+                    }
+                    removed++;
+                    if (partition == catalog) {
+                        catalog.deleteAllScans();
+                        continue;
+                    }
+                    try {
+                        remove(partition);
+                    } catch (IOException | SQLException ex) {
+                        unfinishedRemovals.add(partition);
+                        failure = failure == null ? ex : failure;
+                    }
                 }
             }
+            if (failure instanceof IOException ex) {
+                throw ex;
+            }
+            if (failure != null) {
+                throw (SQLException) failure;
+            }
+            return removed;
+        }
+    }
+
+    /**
+     * Retries removals that failed before and returns the first failure, if any.
+     */
+    private Exception finishRemovals() {
+        Exception failure = null;
+        for (Iterator<Partition> iterator = unfinishedRemovals.iterator(); iterator.hasNext(); ) {
+            try {
+                remove(iterator.next());
+                iterator.remove();
+            } catch (IOException | SQLException ex) {
+                failure = failure == null ? ex : failure;
+            }
+        }
+        return failure;
+    }
+
+    private void remove(Partition partition) throws IOException, SQLException {
+        partition.delete();
+        catalog.execute(DELETE_PARTITION, partition.month().toString());
+    }
+
+    /**
+     * The month a sealed partition is retained by: its own, or for the catalog's scans
+     * the month of the newest one, {@code null} if that is not known.
+     */
+    private static YearMonth monthOf(Partition partition, Partition.Span span) {
+        if (partition.month() != null) {
+            return partition.month();
+        }
+        if (span.newest() == null) {
+            return null;
+        }
+        return YearMonth.from(span.newest().minusSeconds(1).atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Writes {@code partition} to an archive in {@code directory}, replacing the file
+     * only once it is complete.
+     */
+    private void archive(Partition partition, Path directory) throws IOException, SQLException {
+        Files.createDirectories(directory);
+        String name = baseName + "-" + (partition.month() != null ? partition.month().toString() : "legacy") + ".gsar";
+        Path target = directory.resolve(name);
+        Path temporary = directory.resolve(name + ".tmp");
+        try {
+            ScanArchive.write(partition, temporary);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Stops retention and closes every partition. Readers still in use are closed
+     * when they are handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (retentionLock) {
+            if (retentionRunner != null) {
+                retentionRunner.shutdownNow();
+            }
+        }
+        synchronized (writeLock) {
+            for (Partition partition : partitions) {
+                partition.close();
+            }
+            catalog.close();
+        }
+    }
+
+    /**
+     * Runs {@code query} on each partition, newest first, until {@code limit} scans
+     * have been found.
+     */
+    private List<Scan> search(int limit, PartitionQuery query) throws SQLException {
+        List<Scan> scans = new ArrayList<>();
+        for (Partition partition : partitions()) {
+            if (scans.size() >= limit) {
+                break;
+            }
+            if (partition.reachesDownTo(Long.MAX_VALUE)) {
+                scans.addAll(query.run(partition, limit - scans.size()));
+            }
+        }
+        return scans;
+    }
+
+    @FunctionalInterface
+    private interface PartitionQuery {
+        List<Scan> run(Partition partition, int limit) throws SQLException;
+    }
+
+    private List<Partition> partitions() throws SQLException {
+        ensureOpen();
+        return partitions;
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Database is closed");
         }
-        return elements;
     }
 }
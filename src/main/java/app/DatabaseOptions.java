@@ -0,0 +1,133 @@
+package app;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Connection and partitioning settings for {@link Database}. Every partition always
+ * runs in WAL mode, so readers and the writer do not block each other.
+ */
+public final class DatabaseOptions {
+    static final int DEFAULT_READER_POOL_SIZE = 2;
+    static final long DEFAULT_MMAP_SIZE = 64L * 1024 * 1024;
+    static final Duration DEFAULT_BUSY_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * SQLite {@code PRAGMA synchronous} levels. {@link #NORMAL} is durable against
+     * application crashes in WAL mode and may lose the last commits on power loss.
+     */
+    public enum Synchronous {
+        OFF, NORMAL, FULL, EXTRA
+    }
+
+    private final Synchronous synchronous;
+    private final long mmapSize;
+    private final int readerPoolSize;
+    private final Duration busyTimeout;
+    private final RetentionPolicy retention;
+    private final Clock clock;
+
+    private DatabaseOptions(Builder builder) {
+        this.synchronous = builder.synchronous;
+        this.mmapSize = builder.mmapSize;
+        this.readerPoolSize = builder.readerPoolSize;
+        this.busyTimeout = builder.busyTimeout;
+        this.retention = builder.retention;
+        this.clock = builder.clock;
+    }
+
+    public Synchronous synchronous() {
+        return synchronous;
+    }
+
+    /**
+     * Bytes of the database file SQLite may memory-map, or 0 to read through the
+     * page cache only.
+     */
+    public long mmapSize() {
+        return mmapSize;
+    }
+
+    /**
+     * Maximum number of read connections kept open next to the single writer.
+     */
+    public int readerPoolSize() {
+        return readerPoolSize;
+    }
+
+    public Duration busyTimeout() {
+        return busyTimeout;
+    }
+
+    public RetentionPolicy retention() {
+        return retention;
+    }
+
+    /**
+     * Clock that decides which monthly partition takes inserts, read in UTC.
+     */
+    Clock clock() {
+        return clock;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static DatabaseOptions defaults() {
+        return builder().build();
+    }
+
+    public static final class Builder {
+        private Synchronous synchronous = Synchronous.NORMAL;
+        private long mmapSize = DEFAULT_MMAP_SIZE;
+        private int readerPoolSize = DEFAULT_READER_POOL_SIZE;
+        private Duration busyTimeout = DEFAULT_BUSY_TIMEOUT;
+        private RetentionPolicy retention = RetentionPolicy.keepAll();
+        private Clock clock = Clock.systemUTC();
+
+        private Builder() {
+        }
+
+        public Builder synchronous(Synchronous synchronous) {
+            this.synchronous = Objects.requireNonNull(synchronous, "synchronous");
+            return this;
+        }
+
+        public Builder mmapSize(long mmapSize) {
+            if (mmapSize < 0) {
+                throw new IllegalArgumentException("mmapSize must not be negative");
+            }
+            this.mmapSize = mmapSize;
+            return this;
+        }
+
+        public Builder readerPoolSize(int readerPoolSize) {
+            if (readerPoolSize < 1) {
+                throw new IllegalArgumentException("readerPoolSize must be at least 1");
+            }
+            this.readerPoolSize = readerPoolSize;
+            return this;
+        }
+
+        public Builder busyTimeout(Duration busyTimeout) {
+            this.busyTimeout = Objects.requireNonNull(busyTimeout, "busyTimeout");
+            return this;
+        }
+
+        public Builder retention(RetentionPolicy retention) {
+            this.retention = Objects.requireNonNull(retention, "retention");
+            return this;
+        }
+
+        Builder clock(Clock clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        public DatabaseOptions build() {
+            return new DatabaseOptions(this);
+        }
+    }
+}
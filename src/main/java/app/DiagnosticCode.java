@@ -0,0 +1,76 @@
+package app;
+
+import java.time.LocalDate;
+
+/**
+ * Element-level validation findings. {@link ParsedElement} stores a code with up to
+ * three small numeric arguments and renders the text only when it is displayed.
+ */
+public enum DiagnosticCode {
+    VALUE_TOO_SHORT,
+    VALUE_TOO_LONG,
+    CHARACTER_NOT_ALLOWED,
+    LOWERCASE_DETECTED,
+    LENGTH_OUT_OF_RANGE,
+    GTIN_NOT_NUMERIC,
+    GTIN_CHECK_OK,
+    GTIN_CHECK_MISMATCH,
+    KEY_NOT_NUMERIC,
+    KEY_CHECK_OK,
+    KEY_CHECK_MISMATCH,
+    DATE_NOT_NUMERIC,
+    MONTH_OUT_OF_RANGE,
+    DAY_OUT_OF_RANGE,
+    DATE,
+    INVALID_DATE,
+    QUANTITY,
+    PRICE_NOT_NUMERIC,
+    PRICE_PREVIEW,
+    CURRENCY,
+    UNKNOWN_CURRENCY;
+
+    String render(ParsedElement element, int first, int second, int third) {
+        String ai = element.element().ai();
+        String value = element.element().value();
+        return switch (this) {
+            case VALUE_TOO_SHORT -> "Value shorter than minimum length " + first;
+            case VALUE_TOO_LONG -> "Value longer than maximum length " + first;
+            case CHARACTER_NOT_ALLOWED -> "Character '" + GS1Parser.printable((char) first) + "' not allowed for AI (" + ai + ")";
+            case LOWERCASE_DETECTED -> "Lowercase characters detected";
+            case LENGTH_OUT_OF_RANGE -> element.definition().description() + " length must be between " + first + " and " + second;
+            case GTIN_NOT_NUMERIC -> "GTIN must be numeric";
+            case GTIN_CHECK_OK -> "GTIN check digit OK";
+            case GTIN_CHECK_MISMATCH -> "GTIN check digit mismatch: expected " + first + " calculated " + second;
+            case KEY_NOT_NUMERIC -> element.definition().description() + " must be numeric";
+            case KEY_CHECK_OK -> element.definition().description() + " check digit OK";
+            case KEY_CHECK_MISMATCH -> element.definition().description() + " check digit mismatch: expected " + first + " calculated " + second;
+            case DATE_NOT_NUMERIC -> "Date contains non-numeric characters";
+            case MONTH_OUT_OF_RANGE -> "Month out of range: " + first;
+            case DAY_OUT_OF_RANGE -> "Day out of range: " + first;
+            case DATE -> "Date: " + LocalDate.of(first, second, third);
+            case INVALID_DATE -> "Invalid date: " + value;
+            case QUANTITY -> "Quantity: " + scaledValue(value, first);
+            case PRICE_NOT_NUMERIC -> "Price contains non-numeric characters";
+            case PRICE_PREVIEW -> "Price preview: " + value.substring(0, value.length() - first)
+                    + (first > 0 ? "." + value.substring(value.length() - first) : "");
+            case CURRENCY -> "Currency: " + FieldValidators.currencyCode(first);
+            case UNKNOWN_CURRENCY -> "Unknown ISO 4217 currency code: " + String.format("%03d", first);
+        };
+    }
+
+    private static String scaledValue(String raw, int decimals) {
+        if (!raw.chars().allMatch(Character::isDigit)) {
+            return raw;
+        }
+        if (decimals <= 0) {
+            return raw;
+        }
+        if (raw.length() <= decimals) {
+            String fraction = "0".repeat(decimals - raw.length()) + raw;
+            return "0." + fraction;
+        }
+        String integral = raw.substring(0, raw.length() - decimals);
+        String fraction = raw.substring(raw.length() - decimals);
+        return integral + "." + fraction;
+    }
+}
@@ -0,0 +1,65 @@
+package app;
+
+/**
+ * Checks the value of one parsed element and records its findings on the element.
+ * Each {@link AiDefinition} carries the validator resolved for its AI when the
+ * dictionary is built, so parsing calls it without looking anything up.
+ */
+@FunctionalInterface
+public interface ElementValidator {
+    ElementValidator NONE = (value, start, end, element) -> {
+    };
+
+    /**
+     * @param value   text holding the element value
+     * @param start   index of the first value character in {@code value}
+     * @param end     index just past the last value character
+     * @param element element that receives diagnostics
+     */
+    void validate(CharSequence value, int start, int end, ParsedElement element);
+
+    /**
+     * Cheap evidence used by {@link GsSegmenter} to rank candidate splits: positive when
+     * the value looks right for the AI, such as a matching check digit, negative when it
+     * cannot be, and zero when the validator has no opinion.
+     */
+    default int plausibility(CharSequence value, int start, int end) {
+        return 0;
+    }
+
+    default ElementValidator withPlausibility(Plausibility plausibility) {
+        ElementValidator self = this;
+        return new ElementValidator() {
+            @Override
+            public void validate(CharSequence value, int start, int end, ParsedElement element) {
+                self.validate(value, start, end, element);
+            }
+
+            @Override
+            public int plausibility(CharSequence value, int start, int end) {
+                return plausibility.score(value, start, end);
+            }
+        };
+    }
+
+    default ElementValidator andThen(ElementValidator next) {
+        ElementValidator self = this;
+        return new ElementValidator() {
+            @Override
+            public void validate(CharSequence value, int start, int end, ParsedElement element) {
+                self.validate(value, start, end, element);
+                next.validate(value, start, end, element);
+            }
+
+            @Override
+            public int plausibility(CharSequence value, int start, int end) {
+                return self.plausibility(value, start, end) + next.plausibility(value, start, end);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Plausibility {
+        int score(CharSequence value, int start, int end);
+    }
+}
@@ -0,0 +1,203 @@
+package app;
+
+import java.util.Currency;
+
+/**
+ * Allocation-free value checks run over a character range of the scanned data.
+ * They reproduce the results of the earlier {@code java.time} and stream based checks,
+ * including SMART date resolution, where day 00 means the last day of the month and
+ * days past the end of a month are clamped to it.
+ */
+final class FieldValidators {
+    private static final int DATE_LENGTH = 6;
+    private static final int CURRENCY_LENGTH = 3;
+    private static final int CHECK_DIGIT_EVIDENCE = 6;
+    private static final int DATE_EVIDENCE = 4;
+    private static final int CONTRADICTION = -6;
+    private static final String[] CURRENCY_BY_NUMERIC = new String[1000];
+
+    static {
+        for (Currency currency : Currency.getAvailableCurrencies()) {
+            int numeric = currency.getNumericCode();
+            if (numeric > 0 && numeric < CURRENCY_BY_NUMERIC.length && CURRENCY_BY_NUMERIC[numeric] == null) {
+                CURRENCY_BY_NUMERIC[numeric] = currency.getCurrencyCode();
+            }
+        }
+    }
+
+    private FieldValidators() {
+    }
+
+    static void gtin(CharSequence value, int start, int end, ParsedElement element) {
+        if (start == end || !allDigits(value, start, end)) {
+            element.addDiagnostic(DiagnosticCode.GTIN_NOT_NUMERIC);
+            element.markInvalid();
+            return;
+        }
+        int expectedCheck = Character.digit(value.charAt(end - 1), 10);
+        int calculated = mod10(value, start, end - 1);
+        if (expectedCheck == calculated) {
+            element.addDiagnostic(DiagnosticCode.GTIN_CHECK_OK);
+        } else {
+            element.addDiagnostic(DiagnosticCode.GTIN_CHECK_MISMATCH, expectedCheck, calculated, 0);
+            element.markInvalid();
+        }
+    }
+
+    /**
+     * Check digit over the whole value for keys such as SSCC and GLN, reported under
+     * the AI description.
+     */
+    static void checkDigit(CharSequence value, int start, int end, ParsedElement element) {
+        if (start == end || !allDigits(value, start, end)) {
+            element.addDiagnostic(DiagnosticCode.KEY_NOT_NUMERIC);
+            element.markInvalid();
+            return;
+        }
+        int expectedCheck = Character.digit(value.charAt(end - 1), 10);
+        int calculated = mod10(value, start, end - 1);
+        if (expectedCheck == calculated) {
+            element.addDiagnostic(DiagnosticCode.KEY_CHECK_OK);
+        } else {
+            element.addDiagnostic(DiagnosticCode.KEY_CHECK_MISMATCH, expectedCheck, calculated, 0);
+            element.markInvalid();
+        }
+    }
+
+    static ElementValidator lengthRange(int min, int max) {
+        return (value, start, end, element) -> {
+            int length = end - start;
+            if (length < min || length > max) {
+                element.addDiagnostic(DiagnosticCode.LENGTH_OUT_OF_RANGE, min, max, 0);
+                element.markInvalid();
+            }
+        };
+    }
+
+    static void date(CharSequence value, int start, int end, ParsedElement element) {
+        if (!allDigits(value, start, end)) {
+            element.addDiagnostic(DiagnosticCode.DATE_NOT_NUMERIC);
+            element.markInvalid();
+            return;
+        }
+        if (end - start < DATE_LENGTH) {
+            element.addDiagnostic(DiagnosticCode.INVALID_DATE);
+            element.markInvalid();
+            return;
+        }
+        int month = Character.digit(value.charAt(start + 2), 10) * 10 + Character.digit(value.charAt(start + 3), 10);
+        int day = Character.digit(value.charAt(start + 4), 10) * 10 + Character.digit(value.charAt(start + 5), 10);
+        if (month < 1 || month > 12) {
+            element.addDiagnostic(DiagnosticCode.MONTH_OUT_OF_RANGE, month);
+            element.markInvalid();
+            return;
+        }
+        if (day > 31) {
+            element.addDiagnostic(DiagnosticCode.DAY_OUT_OF_RANGE, day);
+            element.markInvalid();
+            return;
+        }
+        // Day 00 only resolves the year and month, so only those digits must be ASCII.
+        int resolvedEnd = day == 0 ? start + 4 : start + DATE_LENGTH;
+        if (!allAsciiDigits(value, start, resolvedEnd) || (day != 0 && end != resolvedEnd)) {
+            element.addDiagnostic(DiagnosticCode.INVALID_DATE);
+            element.markInvalid();
+            return;
+        }
+        int year = 2000 + (value.charAt(start) - '0') * 10 + (value.charAt(start + 1) - '0');
+        int lastDay = lengthOfMonth(year, month);
+        element.addDiagnostic(DiagnosticCode.DATE, year, month, day == 0 ? lastDay : Math.min(day, lastDay));
+    }
+
+    static void quantity(CharSequence value, int start, int end, ParsedElement element) {
+        element.addDiagnostic(DiagnosticCode.QUANTITY, element.definition().code().charAt(3) - '0');
+    }
+
+    static void price(CharSequence value, int start, int end, ParsedElement element) {
+        if (!allDigits(value, start, end)) {
+            element.addDiagnostic(DiagnosticCode.PRICE_NOT_NUMERIC);
+            element.markInvalid();
+            return;
+        }
+        int modifier = element.definition().code().charAt(3) - '0';
+        if (end - start > modifier) {
+            element.addDiagnostic(DiagnosticCode.PRICE_PREVIEW, modifier);
+        }
+    }
+
+    /**
+     * ISO 4217 numeric currency code in the first three digits of an amount.
+     * Non-numeric values are already reported by the character set check.
+     */
+    static void currency(CharSequence value, int start, int end, ParsedElement element) {
+        if (end - start < CURRENCY_LENGTH || !allAsciiDigits(value, start, start + CURRENCY_LENGTH)) {
+            return;
+        }
+        int numeric = (value.charAt(start) - '0') * 100 + (value.charAt(start + 1) - '0') * 10 + (value.charAt(start + 2) - '0');
+        if (CURRENCY_BY_NUMERIC[numeric] != null) {
+            element.addDiagnostic(DiagnosticCode.CURRENCY, numeric);
+        } else {
+            element.addDiagnostic(DiagnosticCode.UNKNOWN_CURRENCY, numeric);
+            element.markInvalid();
+        }
+    }
+
+    static String currencyCode(int numeric) {
+        return CURRENCY_BY_NUMERIC[numeric];
+    }
+
+    static int checkDigitPlausibility(CharSequence value, int start, int end) {
+        if (end - start < 2 || !allAsciiDigits(value, start, end)) {
+            return CONTRADICTION;
+        }
+        return value.charAt(end - 1) - '0' == mod10(value, start, end - 1) ? CHECK_DIGIT_EVIDENCE : CONTRADICTION;
+    }
+
+    static int datePlausibility(CharSequence value, int start, int end) {
+        if (end - start != DATE_LENGTH || !allAsciiDigits(value, start, end)) {
+            return CONTRADICTION;
+        }
+        int month = (value.charAt(start + 2) - '0') * 10 + (value.charAt(start + 3) - '0');
+        int day = (value.charAt(start + 4) - '0') * 10 + (value.charAt(start + 5) - '0');
+        return month >= 1 && month <= 12 && day <= 31 ? DATE_EVIDENCE : CONTRADICTION;
+    }
+
+    static int mod10(CharSequence value, int start, int end) {
+        int sum = 0;
+        boolean even = true;
+        for (int i = end - 1; i >= start; i--) {
+            int digit = value.charAt(i) - '0';
+            sum += even ? digit * 3 : digit;
+            even = !even;
+        }
+        int mod = sum % 10;
+        return (10 - mod) % 10;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    private static boolean allDigits(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allAsciiDigits(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,18 +1,33 @@
 package app;
 
-import java.time.LocalDate;
-import java.time.YearMonth;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public final class GS1Parser {
     private static final char GS = 0x1D;
-    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyMMdd", Locale.ROOT);
+    /**
+     * AIs that {@link #detectEmbeddedAi} recognises inside a lot or serial: those
+     * commonly printed after one.
+     */
+    private static final Set<String> EMBEDDABLE = new HashSet<>(List.of(
+            "00", "01", "02", "10", "11", "12", "13", "15", "16", "17", "20", "21", "30", "37",
+            "240", "241", "242", "243", "250", "251", "252", "253", "254", "8001", "8002", "8003", "8004"));
+
+    static {
+        for (int code = 400; code <= 426; code++) {
+            EMBEDDABLE.add(String.valueOf(code));
+        }
+        for (String family : List.of("310", "320", "330", "340", "392", "393")) {
+            for (int digit = 0; digit <= 9; digit++) {
+                EMBEDDABLE.add(family + digit);
+            }
+        }
+    }
 
     private GS1Parser() {
     }
@@ -20,139 +35,170 @@ public final class GS1Parser {
     public static ParseResult parse(String normalized, ParseOptions options) {
         Objects.requireNonNull(normalized, "normalized");
         ParseOptions parseOptions = options == null ? ParseOptions.defaults() : options;
+        return materialize(parse(normalized, parseOptions, new ParseSpans()), parseOptions);
+    }
 
+    /**
+     * Builds a {@link ParseResult} from offset-based output, copying element values and
+     * running the per-element checks. {@code spans} must still hold the input it was
+     * parsed from.
+     */
+    static ParseResult materialize(ParseSpans spans, ParseOptions parseOptions) {
         ParseResult result = new ParseResult();
+        for (int i = 0; i < spans.size(); i++) {
+            AiDefinition definition = spans.definition(i);
+            String value = spans.value(i);
+            ParsedElement element = new ParsedElement(new GS1Element(definition.code(), value), definition, spans.valueStart(i), spans.valueEnd(i));
+            if (value.length() < definition.minLength()) {
+                element.addDiagnostic(DiagnosticCode.VALUE_TOO_SHORT, definition.minLength());
+                element.markInvalid();
+            }
+            if (value.length() > definition.maxLength()) {
+                element.addDiagnostic(DiagnosticCode.VALUE_TOO_LONG, definition.maxLength());
+            }
+            enforceCharacterSet(element, parseOptions);
+            result.addElement(element);
+            definition.validator().validate(value, 0, value.length(), element);
+        }
+        for (int i = 0; i < spans.messageCount(); i++) {
+            ParseMessage message = new ParseMessage(spans.message(i), spans.messagePosition(i));
+            if (spans.messageCode(i).error()) {
+                result.addError(message);
+            } else {
+                result.addWarning(message);
+            }
+        }
+        if (spans.heuristicsApplied()) {
+            result.setHeuristicsApplied();
+        }
+        return result;
+    }
+
+    /**
+     * Parses {@code input} into {@code spans} without copying any part of it. Element
+     * values and messages stay as offsets until the caller materializes them, so a
+     * reused {@link ParseSpans} makes the steady state allocation-free.
+     */
+    public static ParseSpans parse(CharSequence input, ParseOptions options, ParseSpans spans) {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(spans, "spans");
+        ParseOptions parseOptions = options == null ? ParseOptions.defaults() : options;
+
+        spans.reset(input);
+        GsSegmenter segmenter = null;
+        int length = input.length();
         int index = 0;
-        while (index < normalized.length()) {
-            char current = normalized.charAt(index);
+        while (index < length) {
+            char current = input.charAt(index);
             if (current == GS) {
                 index++;
                 continue;
             }
             if (!Character.isDigit(current)) {
-                result.addError(new ParseMessage("Unexpected character '" + printable(current) + "'", index));
+                spans.addMessage(MessageCode.UNEXPECTED_CHARACTER, index, null, null);
                 break;
             }
-            AiMatch match = AiDictionary.match(normalized, index);
-            if (match == null) {
-                result.addError(new ParseMessage("Unknown AI at position " + index, index));
+            AiDefinition definition = AiDictionary.match(input, index, length);
+            if (definition == null) {
+                spans.addMessage(MessageCode.UNKNOWN_AI, index, null, null);
                 break;
             }
-            String ai = match.ai();
-            AiDefinition definition = match.definition();
-            int aiLength = match.length();
-            int valueStart = index + aiLength;
+            String ai = definition.code();
+            int aiStart = index;
+            int valueStart = index + ai.length();
             if (definition.fixedLength()) {
                 int valueEnd = valueStart + definition.maxLength();
-                if (valueEnd > normalized.length()) {
-                    result.addError(new ParseMessage("Value for AI (" + ai + ") is shorter than expected", valueStart));
+                if (valueEnd > length) {
+                    spans.addMessage(MessageCode.VALUE_TRUNCATED, valueStart, definition, null);
                     break;
                 }
-                String value = normalized.substring(valueStart, valueEnd);
-                ParsedElement element = new ParsedElement(new GS1Element(ai, value), definition, valueStart, valueEnd);
-                enforceCharacterSet(element, parseOptions);
-                result.addElement(element);
-                applyValidation(element);
+                spans.addElement(definition, aiStart, valueStart, valueEnd);
                 index = valueEnd;
             } else {
                 int cursor = valueStart;
-                while (cursor < normalized.length() && normalized.charAt(cursor) != GS) {
+                while (cursor < length && input.charAt(cursor) != GS) {
                     cursor++;
                 }
-                boolean terminatedByGs = cursor < normalized.length() && normalized.charAt(cursor) == GS;
-                String value = normalized.substring(valueStart, cursor);
-                boolean checkEmbeddedAi = !terminatedByGs && (ai.equals("10") || ai.equals("21"));
-                MissingAiInfo missingAi = checkEmbeddedAi ? detectEmbeddedAi(value) : null;
-                boolean heuristicsApplied = false;
+                boolean terminatedByGs = cursor < length;
+                int valueEnd = cursor;
                 boolean advanceToCursor = true;
-                if (missingAi != null) {
-                    int embeddedPosition = missingAi.position();
-                    String embeddedAi = missingAi.match().ai();
-                    String prefixValue = value.substring(0, embeddedPosition);
-                    if (parseOptions.heuristicRepair()) {
-                        if (ai.equals("10")) {
-                            if (embeddedAi.equals("21")) {
-                                String candidateSerial = value.substring(embeddedPosition + missingAi.match().length());
-                                if (!prefixValue.isEmpty() && prefixValue.length() <= definition.maxLength()
-                                        && candidateSerial.length() >= 1 && candidateSerial.length() <= 20
-                                        && Character.isLetterOrDigit(candidateSerial.charAt(0))) {
-                                    value = prefixValue;
-                                    index = valueStart + embeddedPosition;
-                                    heuristicsApplied = true;
-                                    advanceToCursor = false;
-                                    result.setHeuristicsApplied();
-                                    result.addWarning(new ParseMessage("Applied heuristic split between (10) and (21)", index));
-                                }
-                            } else if (embeddedAi.equals("17") && !prefixValue.isEmpty()
-                                    && prefixValue.length() <= definition.maxLength()) {
-                                value = prefixValue;
-                                index = valueStart + embeddedPosition;
-                                heuristicsApplied = true;
-                                advanceToCursor = false;
-                                result.setHeuristicsApplied();
-                                result.addWarning(new ParseMessage("Applied heuristic split before AI (17) after (10)", index));
-                            }
-                        } else if (ai.equals("21")) {
-                            if (embeddedAi.equals("17")) {
-                                int remainder = value.length() - (embeddedPosition + missingAi.match().length());
-                                if (!prefixValue.isEmpty() && prefixValue.length() <= definition.maxLength()
-                                        && remainder >= missingAi.match().definition().minLength()) {
-                                    value = prefixValue;
-                                    index = valueStart + embeddedPosition;
-                                    heuristicsApplied = true;
-                                    advanceToCursor = false;
-                                    result.setHeuristicsApplied();
-                                    result.addWarning(new ParseMessage("Applied heuristic split before AI (17) after (21)", index));
-                                }
-                            } else if (embeddedAi.equals("10")) {
-                                int remainder = value.length() - (embeddedPosition + missingAi.match().length());
-                                if (!prefixValue.isEmpty() && prefixValue.length() <= definition.maxLength()
-                                        && remainder >= missingAi.match().definition().minLength()) {
-                                    value = prefixValue;
-                                    index = valueStart + embeddedPosition;
-                                    heuristicsApplied = true;
-                                    advanceToCursor = false;
-                                    result.setHeuristicsApplied();
-                                    result.addWarning(new ParseMessage("Applied heuristic split before AI (10) after (21)", index));
-                                }
-                            }
-                        }
+                int splitPosition = GsSegmenter.NO_SPLIT;
+                // A GS-terminated value that fits its AI was delimited by the scanner itself.
+                if (parseOptions.heuristicRepair() && (!terminatedByGs || cursor - valueStart > definition.maxLength())) {
+                    if (segmenter == null) {
+                        segmenter = new GsSegmenter(input, parseOptions);
                     }
-                    if (!heuristicsApplied) {
-                        if (!prefixValue.isEmpty()) {
-                            value = prefixValue;
-                            index = valueStart + embeddedPosition;
+                    splitPosition = segmenter.split(definition, valueStart, cursor);
+                }
+                if (splitPosition != GsSegmenter.NO_SPLIT) {
+                    valueEnd = splitPosition;
+                    index = splitPosition;
+                    advanceToCursor = false;
+                    spans.setHeuristicsApplied();
+                    spans.addMessage(MessageCode.HEURISTIC_SPLIT, splitPosition, definition,
+                            AiDictionary.match(input, splitPosition, cursor));
+                } else if (!terminatedByGs && (ai.equals("10") || ai.equals("21"))
+                        && (cursor - valueStart > definition.maxLength() || !allDigits(input, valueStart, cursor))) {
+                    // A numeric trailing lot or serial that fits its AI is taken as scanned:
+                    // nearly any digit run inside one reads as some AI.
+                    int embeddedPosition = detectEmbeddedAi(input, valueStart, cursor);
+                    if (embeddedPosition >= 0) {
+                        AiDefinition embedded = AiDictionary.match(input, embeddedPosition, cursor);
+                        if (embeddedPosition > valueStart) {
+                            valueEnd = embeddedPosition;
+                            index = embeddedPosition;
                             advanceToCursor = false;
                         }
-                        result.addError(new ParseMessage("Expected GS after variable-length AI (" + ai + ") before AI (" + embeddedAi + ")", valueStart + embeddedPosition));
+                        spans.addMessage(MessageCode.MISSING_GS, embeddedPosition, definition, embedded);
                     }
                 }
 
-                if (value.isEmpty()) {
-                    result.addError(new ParseMessage("Value for AI (" + ai + ") cannot be empty", valueStart));
+                if (valueEnd == valueStart) {
+                    spans.addMessage(MessageCode.EMPTY_VALUE, valueStart, definition, null);
                     break;
                 }
-                int valueEnd = valueStart + value.length();
-                ParsedElement element = new ParsedElement(new GS1Element(ai, value), definition, valueStart, valueEnd);
-                if (value.length() < definition.minLength()) {
-                    element.addWarning("Value shorter than minimum length " + definition.minLength());
-                    element.markInvalid();
-                }
-                if (value.length() > definition.maxLength()) {
-                    element.addWarning("Value longer than maximum length " + definition.maxLength());
-                }
-                enforceCharacterSet(element, parseOptions);
-                result.addElement(element);
-                applyValidation(element);
+                spans.addElement(definition, aiStart, valueStart, valueEnd);
                 if (advanceToCursor) {
                     index = cursor;
                 }
-                if (index < normalized.length() && normalized.charAt(index) == GS) {
+                if (index < length && input.charAt(index) == GS) {
                     index++;
                 }
             }
         }
-        return result;
+        return spans;
+    }
+
+    /**
+     * Parses every string in {@code normalized} across the common fork/join pool and
+     * returns the results in input order.
+     */
+    public static List<ParseResult> parseAll(List<String> normalized, ParseOptions options) {
+        return parseAll(normalized, options, ForkJoinPool.commonPool());
+    }
+
+    public static List<ParseResult> parseAll(List<String> normalized, ParseOptions options, ForkJoinPool pool) {
+        Objects.requireNonNull(normalized, "normalized");
+        Objects.requireNonNull(pool, "pool");
+        return Arrays.asList(BatchParser.parseOrdered(normalized, options, pool));
+    }
+
+    /**
+     * Parses a stream of arbitrary length on the common fork/join pool and hands each
+     * result to {@code sink}. Only a bounded window of scans is held at a time. When
+     * {@code ordered} is set the sink is called on the caller thread in input order;
+     * otherwise it is called from worker threads as soon as each result is ready.
+     *
+     * @return the number of scans parsed
+     */
+    public static long parseAll(Stream<String> normalized, ParseOptions options, boolean ordered, ParseResultSink sink) {
+        return parseAll(normalized, options, ordered, ForkJoinPool.commonPool(), sink);
+    }
+
+    public static long parseAll(Stream<String> normalized, ParseOptions options, boolean ordered, ForkJoinPool pool, ParseResultSink sink) {
+        Objects.requireNonNull(normalized, "normalized");
+        Objects.requireNonNull(pool, "pool");
+        return BatchParser.parseStream(normalized, options, ordered, pool, sink);
     }
 
     private static void enforceCharacterSet(ParsedElement element, ParseOptions options) {
@@ -160,12 +206,12 @@ public final class GS1Parser {
         for (int i = 0; i < value.length(); i++) {
             char c = value.charAt(i);
             if (!element.definition().characterSet().isAllowed(c, options.allowLowercase())) {
-                element.addWarning("Character '" + printable(c) + "' not allowed for AI (" + element.element().ai() + ")");
+                element.addDiagnostic(DiagnosticCode.CHARACTER_NOT_ALLOWED, c);
                 element.markInvalid();
             }
         }
         if (!options.allowLowercase() && containsLowercase(value)) {
-            element.addWarning("Lowercase characters detected");
+            element.addDiagnostic(DiagnosticCode.LOWERCASE_DETECTED);
         }
     }
 
@@ -178,160 +224,56 @@ public final class GS1Parser {
         return false;
     }
 
-    private static void applyValidation(ParsedElement element) {
-        String ai = element.element().ai();
-        String value = element.element().value();
-        switch (ai) {
-            case "01" -> validateGtin(element);
-            case "10" -> validateRange(element, 1, 20, "Batch/Lot");
-            case "21" -> validateRange(element, 1, 20, "Serial");
-            case "11", "12", "13", "15", "16", "17" -> validateDate(element);
-            default -> {
-                if (ai.startsWith("31") || ai.startsWith("32") || ai.startsWith("33") || ai.startsWith("34")) {
-                    element.addWarning("Quantity: " + scaledValue(value, ai.charAt(3)));
-                } else if (ai.startsWith("392") || ai.startsWith("393")) {
-                    validatePrice(element);
-                }
+    private static boolean allDigits(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(input.charAt(i))) {
+                return false;
             }
         }
+        return true;
     }
 
-    private static void validatePrice(ParsedElement element) {
-        String value = element.element().value();
-        if (!value.chars().allMatch(Character::isDigit)) {
-            element.addWarning("Price contains non-numeric characters");
-            element.markInvalid();
-            return;
-        }
-        int modifier = element.element().ai().charAt(3) - '0';
-        if (value.length() > modifier) {
-            String integral = value.substring(0, value.length() - modifier);
-            String fractional = modifier > 0 ? value.substring(value.length() - modifier) : "";
-            element.addWarning("Price preview: " + integral + (modifier > 0 ? ("." + fractional) : ""));
-        }
-    }
-
-    private static void validateRange(ParsedElement element, int min, int max, String label) {
-        int length = element.element().value().length();
-        if (length < min || length > max) {
-            element.addWarning(label + " length must be between " + min + " and " + max);
-            element.markInvalid();
-        }
-    }
-
-    private static void validateDate(ParsedElement element) {
-        String value = element.element().value();
-        if (!value.chars().allMatch(Character::isDigit)) {
-            element.addWarning("Date contains non-numeric characters");
-            element.markInvalid();
-            return;
-        }
-        int month = Integer.parseInt(value.substring(2, 4));
-        int day = Integer.parseInt(value.substring(4, 6));
-        if (month < 1 || month > 12) {
-            element.addWarning("Month out of range: " + month);
-            element.markInvalid();
-            return;
-        }
-        if (day < 0 || day > 31) {
-            element.addWarning("Day out of range: " + day);
-            element.markInvalid();
-            return;
-        }
-        try {
-            if (day == 0) {
-                YearMonth yearMonth = YearMonth.parse(value.substring(0, 4), DateTimeFormatter.ofPattern("yyMM"));
-                LocalDate lastDay = yearMonth.atEndOfMonth();
-                element.addWarning("Date: " + lastDay);
-            } else {
-                LocalDate date = LocalDate.parse(value, DATE_FORMAT);
-                element.addWarning("Date: " + date);
-            }
-        } catch (DateTimeParseException ex) {
-            element.addWarning("Invalid date: " + value);
-            element.markInvalid();
-        }
-    }
-
-    private static void validateGtin(ParsedElement element) {
-        String value = element.element().value();
-        if (!value.chars().allMatch(Character::isDigit)) {
-            element.addWarning("GTIN must be numeric");
-            element.markInvalid();
-            return;
-        }
-        int expectedCheck = Character.digit(value.charAt(value.length() - 1), 10);
-        int calculated = calculateMod10(value.substring(0, value.length() - 1));
-        if (expectedCheck == calculated) {
-            element.addWarning("GTIN check digit OK");
-        } else {
-            element.addWarning("GTIN check digit mismatch: expected " + expectedCheck + " calculated " + calculated);
-            element.markInvalid();
-        }
-    }
-
-    private static int calculateMod10(String body) {
-        int sum = 0;
-        boolean even = true;
-        for (int i = body.length() - 1; i >= 0; i--) {
-            int digit = body.charAt(i) - '0';
-            sum += even ? digit * 3 : digit;
-            even = !even;
-        }
-        int mod = sum % 10;
-        return (10 - mod) % 10;
-    }
-
-    private static MissingAiInfo detectEmbeddedAi(String value) {
-        MissingAiInfo fallback = null;
-        for (int i = 1; i < value.length(); i++) {
-            if (!Character.isDigit(value.charAt(i))) {
+    /**
+     * Looks for an AI that a scanner ran into the trailing lot or serial by dropping
+     * its GS. Only {@link #EMBEDDABLE} AIs count, and a fixed-length one only with a
+     * plausible value: with the full table nearly any digit pair inside a numeric
+     * serial names some AI.
+     */
+    private static int detectEmbeddedAi(CharSequence input, int start, int end) {
+        int fallback = -1;
+        for (int i = start + 1; i < end; i++) {
+            if (!Character.isDigit(input.charAt(i))) {
                 continue;
             }
-            AiMatch match = AiDictionary.match(value, i);
-            if (match != null) {
-                AiDefinition definition = match.definition();
-                int valueIndex = i + match.length();
-                int remaining = value.length() - valueIndex;
+            AiDefinition definition = AiDictionary.match(input, i, end);
+            if (definition != null && EMBEDDABLE.contains(definition.code())) {
+                int valueIndex = i + definition.code().length();
+                int remaining = end - valueIndex;
                 if (remaining < definition.minLength()) {
                     continue;
                 }
-                if (valueIndex >= value.length()) {
+                if (valueIndex >= end) {
                     continue;
                 }
-                char nextChar = value.charAt(valueIndex);
+                char nextChar = input.charAt(valueIndex);
                 if (!definition.characterSet().isAllowed(nextChar, false)) {
                     continue;
                 }
-                MissingAiInfo candidate = new MissingAiInfo(i, match);
-                if ("17".equals(match.ai()) || "21".equals(match.ai())) {
-                    return candidate;
+                if (definition.fixedLength()
+                        && definition.validator().plausibility(input, valueIndex, valueIndex + definition.maxLength()) < 0) {
+                    continue;
                 }
-                if (fallback == null) {
-                    fallback = candidate;
+                if ("17".equals(definition.code()) || "21".equals(definition.code())) {
+                    return i;
+                }
+                if (fallback < 0) {
+                    fallback = i;
                 }
             }
         }
         return fallback;
     }
 
-    private static String scaledValue(String raw, char modifier) {
-        if (!raw.chars().allMatch(Character::isDigit)) {
-            return raw;
-        }
-        int decimals = modifier - '0';
-        if (decimals <= 0) {
-            return raw;
-        }
-        if (raw.length() <= decimals) {
-            String fraction = "0".repeat(decimals - raw.length()) + raw;
-            return "0." + fraction;
-        }
-        String integral = raw.substring(0, raw.length() - decimals);
-        String fraction = raw.substring(raw.length() - decimals);
-        return integral + "." + fraction;
-    }
-
     public static String composeGs1(List<GS1Element> elements) {
         StringBuilder builder = new StringBuilder();
         for (int i = 0; i < elements.size(); i++) {
@@ -339,7 +281,7 @@ public final class GS1Parser {
             builder.append(element.ai());
             builder.append(element.value());
             AiDefinition definition = AiDictionary.lookup(element.ai());
-            if (definition != null && !definition.fixedLength() && i < elements.size() - 1) {
+            if (definition != null && definition.requiresFnc1() && i < elements.size() - 1) {
                 builder.append(GS);
             }
         }
@@ -377,98 +319,10 @@ public final class GS1Parser {
         return AiDictionary.lookup(ai);
     }
 
-    private static String printable(char c) {
+    static String printable(char c) {
         if (Character.isISOControl(c)) {
             return String.format("0x%02X", (int) c);
         }
         return String.valueOf(c);
     }
-
-    private record MissingAiInfo(int position, AiMatch match) {
-    }
-
-    private record AiMatch(String ai, AiDefinition definition, int length) {
-    }
-
-    private static final class AiDictionary {
-        private static final Map<String, AiDefinition> DEFINITIONS = new HashMap<>();
-
-        static {
-            register(new AiDefinition("00", "SSCC", 18, CharacterSet.NUMERIC));
-            register(new AiDefinition("01", "GTIN", 14, CharacterSet.NUMERIC));
-            register(new AiDefinition("02", "Content GTIN", 14, CharacterSet.NUMERIC));
-            register(new AiDefinition("10", "Batch/Lot", 1, 20, CharacterSet.GS1_ALPHANUMERIC));
-            register(new AiDefinition("11", "Production date", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("12", "Due date", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("13", "Packaging date", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("15", "Best before", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("16", "Sell by", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("17", "Expiration date", 6, CharacterSet.NUMERIC));
-            register(new AiDefinition("21", "Serial", 1, 20, CharacterSet.GS1_ALPHANUMERIC));
-            register(new AiDefinition("20", "Variant", 2, CharacterSet.NUMERIC));
-            register(new AiDefinition("30", "Count", 1, 8, CharacterSet.NUMERIC));
-            register(new AiDefinition("37", "Units contained", 1, 8, CharacterSet.NUMERIC));
-            registerVariableRange(240, 243, "Additional ID", 1, 30, CharacterSet.GS1_ALPHANUMERIC);
-            register(new AiDefinition("242", "Made-to-order variation", 1, 6, CharacterSet.NUMERIC));
-            registerVariableRange(250, 254, "Reference", 1, 30, CharacterSet.GS1_ALPHANUMERIC);
-            registerQuantityFamily("310", "Net weight (kg)");
-            registerQuantityFamily("320", "Net weight (lb)");
-            registerQuantityFamily("330", "Length (m)");
-            registerQuantityFamily("340", "Length (in)");
-            registerPriceFamily("392", "Price");
-            registerPriceFamily("393", "Price with ISO currency");
-            registerRange(400, 426, "Customer data", 1, 30, CharacterSet.GS1_ALPHANUMERIC);
-            register(new AiDefinition("8001", "Roll products", 14, CharacterSet.NUMERIC));
-            register(new AiDefinition("8002", "Serial within batch", 1, 20, CharacterSet.GS1_ALPHANUMERIC));
-            register(new AiDefinition("8003", "GRAI", 14, CharacterSet.NUMERIC));
-            register(new AiDefinition("8004", "GIAI", 1, 30, CharacterSet.GS1_ALPHANUMERIC));
-        }
-
-        private static void register(AiDefinition definition) {
-            DEFINITIONS.put(definition.code(), definition);
-        }
-
-        private static void registerVariableRange(int start, int end, String description, int min, int max, CharacterSet set) {
-            for (int code = start; code <= end; code++) {
-                register(new AiDefinition(String.valueOf(code), description + " (" + code + ")", min, max, set));
-            }
-        }
-
-        private static void registerRange(int start, int end, String description, int min, int max, CharacterSet set) {
-            for (int code = start; code <= end; code++) {
-                register(new AiDefinition(String.valueOf(code), description + " (" + code + ")", min, max, set));
-            }
-        }
-
-        private static void registerQuantityFamily(String prefix, String description) {
-            for (int i = 0; i <= 9; i++) {
-                String code = prefix + i;
-                register(new AiDefinition(code, description + " (10^-" + i + ")", 6, CharacterSet.NUMERIC));
-            }
-        }
-
-        private static void registerPriceFamily(String prefix, String description) {
-            for (int i = 0; i <= 9; i++) {
-                String code = prefix + i;
-                register(new AiDefinition(code, description + " (10^-" + i + ")", 1, 15, CharacterSet.NUMERIC));
-            }
-        }
-
-        private static AiDefinition lookup(String ai) {
-            return DEFINITIONS.get(ai);
-        }
-
-        private static AiMatch match(String value, int index) {
-            int remaining = value.length() - index;
-            int max = Math.min(4, remaining);
-            for (int len = max; len >= 2; len--) {
-                String candidate = value.substring(index, index + len);
-                AiDefinition definition = DEFINITIONS.get(candidate);
-                if (definition != null) {
-                    return new AiMatch(candidate, definition, len);
-                }
-            }
-            return null;
-        }
-    }
 }
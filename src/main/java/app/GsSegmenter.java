@@ -0,0 +1,192 @@
+package app;
+
+/**
+ * Finds where a variable-length value most likely ends when the scanner dropped the
+ * GS that should follow it. Every way of reading the rest of the input as complete
+ * AI elements is scored by dynamic programming over end positions, so each suffix is
+ * scored once. Well-formed values, check digits and dates that hold up, and the usual
+ * lot/serial ordering raise a score. Each extra element costs a fixed amount, so a
+ * split is only taken when the evidence outweighs it.
+ *
+ * <p>The search for one parse is bounded by {@link ParseOptions#segmentationSteps()}
+ * and {@link ParseOptions#segmentationTimeout()}. When either budget runs out, the
+ * best split among the suffixes scored so far is used, so a long or pathological
+ * input costs at most the budget.
+ */
+final class GsSegmenter {
+    static final int NO_SPLIT = -1;
+
+    private static final int INFEASIBLE = Integer.MIN_VALUE / 4;
+    private static final int WELL_FORMED = 2;
+    private static final int SPLIT_COST = 3;
+    private static final int CHARSET_PENALTY = 10;
+    private static final int LENGTH_PENALTY = 8;
+    private static final int LOT_SERIAL_BONUS = 2;
+    private static final int CLOCK_INTERVAL = 256;
+    private static final CharacterSet[] SETS = CharacterSet.values();
+
+    private final CharSequence input;
+    private final boolean allowLowercase;
+    private final int[][] violations;
+    private final int[] best;
+    private final AiDefinition[] head;
+    private final long deadline;
+    private int stepsLeft;
+    private int clock;
+    private boolean exhausted;
+    private int scoredTo = -1;
+    private int scoredFrom;
+
+    /**
+     * Creates a segmenter for one parse of {@code input}. The step and time budget is
+     * shared by every {@link #split} call on it, and suffix scores are kept between
+     * calls that end at the same position, so splitting one run of elements after
+     * another costs no more than scoring it once.
+     */
+    GsSegmenter(CharSequence input, ParseOptions options) {
+        this.input = input;
+        this.allowLowercase = options.allowLowercase();
+        this.violations = new int[SETS.length][];
+        this.best = new int[input.length() + 1];
+        this.head = new AiDefinition[input.length() + 1];
+        this.deadline = System.nanoTime() + options.segmentationTimeoutNanos();
+        this.stepsLeft = options.segmentationSteps();
+    }
+
+    /**
+     * Returns the position where the value of {@code definition} starting at
+     * {@code valueStart} should end so that the rest of the input up to {@code end}
+     * reads as further elements, or {@link #NO_SPLIT} when keeping the whole range as
+     * one value scores at least as well.
+     */
+    int split(AiDefinition definition, int valueStart, int end) {
+        if (end - valueStart < 2 || definition.fixedLength()) {
+            return NO_SPLIT;
+        }
+        int lowest = valueStart + Math.max(1, definition.minLength());
+        int highest = Math.min(valueStart + definition.maxLength(), end - 1);
+        if (lowest > highest) {
+            return NO_SPLIT;
+        }
+        scoreSuffixes(lowest, end);
+
+        int bestScore = elementScore(definition, valueStart, end);
+        int bestSplit = NO_SPLIT;
+        for (int position = Math.max(lowest, scoredFrom); position <= highest; position++) {
+            int tail = best[position];
+            if (tail <= INFEASIBLE) {
+                continue;
+            }
+            int score = elementScore(definition, valueStart, position) + link(definition, position, tail);
+            if (score > bestScore) {
+                bestScore = score;
+                bestSplit = position;
+            }
+        }
+        return bestSplit;
+    }
+
+    /**
+     * Scores every suffix of {@code [lowest, end)} not already scored, from the end
+     * backwards, until the budget runs out.
+     */
+    private void scoreSuffixes(int lowest, int end) {
+        if (scoredTo != end) {
+            scoredTo = end;
+            scoredFrom = end;
+            best[end] = 0;
+        }
+        while (scoredFrom > lowest && !exhausted) {
+            int score = scoreSuffix(scoredFrom - 1);
+            if (exhausted) {
+                return;
+            }
+            best[--scoredFrom] = score;
+        }
+    }
+
+    private int scoreSuffix(int position) {
+        AiDefinition definition = AiDictionary.match(input, position, scoredTo);
+        head[position] = definition;
+        if (definition == null) {
+            return INFEASIBLE;
+        }
+        int valueStart = position + definition.code().length();
+        if (definition.fixedLength()) {
+            int valueEnd = valueStart + definition.maxLength();
+            if (valueEnd > scoredTo || !step()) {
+                return INFEASIBLE;
+            }
+            int tail = best[valueEnd];
+            return tail <= INFEASIBLE ? INFEASIBLE : elementScore(definition, valueStart, valueEnd) + link(definition, valueEnd, tail);
+        }
+        int result = INFEASIBLE;
+        int last = Math.min(valueStart + definition.maxLength(), scoredTo);
+        for (int valueEnd = valueStart + Math.max(1, definition.minLength()); valueEnd <= last; valueEnd++) {
+            if (!step()) {
+                break;
+            }
+            int tail = best[valueEnd];
+            if (tail <= INFEASIBLE) {
+                continue;
+            }
+            result = Math.max(result, elementScore(definition, valueStart, valueEnd) + link(definition, valueEnd, tail));
+        }
+        return result;
+    }
+
+    private int link(AiDefinition definition, int next, int tail) {
+        if (next == scoredTo) {
+            return tail;
+        }
+        return tail - SPLIT_COST + (isLotSerialPair(definition, head[next]) ? LOT_SERIAL_BONUS : 0);
+    }
+
+    private int elementScore(AiDefinition definition, int valueStart, int valueEnd) {
+        int length = valueEnd - valueStart;
+        if (length < definition.minLength() || length > definition.maxLength()) {
+            return -LENGTH_PENALTY;
+        }
+        int[] counts = violations(definition.characterSet());
+        int invalid = counts[valueEnd] - counts[valueStart];
+        int score = invalid == 0 ? WELL_FORMED : -CHARSET_PENALTY * invalid;
+        return score + definition.validator().plausibility(input, valueStart, valueEnd);
+    }
+
+    private int[] violations(CharacterSet set) {
+        int[] counts = violations[set.ordinal()];
+        if (counts == null) {
+            counts = new int[input.length() + 1];
+            for (int i = 0; i < input.length(); i++) {
+                counts[i + 1] = counts[i] + (set.isAllowed(input.charAt(i), allowLowercase) ? 0 : 1);
+            }
+            violations[set.ordinal()] = counts;
+        }
+        return counts;
+    }
+
+    private boolean step() {
+        if (stepsLeft <= 0) {
+            exhausted = true;
+            return false;
+        }
+        stepsLeft--;
+        if (++clock == CLOCK_INTERVAL) {
+            clock = 0;
+            if (System.nanoTime() - deadline > 0) {
+                exhausted = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLotSerialPair(AiDefinition first, AiDefinition second) {
+        if (second == null) {
+            return false;
+        }
+        String a = first.code();
+        String b = second.code();
+        return (a.equals("10") && b.equals("21")) || (a.equals("21") && b.equals("10"));
+    }
+}
@@ -0,0 +1,9 @@
+package app;
+
+/**
+ * How far an import of {@code file} got: every record up to and including the one
+ * starting at {@code recordOffset} has been stored, {@code records} in all. The
+ * file's size and modification time identify the version the offset belongs to.
+ */
+public record ImportCheckpoint(String file, long size, long modified, long recordOffset, long records) {
+}
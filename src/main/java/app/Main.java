@@ -3,6 +3,8 @@ package app;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 public class Main {
@@ -13,15 +15,35 @@ public class Main {
             } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException ignored) {
             }
 
-            Database database = new Database("scans.db");
+            UserSettings settings = UserSettings.load();
+            Database database = new Database("scans.db",
+                    DatabaseOptions.builder().retention(settings.toRetentionPolicy()).build());
             try {
                 database.initialize();
             } catch (SQLException ex) {
+                database.close();
                 javax.swing.JOptionPane.showMessageDialog(null, ex.getMessage(), "Database error", javax.swing.JOptionPane.ERROR_MESSAGE);
                 return;
             }
+            ScanWriter scanWriter;
+            try {
+                scanWriter = new ScanWriter(database, WriteBehindOptions.builder().spillTo(Path.of("scans.spill")).build());
+            } catch (IOException ex) {
+                database.close();
+                javax.swing.JOptionPane.showMessageDialog(null, ex.getMessage(), "Database error", javax.swing.JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            database.startRetention(ex -> SwingUtilities.invokeLater(() ->
+                    javax.swing.JOptionPane.showMessageDialog(null, ex.getMessage(), "Retention error", javax.swing.JOptionPane.ERROR_MESSAGE)));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                scanWriter.close();
+                database.close();
+            }, "DatabaseShutdown"));
+
+            SerialIndex serialIndex = SerialIndex.start(database, ex -> SwingUtilities.invokeLater(() ->
+                    javax.swing.JOptionPane.showMessageDialog(null, ex.getMessage(), "Serial index error", javax.swing.JOptionPane.ERROR_MESSAGE)));
 
-            MainWindow window = new MainWindow(database);
+            MainWindow window = new MainWindow(database, scanWriter, serialIndex, settings);
             window.loadScans();
             window.setLocationRelativeTo(null);
             window.setVisible(true);
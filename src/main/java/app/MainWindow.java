@@ -19,18 +19,21 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
+import javax.swing.JViewport;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.DefaultTableModel;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
@@ -39,29 +42,59 @@ import java.awt.Font;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
+import java.awt.Point;
 import java.awt.Toolkit;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.awt.print.PrinterException;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class MainWindow extends JFrame {
-    private static final int MAX_DISPLAY_ROWS = 500;
+    private static final int PARSE_CACHE_SIZE = 2048;
+    private static final int SERIAL_BUFFER_SIZE = 512;
+    private static final int SEARCH_LIMIT = 1000;
 
     private final Database database;
+    private final ScanWriter scanWriter;
+    private final ScanIngestor scanIngestor;
     private final UserSettings settings;
-    private final DefaultTableModel tableModel;
+    private final ParseCache parseCache = new ParseCache(PARSE_CACHE_SIZE);
+    private final ScanHistoryModel historyModel;
+    private final ScanResultsModel resultsModel = new ScanResultsModel();
+    private final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ScanSearch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService detailLoader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ScanDetails");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final JTextField searchField;
     private final JTable table;
     private final JTextArea rawArea;
     private final JTextArea normalizedArea;
@@ -88,33 +121,31 @@ public class MainWindow extends JFrame {
     private SerialPort activeSerialPort;
     private Thread serialThread;
     private volatile boolean serialRunning;
+    private int searches;
+    private int detailRequests;
+    /** Id of the scan being read for the details pane, or -1. */
+    private long selectingId = -1;
 
-    private List<Scan> currentScans = new ArrayList<>();
     private Scan selectedScan;
     private ParseResult selectedParseResult;
     private List<GS1Element> selectedElements = new ArrayList<>();
     private String selectedNormalized;
 
-    private String lastHidNormalized;
-    private long lastHidTimestamp;
-    private String lastSerialNormalized;
-    private long lastSerialTimestamp;
-
-    public MainWindow(Database database) {
+    public MainWindow(Database database, ScanWriter scanWriter, SerialIndex serialIndex, UserSettings settings) {
         this.database = database;
-        this.settings = UserSettings.load();
+        this.scanWriter = scanWriter;
+        this.settings = settings;
+        settings.addChangeListener(parseCache::invalidate);
+        settings.addChangeListener(() -> database.setRetention(settings.toRetentionPolicy()));
+        this.scanIngestor = new ScanIngestor(settings::snapshot, scanWriter, serialIndex, parseCache, new IngestFeedback());
 
         setTitle("GS1Desk");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setMinimumSize(new Dimension(1200, 700));
 
-        tableModel = new DefaultTableModel(new Object[]{"ID", "Created", "Source", "Status", "Raw"}, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        table = new JTable(tableModel);
+        historyModel = new ScanHistoryModel(database,
+                ex -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Database error", JOptionPane.ERROR_MESSAGE));
+        table = new JTable(historyModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getSelectionModel().addListSelectionListener(new TableSelectionHandler());
 
@@ -167,6 +198,10 @@ public class MainWindow extends JFrame {
         copyHriButton.addActionListener(e -> copyHri());
 
         hidInputField = new JTextField();
+        searchField = new JTextField();
+        searchField.setToolTipText("Scan or type a GS1 string to match its GTIN, lot, serial and expiry, a single value to match any of them, "
+                + "or a day (2026-03-01) or month (2026-03) to list the scans stored then");
+        searchField.addActionListener(e -> search());
         autoSaveCheckBox = new JCheckBox("Auto-save on Enter", settings.isAutoSaveOnEnter());
         autoSaveCheckBox.addActionListener(e -> {
             settings.setAutoSaveOnEnter(autoSaveCheckBox.isSelected());
@@ -203,6 +238,7 @@ public class MainWindow extends JFrame {
             @Override
             public void windowClosing(java.awt.event.WindowEvent e) {
                 disconnectSerial();
+                scanIngestor.close();
             }
         });
 
@@ -219,14 +255,20 @@ public class MainWindow extends JFrame {
         exportCsv.addActionListener(e -> exportCsv());
         JMenuItem exportJson = new JMenuItem("Export JSON...");
         exportJson.addActionListener(e -> exportJson());
+        JMenuItem exportArchive = new JMenuItem("Export archive...");
+        exportArchive.addActionListener(e -> exportArchive());
         JMenuItem importNormalized = new JMenuItem("Import normalized...");
         importNormalized.addActionListener(e -> importNormalized());
+        JMenuItem importArchive = new JMenuItem("Import archive...");
+        importArchive.addActionListener(e -> importArchive());
         JMenuItem exitItem = new JMenuItem("Exit");
         exitItem.addActionListener(e -> dispatchEvent(new java.awt.event.WindowEvent(this, java.awt.event.WindowEvent.WINDOW_CLOSING)));
 
         fileMenu.add(exportCsv);
         fileMenu.add(exportJson);
+        fileMenu.add(exportArchive);
         fileMenu.add(importNormalized);
+        fileMenu.add(importArchive);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
 
@@ -401,7 +443,7 @@ public class MainWindow extends JFrame {
                 return;
             }
             try {
-                ParseResult result = GS1Parser.parse(ai + value, settings.toParseOptions());
+                ParseResult result = GS1Parser.parse(ai + value, settings.snapshot().parseOptions());
                 if (!result.success() || result.elements().isEmpty()) {
                     throw new IllegalArgumentException("Invalid AI/value combination");
                 }
@@ -433,13 +475,60 @@ public class MainWindow extends JFrame {
         return panel;
     }
 
+    /**
+     * Keeps the rows in view where they are when {@code inserted} rows are added at the
+     * top, unless the table is scrolled to the top to follow new scans.
+     */
+    private void keepScrollPosition(JScrollPane scroll, int inserted) {
+        JViewport viewport = scroll.getViewport();
+        Point position = viewport.getViewPosition();
+        if (position.y == 0) {
+            return;
+        }
+        int shift = inserted * table.getRowHeight();
+        SwingUtilities.invokeLater(() -> {
+            scroll.validate();
+            viewport.setViewPosition(new Point(position.x, position.y + shift));
+        });
+    }
+
     private JPanel buildRightPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
+        JButton searchButton = new JButton("Search");
+        searchButton.addActionListener(e -> search());
+        JButton clearSearchButton = new JButton("Clear");
+        clearSearchButton.addActionListener(e -> clearSearch());
+        JPanel searchButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        searchButtons.add(searchButton);
+        searchButtons.add(clearSearchButton);
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 5));
+        searchPanel.add(new JLabel("Search"), BorderLayout.WEST);
+        searchPanel.add(searchField, BorderLayout.CENTER);
+        searchPanel.add(searchButtons, BorderLayout.EAST);
+
         JScrollPane tableScroll = new JScrollPane(table);
         tableScroll.setPreferredSize(new Dimension(600, 360));
-        panel.add(tableScroll, BorderLayout.CENTER);
+        JPanel historyPanel = new JPanel(new BorderLayout(5, 5));
+        historyPanel.add(searchPanel, BorderLayout.NORTH);
+        historyPanel.add(tableScroll, BorderLayout.CENTER);
+        panel.add(historyPanel, BorderLayout.CENTER);
+        historyModel.addTableModelListener(e -> {
+            if (table.getModel() != historyModel) {
+                return;
+            }
+            if (e.getType() == TableModelEvent.INSERT && e.getFirstRow() == 0) {
+                keepScrollPosition(tableScroll, e.getLastRow() + 1);
+            } else if (e.getType() == TableModelEvent.UPDATE && selectedScan == null) {
+                int selected = table.getSelectedRow();
+                if (selected >= 0 && table.convertRowIndexToModel(selected) >= e.getFirstRow()
+                        && table.convertRowIndexToModel(selected) <= e.getLastRow()) {
+                    // The selected row's page has arrived.
+                    showSelected();
+                }
+            }
+        });
 
         JPanel detailPanel = new JPanel(new BorderLayout(5, 5));
         detailPanel.setBorder(BorderFactory.createTitledBorder("Details"));
@@ -493,8 +582,7 @@ public class MainWindow extends JFrame {
 
         panel.add(detailPanel, BorderLayout.SOUTH);
 
-        table.getColumnModel().getColumn(0).setPreferredWidth(60);
-        table.getColumnModel().getColumn(3).setPreferredWidth(80);
+        sizeColumns();
 
         return panel;
     }
@@ -585,7 +673,8 @@ public class MainWindow extends JFrame {
     }
 
     private void readSerialLoop(String portName, SerialPort port) {
-        StringBuilder builder = new StringBuilder();
+        byte[] buffer = new byte[SERIAL_BUFFER_SIZE];
+        int length = 0;
         long lastByteTime = System.currentTimeMillis();
         try (var stream = port.getInputStream()) {
             while (serialRunning) {
@@ -593,48 +682,53 @@ public class MainWindow extends JFrame {
                 if (value == -1) {
                     break;
                 }
-                char c = (char) value;
                 long now = System.currentTimeMillis();
-                if (c == '\r' || c == '\n') {
-                    if (builder.length() > 0) {
-                        String data = builder.toString();
-                        builder.setLength(0);
-                        handleSerialLine(data, portName);
-                    }
-                } else if (c == 0x03 || c == 0x00) {
-                    if (builder.length() > 0) {
-                        String data = builder.toString();
-                        builder.setLength(0);
-                        handleSerialLine(data, portName);
+                if (value == '\r' || value == '\n' || value == 0x03 || value == 0x00) {
+                    if (length > 0) {
+                        handleSerialLine(buffer, length, portName);
+                        length = 0;
                     }
                 } else {
-                    builder.append(c);
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    buffer[length++] = (byte) value;
                 }
-                if (builder.length() > 0 && now - lastByteTime >= settings.getSerialIdleTimeoutMs()) {
-                    String data = builder.toString();
-                    builder.setLength(0);
-                    handleSerialLine(data, portName);
+                if (length > 0 && now - lastByteTime >= settings.snapshot().serialIdleTimeoutMs()) {
+                    handleSerialLine(buffer, length, portName);
+                    length = 0;
                 }
                 lastByteTime = now;
             }
-            if (builder.length() > 0) {
-                String data = builder.toString();
-                builder.setLength(0);
-                handleSerialLine(data, portName);
+            if (length > 0) {
+                handleSerialLine(buffer, length, portName);
             }
         } catch (IOException ex) {
             SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, ex.getMessage(), "Serial error", JOptionPane.ERROR_MESSAGE));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         } finally {
             SwingUtilities.invokeLater(this::disconnectSerial);
         }
     }
 
-    private void handleSerialLine(String line, String portName) {
-        String trimmed = line == null ? "" : line.trim();
-        if (trimmed.isEmpty()) {
+    /**
+     * Trims a serial line and hands it to the ingestor, waiting if its queue is full so
+     * that no scan from the reader is lost.
+     */
+    private void handleSerialLine(byte[] line, int length, String portName) throws InterruptedException {
+        int start = 0;
+        int end = length;
+        while (start < end && (line[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (line[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (start == end) {
             return;
         }
-        SwingUtilities.invokeLater(() -> storeScan(trimmed, ScanSource.SERIAL, portName));
+        scanIngestor.submit(line, start, end - start, new ScanIngestor.Submission(ScanSource.SERIAL, portName, false));
     }
 
     private void saveHidInput() {
@@ -642,98 +736,305 @@ public class MainWindow extends JFrame {
         if (text == null || text.isEmpty()) {
             return;
         }
-        storeScan(text, ScanSource.HID, null);
+        if (!scanIngestor.offer(text, new ScanIngestor.Submission(ScanSource.HID, null, false))) {
+            beepError();
+            setStatus("Scan queue is full; scan not stored");
+            return;
+        }
         hidInputField.setText("");
         hidInputField.requestFocusInWindow();
     }
 
-    private void storeScan(String raw, ScanSource source, String portName) {
-        storeScan(raw, source, portName, false);
-    }
-
-    private void storeScan(String raw, ScanSource source, String portName, boolean silent) {
-        if (raw == null || raw.isEmpty()) {
-            return;
-        }
-        NormalizationResult normalization = Normalizer.normalizeRaw(raw, settings.toNormalizationOptions());
-        String normalized = normalization.normalized();
-        if (normalized.isEmpty()) {
-            if (!silent) {
-                beepError();
-                JOptionPane.showMessageDialog(this, "Normalized result is empty after stripping control characters.", "Normalization", JOptionPane.WARNING_MESSAGE);
+    /**
+     * Reports ingestion outcomes on the EDT. Stored scans are always added to the
+     * history; beeps, dialogs and status only for submissions that are not silent.
+     */
+    private final class IngestFeedback implements ScanIngestor.Listener {
+        @Override
+        public void rejected(ScanIngestor.Submission submission, ScanIngestor.Rejection rejection, SettingsSnapshot snapshot) {
+            if (submission.silent()) {
+                return;
             }
-            return;
-        }
-        if (normalized.length() > settings.getMaxScanLength()) {
-            if (!silent) {
+            SwingUtilities.invokeLater(() -> {
                 beepError();
-                JOptionPane.showMessageDialog(this, "Normalized value exceeds maximum length of " + settings.getMaxScanLength() + ".", "Normalization", JOptionPane.ERROR_MESSAGE);
-            }
-            return;
+                switch (rejection) {
+                    case EMPTY -> JOptionPane.showMessageDialog(MainWindow.this,
+                            "Normalized result is empty after stripping control characters.", "Normalization", JOptionPane.WARNING_MESSAGE);
+                    case TOO_LONG -> JOptionPane.showMessageDialog(MainWindow.this,
+                            "Normalized value exceeds maximum length of " + snapshot.maxScanLength() + ".", "Normalization", JOptionPane.ERROR_MESSAGE);
+                    case DUPLICATE -> setStatus("Duplicate " + submission.source().display() + " scan suppressed");
+                }
+            });
         }
 
-        long now = System.currentTimeMillis();
-        if (source == ScanSource.HID) {
-            if (normalized.equals(lastHidNormalized) && now - lastHidTimestamp < settings.getDuplicateSuppressionMs()) {
-                if (!silent) {
-                    beepError();
-                    setStatus("Duplicate HID scan suppressed");
-                }
+        @Override
+        public void serialReused(ScanIngestor.Submission submission, PendingScan scan, SerialIndex.Key key) {
+            if (submission.silent()) {
                 return;
             }
-            lastHidNormalized = normalized;
-            lastHidTimestamp = now;
-        } else if (source == ScanSource.SERIAL) {
-            if (normalized.equals(lastSerialNormalized) && now - lastSerialTimestamp < settings.getDuplicateSuppressionMs()) {
-                if (!silent) {
-                    beepError();
-                    setStatus("Duplicate serial scan suppressed");
-                }
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(MainWindow.this,
+                    key.describe() + " has been scanned before. The scan is stored, but the serial may be reused or counterfeit.",
+                    "Duplicate serial", JOptionPane.WARNING_MESSAGE));
+        }
+
+        @Override
+        public void serialCheckFailed(ScanIngestor.Submission submission, PendingScan scan, SQLException failure) {
+            if (submission.silent()) {
                 return;
             }
-            lastSerialNormalized = normalized;
-            lastSerialTimestamp = now;
+            SwingUtilities.invokeLater(() -> setStatus("Reuse check unavailable: " + failure.getMessage()));
         }
 
-        ParseResult parseResult = GS1Parser.parse(normalized, settings.toParseOptions());
-        boolean parseOk = parseResult.success();
-        String error = parseOk ? null : (parseResult.errors().isEmpty() ? "Unknown parse error" : parseResult.errors().get(0).message());
-        try {
-            database.insertScan(raw, normalized, source.display(), portName, normalization.symbologyId(), parseOk, error, parseResult.elements());
-            loadScans();
-            if (!silent) {
-                if (parseOk) {
-                    beepSuccess();
-                    setStatus("Stored scan from " + source.display());
+        @Override
+        public void accepted(ScanIngestor.Submission submission, PendingScan scan) {
+            if (!submission.silent()) {
+                SwingUtilities.invokeLater(scan.parseOk() ? MainWindow.this::beepSuccess : MainWindow.this::beepError);
+            }
+        }
+
+        @Override
+        public void stored(ScanIngestor.Submission submission, PendingScan scan, long id, long normalizeNanos) {
+            SwingUtilities.invokeLater(() -> {
+                if (id >= 0) {
+                    historyModel.append(scan.toScan(id));
+                }
+                if (submission.silent()) {
+                    return;
+                }
+                String timing = " (normalized in " + TimeUnit.NANOSECONDS.toMicros(normalizeNanos) + " \u00B5s)";
+                if (scan.parseOk()) {
+                    setStatus("Stored scan from " + scan.source() + timing);
                 } else {
-                    beepError();
-                    setStatus("Stored scan with errors from " + source.display());
+                    setStatus("Stored scan with errors from " + scan.source() + timing);
                 }
+            });
+        }
+
+        @Override
+        public void failed(ScanIngestor.Submission submission, PendingScan scan, Throwable failure) {
+            if (submission.silent()) {
+                return;
             }
-        } catch (SQLException ex) {
-            if (!silent) {
+            SwingUtilities.invokeLater(() -> {
                 beepError();
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Database error", JOptionPane.ERROR_MESSAGE);
+                JOptionPane.showMessageDialog(MainWindow.this, failure.getMessage(), "Database error", JOptionPane.ERROR_MESSAGE);
+            });
+        }
+    }
+
+    /**
+     * Looks up the search text on the search thread and shows the matches in place of
+     * the history.
+     */
+    private void search() {
+        String text = searchField.getText().trim();
+        if (text.isEmpty()) {
+            clearSearch();
+            return;
+        }
+        int request = ++searches;
+        SettingsSnapshot snapshot = settings.snapshot();
+        setStatus("Searching...");
+        searcher.execute(() -> {
+            try {
+                long start = System.nanoTime();
+                List<Scan> found = findScans(snapshot, text);
+                long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                SwingUtilities.invokeLater(() -> {
+                    if (request == searches) {
+                        showResults(found, millis);
+                    }
+                });
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    if (request == searches) {
+                        setStatus("Search failed");
+                        JOptionPane.showMessageDialog(this, ex.getMessage(), "Search", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Runs on the search thread. A date or month lists the scans created in it.
+     * Other text is searched by its elements when it reads as a GS1 payload: it
+     * carries a key AI, a GS separator or a symbology prefix. Text that happens to
+     * parse, such as "4012345" read as (401)2345, is also looked up as a plain value
+     * and both results are shown.
+     */
+    private List<Scan> findScans(SettingsSnapshot snapshot, String text) throws SQLException {
+        Period period = Period.of(text);
+        if (period != null) {
+            return database.listScanHeaders(period.from(), period.to(), SEARCH_LIMIT);
+        }
+        ScanView view = snapshot.pipeline().process(text);
+        boolean structured = view.toNormalizationResult().symbologyId() != null
+                || view.normalizedString().indexOf('\u001D') >= 0;
+        ParseResult parsed = view.toParseResult();
+        if (!parsed.success() || parsed.elements().isEmpty()) {
+            return database.searchScans(text, SEARCH_LIMIT);
+        }
+        ScanSearch search = ScanSearch.of(parsed.elements());
+        if (!search.isEmpty()) {
+            return database.searchScans(search, SEARCH_LIMIT);
+        }
+        GS1Element first = parsed.elements().get(0).element();
+        List<Scan> byElement = database.searchScansByElement(first.ai(), first.value(), SEARCH_LIMIT);
+        if (structured) {
+            return byElement;
+        }
+        return newestFirst(byElement, database.searchScans(text, SEARCH_LIMIT));
+    }
+
+    /**
+     * A local day or month typed into the search field, from its start until before
+     * the next.
+     */
+    private record Period(Instant from, Instant to) {
+        /**
+         * The day or month {@code text} names in ISO form, or {@code null} if it names
+         * neither.
+         */
+        static Period of(String text) {
+            ZoneId zone = ZoneId.systemDefault();
+            try {
+                ZonedDateTime start = LocalDate.parse(text).atStartOfDay(zone);
+                return new Period(start.toInstant(), start.plusDays(1).toInstant());
+            } catch (DateTimeParseException ignored) {
+            }
+            try {
+                ZonedDateTime start = YearMonth.parse(text).atDay(1).atStartOfDay(zone);
+                return new Period(start.toInstant(), start.plusMonths(1).toInstant());
+            } catch (DateTimeParseException ignored) {
+                return null;
             }
         }
     }
 
+    /**
+     * Merges two newest-first results, dropping scans found twice.
+     */
+    private static List<Scan> newestFirst(List<Scan> first, List<Scan> second) {
+        Map<Long, Scan> merged = new TreeMap<>(Comparator.reverseOrder());
+        for (Scan scan : first) {
+            merged.put(scan.getId(), scan);
+        }
+        for (Scan scan : second) {
+            merged.putIfAbsent(scan.getId(), scan);
+        }
+        return merged.values().stream().limit(SEARCH_LIMIT).toList();
+    }
+
+    private void showResults(List<Scan> found, long millis) {
+        resultsModel.setScans(found);
+        if (table.getModel() != resultsModel) {
+            table.setModel(resultsModel);
+            sizeColumns();
+        }
+        String more = found.size() >= SEARCH_LIMIT ? " (showing the newest " + SEARCH_LIMIT + ")" : "";
+        setStatus("Found " + found.size() + " scans in " + millis + " ms" + more);
+        if (found.isEmpty()) {
+            clearDetails();
+        } else {
+            table.setRowSelectionInterval(0, 0);
+        }
+    }
+
+    private void clearSearch() {
+        searches++;
+        searchField.setText("");
+        if (table.getModel() == historyModel) {
+            return;
+        }
+        table.setModel(historyModel);
+        sizeColumns();
+        resultsModel.setScans(List.of());
+        if (historyModel.getRowCount() > 0) {
+            table.setRowSelectionInterval(0, 0);
+        } else {
+            clearDetails();
+        }
+        setStatus("Ready");
+    }
+
+    private void sizeColumns() {
+        table.getColumnModel().getColumn(0).setPreferredWidth(60);
+        table.getColumnModel().getColumn(3).setPreferredWidth(80);
+    }
+
+    /**
+     * The scan shown in {@code viewRow} of whichever model the table has, or
+     * {@code null} while it is loading.
+     */
+    private Scan scanAtRow(int viewRow) {
+        int row = table.convertRowIndexToModel(viewRow);
+        return table.getModel() == resultsModel ? resultsModel.scanAt(row) : historyModel.scanAt(row);
+    }
+
+    /**
+     * Reloads the history from the newest scan and selects it.
+     */
     public void loadScans() {
-        try {
-            currentScans = database.listScans(MAX_DISPLAY_ROWS);
-            tableModel.setRowCount(0);
-            for (Scan scan : currentScans) {
-                String status = scan.isParseOk() ? "OK" : "Error";
-                tableModel.addRow(new Object[]{scan.getId(), scan.getCreatedAt(), scan.getSource(), status, GS1Parser.withVisibleControlChars(scan.getRaw())});
+        historyModel.refresh(() -> {
+            if (table.getModel() != historyModel) {
+                return;
             }
-            if (!currentScans.isEmpty()) {
+            if (historyModel.getRowCount() > 0) {
                 table.setRowSelectionInterval(0, 0);
             } else {
                 clearDetails();
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Database error", JOptionPane.ERROR_MESSAGE);
+        });
+    }
+
+    /**
+     * Shows the selected scan in the details pane, reading it with its elements on the
+     * details thread. A row whose page is still loading is shown once the page arrives.
+     */
+    private void showSelected() {
+        int viewRow = table.getSelectedRow();
+        Scan header = viewRow >= 0 ? scanAtRow(viewRow) : null;
+        if (header != null && header.getId() == selectingId) {
+            return;
+        }
+        int request = ++detailRequests;
+        if (header != null && selectedScan != null && header.getId() == selectedScan.getId()) {
+            // Rows inserted above only moved the selection.
+            selectingId = -1;
+            return;
+        }
+        if (header == null) {
+            selectingId = -1;
+            clearDetails();
+            return;
         }
+        long id = header.getId();
+        selectingId = id;
+        detailLoader.execute(() -> {
+            try {
+                Scan scan = database.findScan(id);
+                SwingUtilities.invokeLater(() -> {
+                    if (request != detailRequests) {
+                        return;
+                    }
+                    selectingId = -1;
+                    if (scan != null) {
+                        updateDetails(scan);
+                    } else {
+                        clearDetails();
+                    }
+                });
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    if (request == detailRequests) {
+                        selectingId = -1;
+                        clearDetails();
+                        JOptionPane.showMessageDialog(this, ex.getMessage(), "Database error", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
+            }
+        });
     }
 
     private void clearDetails() {
@@ -759,9 +1060,11 @@ public class MainWindow extends JFrame {
         copyRawButton.setEnabled(true);
 
         rawArea.setText(GS1Parser.withVisibleControlChars(scan.getRaw()));
+        SettingsSnapshot snapshot = settings.snapshot();
+        NormalizationResult normalization = Normalizer.normalizeRaw(scan.getRaw(), snapshot.normalizationOptions());
         String normalized = scan.getNormalized();
         if (normalized == null) {
-            normalized = Normalizer.normalizeRaw(scan.getRaw(), settings.toNormalizationOptions()).normalized();
+            normalized = normalization.normalized();
         }
         selectedNormalized = normalized;
         normalizedArea.setText(GS1Parser.withVisibleControlChars(normalized));
@@ -777,7 +1080,7 @@ public class MainWindow extends JFrame {
         meta.append(" | Stored: ").append(scan.getCreatedAt());
         metadataLabel.setText(meta.toString());
 
-        ParseResult parseResult = GS1Parser.parse(normalized, settings.toParseOptions());
+        ParseResult parseResult = parseCache.parse(normalized, snapshot.parseOptions());
         selectedParseResult = parseResult;
         parsedModel.setRowCount(0);
         selectedElements = new ArrayList<>();
@@ -807,7 +1110,6 @@ public class MainWindow extends JFrame {
         parseStatusLabel.setText(statusText.toString());
 
         List<String> messages = new ArrayList<>();
-        NormalizationResult normalization = Normalizer.normalizeRaw(scan.getRaw(), settings.toNormalizationOptions());
         messages.addAll(normalization.warnings());
         for (ParsedElement element : parseResult.elements()) {
             for (String warning : element.warnings()) {
@@ -1022,127 +1324,206 @@ public class MainWindow extends JFrame {
     }
 
     private void exportCsv() {
+        export("Export CSV", ScanExporter.Format.CSV);
+    }
+
+    private void exportJson() {
+        export("Export JSON", ScanExporter.Format.JSON);
+    }
+
+    /**
+     * Asks for a file and writes every scan to it on a background thread behind a
+     * progress dialog that can cancel it.
+     */
+    private void export(String title, ScanExporter.Format format) {
         JFileChooser chooser = new JFileChooser();
-        chooser.setDialogTitle("Export CSV");
-        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
-            try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
-                writer.write("id,created_at,source,port,symbology_id,parse_ok,error,raw,normalized\n");
-                for (Scan scan : database.listAllScans()) {
-                    writer.write(escapeCsv(Long.toString(scan.getId())) + ',');
-                    writer.write(escapeCsv(scan.getCreatedAt()) + ',');
-                    writer.write(escapeCsv(scan.getSource()) + ',');
-                    writer.write(escapeCsv(scan.getPort()) + ',');
-                    writer.write(escapeCsv(scan.getSymbologyId()) + ',');
-                    writer.write(scan.isParseOk() ? "true," : "false,");
-                    writer.write(escapeCsv(scan.getError()) + ',');
-                    writer.write(escapeCsv(scan.getRaw()) + ',');
-                    writer.write(escapeCsv(scan.getNormalized()));
-                    writer.write("\n");
-                }
-                setStatus("Exported CSV to " + file.getName());
-            } catch (IOException | SQLException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Export CSV", JOptionPane.ERROR_MESSAGE);
+        chooser.setDialogTitle(title);
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        ScanExporter exporter = new ScanExporter(database);
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        JLabel progressLabel = new JLabel("Starting...");
+        JDialog dialog = showProgress(title + " " + file.getName(), progressLabel, progressBar, exporter::cancel);
+        Thread worker = new Thread(() -> {
+            try {
+                long rows = exporter.export(file.toPath(), format, (count, rate) -> SwingUtilities.invokeLater(
+                        () -> progressLabel.setText(count + " scans written (" + rate + "/s)")));
+                SwingUtilities.invokeLater(() -> {
+                    dialog.dispose();
+                    setStatus("Exported " + rows + " scans as " + format + " to " + file.getName());
+                });
+            } catch (InterruptedIOException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    dialog.dispose();
+                    setStatus(title + " cancelled");
+                });
+            } catch (IOException | SQLException | RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    dialog.dispose();
+                    setStatus(title + " failed");
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), title, JOptionPane.ERROR_MESSAGE);
+                });
             }
+        }, "Export");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void exportArchive() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export archive");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        setStatus("Exporting archive to " + file.getName() + "...");
+        runInBackground("Export archive", () -> {
+            long rows = ScanArchive.write(database, file.toPath());
+            return "Exported " + rows + " scans to archive " + file.getName();
+        });
     }
 
-    private void exportJson() {
+    private void importArchive() {
         JFileChooser chooser = new JFileChooser();
-        chooser.setDialogTitle("Export JSON");
-        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
-            try (FileWriter writer = new FileWriter(file, StandardCharsets.UTF_8)) {
-                writer.write("[\n");
-                List<Scan> scans = database.listAllScans();
-                for (int i = 0; i < scans.size(); i++) {
-                    Scan scan = scans.get(i);
-                    writer.write("  {\n");
-                    writer.write("    \"id\": " + scan.getId() + ",\n");
-                    writer.write("    \"created_at\": \"" + escapeJson(scan.getCreatedAt()) + "\",\n");
-                    writer.write("    \"source\": \"" + escapeJson(scan.getSource()) + "\",\n");
-                    if (scan.getPort() != null) {
-                        writer.write("    \"port\": \"" + escapeJson(scan.getPort()) + "\",\n");
-                    }
-                    if (scan.getSymbologyId() != null) {
-                        writer.write("    \"symbology_id\": \"" + escapeJson(scan.getSymbologyId()) + "\",\n");
-                    }
-                    writer.write("    \"parse_ok\": " + scan.isParseOk() + ",\n");
-                    if (scan.getError() != null) {
-                        writer.write("    \"error\": \"" + escapeJson(scan.getError()) + "\",\n");
-                    }
-                    writer.write("    \"raw\": \"" + escapeJson(scan.getRaw()) + "\",\n");
-                    writer.write("    \"normalized\": \"" + escapeJson(scan.getNormalized()) + "\",\n");
-                    writer.write("    \"elements\": [");
-                    List<ScanElement> elements = scan.getElements();
-                    for (int j = 0; j < elements.size(); j++) {
-                        ScanElement element = elements.get(j);
-                        writer.write("{\"ai\": \"" + escapeJson(element.ai()) + "\", \"value\": \"" + escapeJson(element.value()) + "\"}");
-                        if (j < elements.size() - 1) {
-                            writer.write(", ");
-                        }
-                    }
-                    writer.write("]\n");
-                    writer.write("  }");
-                    if (i < scans.size() - 1) {
-                        writer.write(",");
-                    }
-                    writer.write("\n");
-                }
-                writer.write("]\n");
-                setStatus("Exported JSON to " + file.getName());
-            } catch (IOException | SQLException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Export JSON", JOptionPane.ERROR_MESSAGE);
-            }
+        chooser.setDialogTitle("Import archive");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
         }
+        File file = chooser.getSelectedFile();
+        setStatus("Importing archive " + file.getName() + "...");
+        runInBackground("Import archive", () -> {
+            try {
+                long rows = ScanArchive.restore(file.toPath(), database);
+                return "Imported " + rows + " scans from archive " + file.getName();
+            } finally {
+                SwingUtilities.invokeLater(this::loadScans);
+            }
+        });
+    }
+
+    /**
+     * A file task run by {@link #runInBackground}, returning the status to show.
+     */
+    @FunctionalInterface
+    private interface FileTask {
+        String run() throws IOException, SQLException;
+    }
+
+    private void runInBackground(String title, FileTask task) {
+        Thread worker = new Thread(() -> {
+            try {
+                String status = task.run();
+                SwingUtilities.invokeLater(() -> setStatus(status));
+            } catch (IOException | SQLException | RuntimeException ex) {
+                String message = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+                SwingUtilities.invokeLater(() -> {
+                    setStatus(title + " failed");
+                    JOptionPane.showMessageDialog(this, message, title, JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, title);
+        worker.setDaemon(true);
+        worker.start();
     }
 
     private void importNormalized() {
         JFileChooser chooser = new JFileChooser();
         chooser.setDialogTitle("Import normalized");
-        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
-            int imported = 0;
-            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.isBlank()) {
-                        storeScan(line, ScanSource.IMPORT, null, true);
-                        imported++;
-                    }
-                }
-                loadScans();
-                setStatus("Imported " + imported + " scans from " + file.getName());
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Import", JOptionPane.ERROR_MESSAGE);
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        ScanImportJob job = new ScanImportJob(database, file.toPath(), settings.snapshot());
+        ImportCheckpoint checkpoint;
+        try {
+            checkpoint = job.checkpoint();
+        } catch (IOException | SQLException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Import", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (checkpoint != null) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    "An earlier import of " + file.getName() + " stopped after " + checkpoint.records() + " records.\nResume from there?",
+                    "Import", JOptionPane.YES_NO_CANCEL_OPTION);
+            if (choice == JOptionPane.CANCEL_OPTION || choice == JOptionPane.CLOSED_OPTION) {
+                return;
+            }
+            if (choice == JOptionPane.NO_OPTION) {
+                checkpoint = null;
             }
         }
+        runImport(job, file, checkpoint);
     }
 
-    private String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
-        String escaped = value.replace("\"", "\"\"");
-        return '"' + escaped + '"';
+    /**
+     * Runs {@code job} on a background thread behind a progress dialog that can cancel
+     * it, and reloads the history once it has finished.
+     */
+    private void runImport(ScanImportJob job, File file, ImportCheckpoint checkpoint) {
+        JProgressBar progressBar = new JProgressBar(0, 1000);
+        progressBar.setStringPainted(true);
+        JLabel progressLabel = new JLabel("Starting...");
+        JDialog dialog = showProgress("Import " + file.getName(), progressLabel, progressBar, job::cancel);
+        Thread importer = new Thread(() -> {
+            try {
+                ScanImportJob.Result result = job.run(checkpoint, (records, bytesRead, fileSize, rate) -> SwingUtilities.invokeLater(() -> {
+                    progressBar.setValue(fileSize == 0 ? 1000 : (int) (bytesRead * 1000 / fileSize));
+                    progressLabel.setText(records + " records read (" + rate + "/s)");
+                }));
+                SwingUtilities.invokeLater(() -> {
+                    dialog.dispose();
+                    loadScans();
+                    String counts = result.stored() + " scans from " + file.getName() + " (" + result.skipped() + " skipped)";
+                    setStatus(result.cancelled() ? "Import cancelled after storing " + counts + "; it can be resumed" : "Imported " + counts);
+                });
+            } catch (IOException | SQLException | RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    dialog.dispose();
+                    loadScans();
+                    setStatus("Import of " + file.getName() + " failed; it can be resumed");
+                    JOptionPane.showMessageDialog(this, ex.getMessage(), "Import", JOptionPane.ERROR_MESSAGE);
+                });
+            }
+        }, "Import");
+        importer.setDaemon(true);
+        importer.start();
     }
 
-    private String escapeJson(String value) {
-        if (value == null) {
-            return "";
-        }
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < value.length(); i++) {
-            char c = value.charAt(i);
-            switch (c) {
-                case '\\', '"' -> builder.append('\\').append(c);
-                case '\n' -> builder.append("\\n");
-                case '\r' -> builder.append("\\r");
-                case '\t' -> builder.append("\\t");
-                default -> builder.append(c);
+    /**
+     * Shows a non-modal dialog with {@code label}, {@code progressBar} and a Cancel
+     * button that runs {@code cancel} once, as closing the dialog does. The caller
+     * disposes of it when the work has finished.
+     */
+    private JDialog showProgress(String title, JLabel label, JProgressBar progressBar, Runnable cancel) {
+        JDialog dialog = new JDialog(this, title, false);
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancel.run();
+            cancelButton.setEnabled(false);
+            label.setText("Cancelling...");
+        });
+        dialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialog.addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                cancelButton.doClick();
             }
-        }
-        return builder.toString();
+        });
+        JPanel content = new JPanel(new BorderLayout(10, 10));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        content.add(label, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelButton);
+        content.add(buttons, BorderLayout.SOUTH);
+        dialog.setContentPane(content);
+        dialog.setSize(420, 150);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        return dialog;
     }
 
     private void setStatus(String message) {
@@ -1167,15 +1548,7 @@ public class MainWindow extends JFrame {
         @Override
         public void valueChanged(ListSelectionEvent e) {
             if (!e.getValueIsAdjusting()) {
-                int viewRow = table.getSelectedRow();
-                if (viewRow >= 0) {
-                    int modelRow = table.convertRowIndexToModel(viewRow);
-                    if (modelRow >= 0 && modelRow < currentScans.size()) {
-                        updateDetails(currentScans.get(modelRow));
-                        return;
-                    }
-                }
-                clearDetails();
+                showSelected();
             }
         }
     }
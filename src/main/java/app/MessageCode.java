@@ -0,0 +1,37 @@
+package app;
+
+/**
+ * Compact identifiers for parser messages. Text is rendered on demand from the
+ * recorded position and AI definitions.
+ */
+public enum MessageCode {
+    UNEXPECTED_CHARACTER(true),
+    UNKNOWN_AI(true),
+    VALUE_TRUNCATED(true),
+    MISSING_GS(true),
+    EMPTY_VALUE(true),
+    HEURISTIC_SPLIT(false);
+
+    private final boolean error;
+
+    MessageCode(boolean error) {
+        this.error = error;
+    }
+
+    public boolean error() {
+        return error;
+    }
+
+    String render(CharSequence input, int position, AiDefinition subject, AiDefinition other) {
+        return switch (this) {
+            case UNEXPECTED_CHARACTER -> "Unexpected character '" + GS1Parser.printable(input.charAt(position)) + "'";
+            case UNKNOWN_AI -> "Unknown AI at position " + position;
+            case VALUE_TRUNCATED -> "Value for AI (" + subject.code() + ") is shorter than expected";
+            case MISSING_GS -> "Expected GS after variable-length AI (" + subject.code() + ") before AI (" + other.code() + ")";
+            case EMPTY_VALUE -> "Value for AI (" + subject.code() + ") cannot be empty";
+            case HEURISTIC_SPLIT -> subject.code().equals("10") && other.code().equals("21")
+                    ? "Applied heuristic split between (10) and (21)"
+                    : "Applied heuristic split before AI (" + other.code() + ") after (" + subject.code() + ")";
+        };
+    }
+}
@@ -12,6 +12,7 @@ public final class NormalizationOptions {
     private final Set<String> gsPlaceholders;
     private final boolean stripAimId;
     private final boolean collapseMultipleGs;
+    private volatile CompiledNormalizer compiled;
 
     private NormalizationOptions(Builder builder) {
         this.gsPlaceholders = Set.copyOf(builder.gsPlaceholders);
@@ -31,6 +32,15 @@ public final class NormalizationOptions {
         return collapseMultipleGs;
     }
 
+    CompiledNormalizer compiled() {
+        CompiledNormalizer normalizer = compiled;
+        if (normalizer == null) {
+            normalizer = CompiledNormalizer.compile(this);
+            compiled = normalizer;
+        }
+        return normalizer;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
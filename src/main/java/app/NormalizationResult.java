@@ -2,11 +2,19 @@ package app;
 
 import java.util.List;
 
+/**
+ * @param elapsedNanos time spent normalizing this scan
+ */
 public record NormalizationResult(String raw,
                                   String normalized,
                                   String symbologyId,
-                                  List<String> warnings) {
+                                  List<String> warnings,
+                                  long elapsedNanos) {
     public NormalizationResult {
         warnings = List.copyOf(warnings);
     }
+
+    public NormalizationResult(String raw, String normalized, String symbologyId, List<String> warnings) {
+        this(raw, normalized, symbologyId, warnings, 0L);
+    }
 }
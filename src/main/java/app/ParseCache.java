@@ -0,0 +1,82 @@
+package app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread-safe LRU cache of parse results keyed by normalized payload and
+ * parse options. Cached {@link ParseResult}s are shared; they and their elements
+ * cannot be modified outside the parser.
+ */
+public final class ParseCache {
+    private final int capacity;
+    private final Map<Key, ParseResult> entries;
+    private long hits;
+    private long misses;
+
+    public ParseCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ParseResult> eldest) {
+                return size() > ParseCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result for {@code normalized}, parsing it on a miss. Parsing
+     * runs outside the lock, so concurrent misses for the same key may both parse.
+     */
+    public ParseResult parse(String normalized, ParseOptions options) {
+        ParseOptions parseOptions = options == null ? ParseOptions.defaults() : options;
+        return parse(normalized, parseOptions, () -> GS1Parser.parse(normalized, parseOptions));
+    }
+
+    /**
+     * Returns the cached result for {@code normalized}, taking it from {@code parser}
+     * on a miss, such as a {@link ScanView} that has already parsed the payload.
+     */
+    public ParseResult parse(String normalized, ParseOptions options, Supplier<ParseResult> parser) {
+        Objects.requireNonNull(normalized, "normalized");
+        ParseOptions parseOptions = options == null ? ParseOptions.defaults() : options;
+        Key key = new Key(normalized, parseOptions);
+        synchronized (this) {
+            ParseResult cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+        ParseResult result = parser.get();
+        synchronized (this) {
+            entries.put(key, result);
+        }
+        return result;
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private record Key(String normalized, ParseOptions options) {
+    }
+}
@@ -1,12 +1,22 @@
 package app;
 
+import java.time.Duration;
+import java.util.Objects;
+
 public final class ParseOptions {
+    static final int DEFAULT_SEGMENTATION_STEPS = 20_000;
+    static final Duration DEFAULT_SEGMENTATION_TIMEOUT = Duration.ofMillis(2);
+
     private final boolean allowLowercase;
     private final boolean heuristicRepair;
+    private final int segmentationSteps;
+    private final long segmentationTimeoutNanos;
 
     private ParseOptions(Builder builder) {
         this.allowLowercase = builder.allowLowercase;
         this.heuristicRepair = builder.heuristicRepair;
+        this.segmentationSteps = builder.segmentationSteps;
+        this.segmentationTimeoutNanos = builder.segmentationTimeout.toNanos();
     }
 
     public boolean allowLowercase() {
@@ -17,6 +27,39 @@ public final class ParseOptions {
         return heuristicRepair;
     }
 
+    /**
+     * Maximum number of candidate splits the heuristic repair may score for one value.
+     */
+    public int segmentationSteps() {
+        return segmentationSteps;
+    }
+
+    public Duration segmentationTimeout() {
+        return Duration.ofNanos(segmentationTimeoutNanos);
+    }
+
+    long segmentationTimeoutNanos() {
+        return segmentationTimeoutNanos;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof ParseOptions options)) {
+            return false;
+        }
+        return allowLowercase == options.allowLowercase && heuristicRepair == options.heuristicRepair
+                && segmentationSteps == options.segmentationSteps
+                && segmentationTimeoutNanos == options.segmentationTimeoutNanos;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(allowLowercase, heuristicRepair, segmentationSteps, segmentationTimeoutNanos);
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -28,6 +71,8 @@ public final class ParseOptions {
     public static final class Builder {
         private boolean allowLowercase;
         private boolean heuristicRepair;
+        private int segmentationSteps = DEFAULT_SEGMENTATION_STEPS;
+        private Duration segmentationTimeout = DEFAULT_SEGMENTATION_TIMEOUT;
 
         private Builder() {
         }
@@ -42,6 +87,19 @@ public final class ParseOptions {
             return this;
         }
 
+        public Builder segmentationSteps(int segmentationSteps) {
+            if (segmentationSteps < 0) {
+                throw new IllegalArgumentException("segmentationSteps must not be negative");
+            }
+            this.segmentationSteps = segmentationSteps;
+            return this;
+        }
+
+        public Builder segmentationTimeout(Duration segmentationTimeout) {
+            this.segmentationTimeout = Objects.requireNonNull(segmentationTimeout, "segmentationTimeout");
+            return this;
+        }
+
         public ParseOptions build() {
             return new ParseOptions(this);
         }
@@ -4,21 +4,25 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Outcome of {@link GS1Parser#parse(String, ParseOptions)}. Results are not modified
+ * after the parser returns them, so they can be cached and shared between threads.
+ */
 public final class ParseResult {
     private final List<ParsedElement> elements = new ArrayList<>();
     private final List<ParseMessage> errors = new ArrayList<>();
     private final List<ParseMessage> warnings = new ArrayList<>();
     private boolean heuristicsApplied;
 
-    public void addElement(ParsedElement element) {
+    void addElement(ParsedElement element) {
         elements.add(element);
     }
 
-    public void addError(ParseMessage message) {
+    void addError(ParseMessage message) {
         errors.add(message);
     }
 
-    public void addWarning(ParseMessage message) {
+    void addWarning(ParseMessage message) {
         warnings.add(message);
     }
 
@@ -38,7 +42,7 @@ public final class ParseResult {
         return errors.isEmpty();
     }
 
-    public void setHeuristicsApplied() {
+    void setHeuristicsApplied() {
         this.heuristicsApplied = true;
     }
 
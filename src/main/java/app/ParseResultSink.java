@@ -0,0 +1,10 @@
+package app;
+
+/**
+ * Receives results from {@link GS1Parser#parseAll}. Unordered batches call it from
+ * several worker threads at once, so implementations must then be thread-safe.
+ */
+@FunctionalInterface
+public interface ParseResultSink {
+    void accept(long index, String normalized, ParseResult result);
+}
@@ -0,0 +1,151 @@
+package app;
+
+import java.util.Arrays;
+
+/**
+ * Reusable, offset-based parse output. Elements are recorded as spans into the
+ * parsed input and strings are only built when a caller asks for them. An instance
+ * is not thread-safe; keep one per thread and pass it to every parse.
+ */
+public final class ParseSpans {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private CharSequence input = "";
+    private int size;
+    private AiDefinition[] definitions = new AiDefinition[INITIAL_CAPACITY];
+    private int[] aiStarts = new int[INITIAL_CAPACITY];
+    private int[] valueStarts = new int[INITIAL_CAPACITY];
+    private int[] valueEnds = new int[INITIAL_CAPACITY];
+
+    private int messageCount;
+    private int errorCount;
+    private MessageCode[] messageCodes = new MessageCode[INITIAL_CAPACITY];
+    private int[] messagePositions = new int[INITIAL_CAPACITY];
+    private AiDefinition[] messageSubjects = new AiDefinition[INITIAL_CAPACITY];
+    private AiDefinition[] messageOthers = new AiDefinition[INITIAL_CAPACITY];
+    private boolean heuristicsApplied;
+
+    void reset(CharSequence input) {
+        this.input = input;
+        this.size = 0;
+        this.messageCount = 0;
+        this.errorCount = 0;
+        this.heuristicsApplied = false;
+    }
+
+    void addElement(AiDefinition definition, int aiStart, int valueStart, int valueEnd) {
+        if (size == definitions.length) {
+            int capacity = size * 2;
+            definitions = Arrays.copyOf(definitions, capacity);
+            aiStarts = Arrays.copyOf(aiStarts, capacity);
+            valueStarts = Arrays.copyOf(valueStarts, capacity);
+            valueEnds = Arrays.copyOf(valueEnds, capacity);
+        }
+        definitions[size] = definition;
+        aiStarts[size] = aiStart;
+        valueStarts[size] = valueStart;
+        valueEnds[size] = valueEnd;
+        size++;
+    }
+
+    void addMessage(MessageCode code, int position, AiDefinition subject, AiDefinition other) {
+        if (messageCount == messageCodes.length) {
+            int capacity = messageCount * 2;
+            messageCodes = Arrays.copyOf(messageCodes, capacity);
+            messagePositions = Arrays.copyOf(messagePositions, capacity);
+            messageSubjects = Arrays.copyOf(messageSubjects, capacity);
+            messageOthers = Arrays.copyOf(messageOthers, capacity);
+        }
+        messageCodes[messageCount] = code;
+        messagePositions[messageCount] = position;
+        messageSubjects[messageCount] = subject;
+        messageOthers[messageCount] = other;
+        messageCount++;
+        if (code.error()) {
+            errorCount++;
+        }
+    }
+
+    void setHeuristicsApplied() {
+        this.heuristicsApplied = true;
+    }
+
+    public CharSequence input() {
+        return input;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public AiDefinition definition(int index) {
+        return definitions[checkElement(index)];
+    }
+
+    public String ai(int index) {
+        return definition(index).code();
+    }
+
+    public int aiStart(int index) {
+        return aiStarts[checkElement(index)];
+    }
+
+    public int valueStart(int index) {
+        return valueStarts[checkElement(index)];
+    }
+
+    public int valueEnd(int index) {
+        return valueEnds[checkElement(index)];
+    }
+
+    public int valueLength(int index) {
+        return valueEnd(index) - valueStart(index);
+    }
+
+    public String value(int index) {
+        return input.subSequence(valueStart(index), valueEnd(index)).toString();
+    }
+
+    public StringBuilder appendValue(int index, StringBuilder target) {
+        return target.append(input, valueStart(index), valueEnd(index));
+    }
+
+    public int messageCount() {
+        return messageCount;
+    }
+
+    public MessageCode messageCode(int index) {
+        return messageCodes[checkMessage(index)];
+    }
+
+    public int messagePosition(int index) {
+        return messagePositions[checkMessage(index)];
+    }
+
+    public String message(int index) {
+        checkMessage(index);
+        return messageCodes[index].render(input, messagePositions[index], messageSubjects[index], messageOthers[index]);
+    }
+
+    public boolean success() {
+        return errorCount == 0;
+    }
+
+    public boolean heuristicsApplied() {
+        return heuristicsApplied;
+    }
+
+    private int checkElement(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Element index " + index + " out of bounds for size " + size);
+        }
+        return index;
+    }
+
+    private int checkMessage(int index) {
+        if (index < 0 || index >= messageCount) {
+            throw new IndexOutOfBoundsException("Message index " + index + " out of bounds for size " + messageCount);
+        }
+        return index;
+    }
+}
@@ -1,15 +1,25 @@
 package app;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * One element of a {@link ParseResult}. Diagnostics are recorded only by the parser
+ * and its validators, so an element handed out by the parser never changes and may
+ * be shared between threads with its result.
+ */
 public final class ParsedElement {
+    private static final long[] NO_DIAGNOSTICS = new long[0];
+    private static final int ARGUMENT_BITS = 16;
+    private static final int ARGUMENT_MASK = 0xFFFF;
+
     private final GS1Element element;
     private final AiDefinition definition;
     private final int valueStart;
     private final int valueEnd;
-    private final List<String> warnings = new ArrayList<>();
+    private long[] diagnostics = NO_DIAGNOSTICS;
+    private int diagnosticCount;
     private boolean valid = true;
 
     public ParsedElement(GS1Element element, AiDefinition definition, int valueStart, int valueEnd) {
@@ -35,21 +45,69 @@ public final class ParsedElement {
         return valueEnd;
     }
 
+    /**
+     * Renders the recorded diagnostics. Text is built on every call, so bulk paths
+     * that only need validity should use {@link #valid()} or the diagnostic codes.
+     */
     public List<String> warnings() {
-        return Collections.unmodifiableList(warnings);
+        List<String> rendered = new ArrayList<>(diagnosticCount);
+        for (int i = 0; i < diagnosticCount; i++) {
+            rendered.add(diagnosticCode(i).render(this, diagnosticArgument(i, 0), diagnosticArgument(i, 1), diagnosticArgument(i, 2)));
+        }
+        return rendered;
+    }
+
+    public int diagnosticCount() {
+        return diagnosticCount;
+    }
+
+    public DiagnosticCode diagnosticCode(int index) {
+        return DiagnosticCode.values()[(int) (diagnostic(index) & 0xFF)];
+    }
+
+    /**
+     * Returns argument {@code position} (0 to 2) of diagnostic {@code index}.
+     */
+    public int diagnosticArgument(int index, int position) {
+        if (position < 0 || position > 2) {
+            throw new IndexOutOfBoundsException("Argument position " + position);
+        }
+        return (int) (diagnostic(index) >>> (8 + position * ARGUMENT_BITS)) & ARGUMENT_MASK;
+    }
+
+    void addDiagnostic(DiagnosticCode code) {
+        addDiagnostic(code, 0, 0, 0);
+    }
+
+    void addDiagnostic(DiagnosticCode code, int argument) {
+        addDiagnostic(code, argument, 0, 0);
     }
 
-    public void addWarning(String warning) {
-        if (warning != null && !warning.isBlank()) {
-            warnings.add(warning);
+    /**
+     * Records {@code code} with arguments that must each fit in 16 unsigned bits.
+     */
+    void addDiagnostic(DiagnosticCode code, int first, int second, int third) {
+        if (diagnosticCount == diagnostics.length) {
+            diagnostics = Arrays.copyOf(diagnostics, Math.max(4, diagnosticCount * 2));
         }
+        diagnostics[diagnosticCount++] = code.ordinal()
+                | (long) (first & ARGUMENT_MASK) << 8
+                | (long) (second & ARGUMENT_MASK) << (8 + ARGUMENT_BITS)
+                | (long) (third & ARGUMENT_MASK) << (8 + 2 * ARGUMENT_BITS);
     }
 
-    public void markInvalid() {
+    void markInvalid() {
         this.valid = false;
     }
 
     public boolean valid() {
         return valid;
     }
+
+    private long diagnostic(int index) {
+        if (index < 0 || index >= diagnosticCount) {
+            throw new IndexOutOfBoundsException("Diagnostic index " + index + " out of bounds for size " + diagnosticCount);
+        }
+        return diagnostics[index];
+    }
 }
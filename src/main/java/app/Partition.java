@@ -0,0 +1,928 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * One SQLite file of scan storage, holding a contiguous range of scan ids. One writer
+ * connection is kept open for inserts and a small pool of read-only connections for
+ * queries; in WAL mode neither blocks the other. Connections are opened when first
+ * needed, so a partition nobody queries costs nothing. Each connection prepares a
+ * statement the first time it runs it and reuses it afterwards.
+ */
+final class Partition implements AutoCloseable {
+    private static final String INSERT_SCAN =
+            "INSERT INTO scans(created_at, raw, normalized, source, port, symbology_id, parse_ok, error, gtin, lot, serial, expiry) "
+                    + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ELEMENT =
+            "INSERT INTO scan_elements(scan_id, ai, value, pos_start, pos_end) VALUES(?, ?, ?, ?, ?)";
+    private static final String SELECT_SCANS =
+            "SELECT id, created_at, raw, normalized, source, port, symbology_id, parse_ok, error FROM scans WHERE id <= ? ORDER BY id DESC LIMIT ?";
+    private static final String SELECT_SCAN =
+            "SELECT id, created_at, raw, normalized, source, port, symbology_id, parse_ok, error FROM scans WHERE id = ?";
+    private static final String SELECT_ID_AT =
+            "SELECT id FROM scans WHERE id <= ? ORDER BY id DESC LIMIT 1 OFFSET ?";
+    private static final String SELECT_ID_ABOVE =
+            "SELECT id FROM scans WHERE id > ? ORDER BY id ASC LIMIT 1 OFFSET ?";
+    private static final String SELECT_NEWEST_ID = "SELECT MAX(id) FROM scans";
+    private static final String COUNT_SCANS_UP_TO = "SELECT COUNT(*) FROM scans WHERE id <= ?";
+    private static final String COUNT_SCANS_ABOVE = "SELECT COUNT(*) FROM scans WHERE id > ?";
+    private static final String COUNT_SCANS_BETWEEN = "SELECT COUNT(*) FROM scans WHERE id > ? AND id <= ?";
+    private static final String SELECT_SPAN =
+            "SELECT MIN(id), MAX(id), COUNT(*), MIN(created_at), MAX(created_at) FROM scans";
+    private static final String SELECT_HEADER_COLUMNS =
+            "SELECT id, created_at, raw, normalized, source, port, symbology_id, parse_ok, error FROM scans ";
+    private static final String SELECT_SCAN_HEADERS = SELECT_HEADER_COLUMNS + "WHERE id <= ? ORDER BY id DESC LIMIT ?";
+    private static final String SELECT_HEADERS_BETWEEN = SELECT_HEADER_COLUMNS
+            + "WHERE created_at >= ? AND created_at < ? AND id <= ? ORDER BY id DESC LIMIT ?";
+    /** Takes the newest matches from each key index separately, so none has to be sorted in full. */
+    private static final String SELECT_BY_KEY_VALUE = SELECT_HEADER_COLUMNS + "WHERE id IN ("
+            + "SELECT id FROM (SELECT id FROM scans WHERE gtin = ?1 ORDER BY id DESC LIMIT ?2) "
+            + "UNION SELECT id FROM (SELECT id FROM scans WHERE lot = ?1 ORDER BY id DESC LIMIT ?2) "
+            + "UNION SELECT id FROM (SELECT id FROM scans WHERE serial = ?1 ORDER BY id DESC LIMIT ?2) "
+            + "UNION SELECT id FROM (SELECT id FROM scans WHERE expiry = ?1 ORDER BY id DESC LIMIT ?2)"
+            + ") ORDER BY id DESC LIMIT ?2";
+    private static final String SELECT_BY_ELEMENT = SELECT_HEADER_COLUMNS
+            + "WHERE id IN (SELECT scan_id FROM scan_elements WHERE ai = ? AND value = ? ORDER BY scan_id DESC LIMIT ?) ORDER BY id DESC";
+    private static final String SELECT_SERIAL_SEEN = "SELECT 1 FROM scans WHERE serial = ? AND gtin = ? LIMIT 1";
+    private static final String SELECT_ELEMENT_SEEN = "SELECT 1 FROM scan_elements WHERE ai = ? AND value = ? LIMIT 1";
+    private static final String SELECT_SERIAL_KEYS = "SELECT gtin, serial FROM scans WHERE serial IS NOT NULL AND gtin IS NOT NULL";
+    private static final String SELECT_ELEMENT_VALUES = "SELECT value FROM scan_elements WHERE ai = ?";
+    private static final String BACKFILL_KEYS = "UPDATE scans SET "
+            + "gtin = (SELECT value FROM scan_elements WHERE scan_id = scans.id AND ai = '" + ScanSearch.GTIN_AI + "' ORDER BY rowid LIMIT 1), "
+            + "lot = (SELECT value FROM scan_elements WHERE scan_id = scans.id AND ai = '" + ScanSearch.LOT_AI + "' ORDER BY rowid LIMIT 1), "
+            + "serial = (SELECT value FROM scan_elements WHERE scan_id = scans.id AND ai = '" + ScanSearch.SERIAL_AI + "' ORDER BY rowid LIMIT 1), "
+            + "expiry = (SELECT value FROM scan_elements WHERE scan_id = scans.id AND ai = '" + ScanSearch.EXPIRY_AI + "' ORDER BY rowid LIMIT 1)";
+    private static final String SELECT_ALL_SCANS =
+            "SELECT id, created_at, raw, normalized, source, port, symbology_id, parse_ok, error FROM scans ORDER BY id ";
+    private static final String SELECT_ALL_SCANS_WITH_ELEMENTS =
+            "SELECT s.id, s.created_at, s.raw, s.normalized, s.source, s.port, s.symbology_id, s.parse_ok, s.error, "
+                    + "e.ai, e.value, e.pos_start, e.pos_end "
+                    + "FROM scans s LEFT JOIN scan_elements e ON e.scan_id = s.id ORDER BY s.id %s, e.rowid";
+    private static final String UPSERT_CHECKPOINT =
+            "INSERT INTO import_checkpoints(file, size, modified, record_offset, records) VALUES(?, ?, ?, ?, ?) "
+                    + "ON CONFLICT(file) DO UPDATE SET size = excluded.size, modified = excluded.modified, "
+                    + "record_offset = excluded.record_offset, records = excluded.records";
+    private static final String SELECT_CHECKPOINTS =
+            "SELECT file, size, modified, record_offset, records FROM import_checkpoints";
+    private static final String SELECT_CHECKPOINT = SELECT_CHECKPOINTS + " WHERE file = ?";
+    private static final String DELETE_CHECKPOINT = "DELETE FROM import_checkpoints WHERE file = ?";
+    private static final String SELECT_ELEMENTS =
+            "SELECT scan_id, ai, value, pos_start, pos_end FROM scan_elements WHERE scan_id BETWEEN ? AND ? ORDER BY scan_id, rowid";
+    private static final String DELETE_SEQUENCE = "DELETE FROM sqlite_sequence WHERE name = 'scans'";
+    private static final String INSERT_SEQUENCE = "INSERT INTO sqlite_sequence(name, seq) VALUES('scans', ?)";
+    private static final String DELETE_OLDEST_SCANS =
+            "DELETE FROM scans WHERE id IN (SELECT id FROM scans ORDER BY id LIMIT ?)";
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final long MIN_FREE_PAGES_TO_COMPACT = 256;
+
+    /**
+     * Reads one row of a {@link #query} result.
+     */
+    @FunctionalInterface
+    interface RowReader<T> {
+        T read(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Ids, count and time range of the scans in a partition that no longer takes
+     * inserts. The times are widened to whole seconds and are {@code null} when a
+     * stored timestamp could not be read.
+     */
+    record Span(long firstId, long lastId, long count, Instant oldest, Instant newest) {
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * Whether scans created from {@code from} until before {@code to} may be here.
+         */
+        boolean overlaps(Instant from, Instant to) {
+            if (isEmpty()) {
+                return false;
+            }
+            return (oldest == null || oldest.isBefore(to)) && (newest == null || !newest.isBefore(from));
+        }
+    }
+
+    private final Path file;
+    private final YearMonth month;
+    private final long firstId;
+    private final String url;
+    private final DatabaseOptions options;
+    private final Object writeLock = new Object();
+    private final BlockingQueue<PooledConnection> idleReaders = new LinkedBlockingQueue<>();
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private PooledConnection writer;
+    private volatile Span span;
+    private volatile boolean closed;
+
+    /**
+     * A partition stored in {@code file} for scans taken in {@code month}, or for
+     * scans of no particular month if it is {@code null}, with ids from
+     * {@code firstId}.
+     */
+    Partition(Path file, YearMonth month, long firstId, DatabaseOptions options) {
+        this.file = file;
+        this.month = month;
+        this.firstId = firstId;
+        this.url = "jdbc:sqlite:" + file;
+        this.options = options;
+    }
+
+    Path file() {
+        return file;
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    long firstId() {
+        return firstId;
+    }
+
+    /**
+     * What the partition holds once it is sealed, or {@code null} while it still takes
+     * inserts.
+     */
+    Span span() {
+        return span;
+    }
+
+    void markSealed(Span span) {
+        this.span = span;
+    }
+
+    /**
+     * Whether the partition may hold scans with ids up to {@code id}.
+     */
+    boolean reachesDownTo(long id) {
+        Span sealed = span;
+        return sealed == null ? firstId <= id : !sealed.isEmpty() && sealed.firstId() <= id;
+    }
+
+    /**
+     * Whether the partition may hold scans with ids above {@code id}.
+     */
+    boolean reachesAbove(long id) {
+        Span sealed = span;
+        return sealed == null || !sealed.isEmpty() && sealed.lastId() > id;
+    }
+
+    void initialize() throws SQLException {
+        synchronized (writeLock) {
+            try (Statement statement = writer().connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS scans (" +
+                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "created_at TEXT NOT NULL, " +
+                        "raw TEXT NOT NULL, " +
+                        "normalized TEXT, " +
+                        "source TEXT, " +
+                        "port TEXT, " +
+                        "symbology_id TEXT, " +
+                        "parse_ok INTEGER NOT NULL DEFAULT 0, " +
+                        "error TEXT" +
+                        ")");
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS scan_elements (" +
+                        "scan_id INTEGER NOT NULL, " +
+                        "ai TEXT NOT NULL, " +
+                        "value TEXT NOT NULL, " +
+                        "pos_start INTEGER, " +
+                        "pos_end INTEGER, " +
+                        "FOREIGN KEY(scan_id) REFERENCES scans(id) ON DELETE CASCADE" +
+                        ")");
+                ensureColumn(statement, "normalized", "TEXT");
+                ensureColumn(statement, "source", "TEXT");
+                ensureColumn(statement, "port", "TEXT");
+                ensureColumn(statement, "symbology_id", "TEXT");
+                ensureColumn(statement, "parse_ok", "INTEGER NOT NULL DEFAULT 0");
+                ensureColumn(statement, "error", "TEXT");
+                boolean added = ensureColumn(statement, "gtin", "TEXT");
+                added |= ensureColumn(statement, "lot", "TEXT");
+                added |= ensureColumn(statement, "serial", "TEXT");
+                added |= ensureColumn(statement, "expiry", "TEXT");
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS import_checkpoints (" +
+                        "file TEXT PRIMARY KEY, " +
+                        "size INTEGER NOT NULL, " +
+                        "modified INTEGER NOT NULL, " +
+                        "record_offset INTEGER NOT NULL, " +
+                        "records INTEGER NOT NULL" +
+                        ")");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scan_elements_scan_id ON scan_elements(scan_id)");
+                if (added) {
+                    // Scans stored before the key columns existed get them from their elements.
+                    statement.executeUpdate(BACKFILL_KEYS);
+                }
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scan_elements_ai_value ON scan_elements(ai, value, scan_id)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scans_gtin ON scans(gtin)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scans_serial ON scans(serial, gtin)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scans_lot ON scans(lot)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scans_expiry ON scans(expiry)");
+                statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_scans_created_at ON scans(created_at)");
+            }
+        }
+    }
+
+    /**
+     * Adds a column to {@code scans}, returning {@code false} if it was already there.
+     */
+    private boolean ensureColumn(Statement statement, String name, String definition) {
+        try {
+            statement.executeUpdate("ALTER TABLE scans ADD COLUMN " + name + " " + definition);
+            return true;
+        } catch (SQLException ignored) {
+            return false;
+        }
+    }
+
+    /**
+     * Makes the next scan inserted get id {@code lastId + 1}.
+     */
+    void seedSequence(long lastId) throws SQLException {
+        synchronized (writeLock) {
+            PooledConnection pooled = writer();
+            Connection connection = pooled.connection;
+            connection.setAutoCommit(false);
+            try {
+                pooled.prepare(DELETE_SEQUENCE).executeUpdate();
+                PreparedStatement insert = pooled.prepare(INSERT_SEQUENCE);
+                insert.setLong(1, lastId);
+                insert.executeUpdate();
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Inserts {@code scans} in one transaction and records {@code checkpoint}, if not
+     * {@code null}, in the same one. Returns the ids in the same order, with -1 for a
+     * scan whose id could not be read back.
+     */
+    long[] insertScans(List<PendingScan> scans, ImportCheckpoint checkpoint) throws SQLException {
+        long[] ids = new long[scans.size()];
+        synchronized (writeLock) {
+            PooledConnection pooled = writer();
+            Connection connection = pooled.connection;
+            PreparedStatement statement = pooled.prepare(INSERT_SCAN, Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement insertElement = pooled.prepare(INSERT_ELEMENT);
+            connection.setAutoCommit(false);
+            try {
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = insertScan(statement, insertElement, scans.get(i));
+                }
+                if (checkpoint != null) {
+                    PreparedStatement upsert = pooled.prepare(UPSERT_CHECKPOINT);
+                    upsert.setString(1, checkpoint.file());
+                    upsert.setLong(2, checkpoint.size());
+                    upsert.setLong(3, checkpoint.modified());
+                    upsert.setLong(4, checkpoint.recordOffset());
+                    upsert.setLong(5, checkpoint.records());
+                    upsert.executeUpdate();
+                }
+                connection.commit();
+                return ids;
+            } catch (SQLException ex) {
+                insertElement.clearBatch();
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private long insertScan(PreparedStatement statement, PreparedStatement insertElement, PendingScan scan) throws SQLException {
+        statement.setString(1, scan.createdAt().toString());
+        statement.setString(2, scan.raw());
+        statement.setString(3, scan.normalized());
+        statement.setString(4, scan.source());
+        statement.setString(5, scan.port());
+        statement.setString(6, scan.symbologyId());
+        statement.setInt(7, scan.parseOk() ? 1 : 0);
+        statement.setString(8, scan.error());
+        statement.setString(9, scan.value(ScanSearch.GTIN_AI));
+        statement.setString(10, scan.value(ScanSearch.LOT_AI));
+        statement.setString(11, scan.value(ScanSearch.SERIAL_AI));
+        statement.setString(12, scan.value(ScanSearch.EXPIRY_AI));
+        statement.executeUpdate();
+        long id;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            if (!keys.next()) {
+                return -1;
+            }
+            id = keys.getLong(1);
+        }
+        if (scan.elements().isEmpty()) {
+            return id;
+        }
+        for (PendingScan.Element element : scan.elements()) {
+            insertElement.setLong(1, id);
+            insertElement.setString(2, element.ai());
+            insertElement.setString(3, element.value());
+            insertElement.setInt(4, element.start());
+            insertElement.setInt(5, element.end());
+            insertElement.addBatch();
+        }
+        insertElement.executeBatch();
+        return id;
+    }
+
+    ImportCheckpoint findImportCheckpoint(String file) throws SQLException {
+        List<ImportCheckpoint> found = query(SELECT_CHECKPOINT, Partition::readCheckpoint, file);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    List<ImportCheckpoint> importCheckpoints() throws SQLException {
+        return query(SELECT_CHECKPOINTS, Partition::readCheckpoint);
+    }
+
+    void deleteImportCheckpoint(String file) throws SQLException {
+        execute(DELETE_CHECKPOINT, file);
+    }
+
+    private static ImportCheckpoint readCheckpoint(ResultSet resultSet) throws SQLException {
+        return new ImportCheckpoint(resultSet.getString("file"), resultSet.getLong("size"), resultSet.getLong("modified"),
+                resultSet.getLong("record_offset"), resultSet.getLong("records"));
+    }
+
+    /**
+     * Returns up to {@code limit} scans with ids up to {@code fromId}, newest first,
+     * with their elements. The elements of the whole page are read with one range
+     * query on the scan id index.
+     */
+    List<Scan> listScans(long fromId, int limit) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            List<ScanRow> rows = new ArrayList<>();
+            PreparedStatement statement = reader.prepare(SELECT_SCANS);
+            statement.setLong(1, fromId);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(ScanRow.read(resultSet));
+                }
+            }
+            if (rows.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, List<ScanElement>> elements = loadElements(reader, rows.get(rows.size() - 1).id(), rows.get(0).id());
+            List<Scan> scans = new ArrayList<>(rows.size());
+            for (ScanRow row : rows) {
+                scans.add(row.toScan(elements.get(row.id())));
+            }
+            return scans;
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Streams every scan to {@code handler} from one forward-only cursor, newest
+     * first if {@code newestFirst}. With {@code withElements} the elements are read
+     * in the same pass by joining on the scan id index. Returns the number of scans
+     * handed over.
+     */
+    long forEachScan(boolean withElements, boolean newestFirst, ScanRowHandler handler) throws SQLException, IOException {
+        String order = newestFirst ? "DESC" : "ASC";
+        PooledConnection reader = acquireReader();
+        try {
+            PreparedStatement statement = reader.prepare(withElements
+                    ? String.format(SELECT_ALL_SCANS_WITH_ELEMENTS, order)
+                    : SELECT_ALL_SCANS + order);
+            long count = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!withElements) {
+                    while (resultSet.next()) {
+                        count++;
+                        if (!handler.onScan(ScanRow.read(resultSet).toScan(null))) {
+                            break;
+                        }
+                    }
+                    return count;
+                }
+                boolean more = resultSet.next();
+                List<ScanElement> elements = new ArrayList<>();
+                while (more) {
+                    ScanRow row = ScanRow.read(resultSet);
+                    elements.clear();
+                    do {
+                        String ai = resultSet.getString("ai");
+                        if (ai != null) {
+                            elements.add(new ScanElement(row.id(), ai, resultSet.getString("value"),
+                                    resultSet.getInt("pos_start"), resultSet.getInt("pos_end")));
+                        }
+                        more = resultSet.next();
+                    } while (more && resultSet.getLong("id") == row.id());
+                    count++;
+                    if (!handler.onScan(row.toScan(elements))) {
+                        break;
+                    }
+                }
+            }
+            return count;
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    List<Scan> listScanHeaders(long fromId, int limit) throws SQLException {
+        return queryHeaders(SELECT_SCAN_HEADERS, limit, fromId);
+    }
+
+    /**
+     * Scans created from {@code from} until before {@code to}, newest first, without
+     * their elements. Times are stored as {@link Instant#toString} text, whose
+     * fraction varies in length, so text order only holds to the second: the index
+     * selects whole seconds and the rows in the seconds at either end are compared
+     * as instants.
+     */
+    List<Scan> listScanHeaders(Instant from, Instant to, int limit) throws SQLException {
+        String low = secondOf(from);
+        String high = secondOf(to.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+        List<Scan> scans = new ArrayList<>();
+        long fromId = Long.MAX_VALUE;
+        while (scans.size() < limit) {
+            int wanted = limit - scans.size();
+            List<Scan> page = queryHeaders(SELECT_HEADERS_BETWEEN, wanted, low, high, fromId);
+            for (Scan scan : page) {
+                Instant created = instantOf(scan.getCreatedAt());
+                if (created != null && !created.isBefore(from) && created.isBefore(to)) {
+                    scans.add(scan);
+                }
+            }
+            if (page.size() < wanted) {
+                break;
+            }
+            fromId = page.get(page.size() - 1).getId() - 1;
+        }
+        return scans;
+    }
+
+    /**
+     * The stored text of {@code instant} up to its seconds, which sorts before every
+     * time stored within that second and after every earlier one.
+     */
+    private static String secondOf(Instant instant) {
+        String text = instant.truncatedTo(ChronoUnit.SECONDS).toString();
+        return text.substring(0, text.length() - 1);
+    }
+
+    List<Scan> searchScans(ScanSearch search, int limit) throws SQLException {
+        List<String> values = new ArrayList<>(4);
+        StringBuilder sql = new StringBuilder(SELECT_HEADER_COLUMNS).append("WHERE ");
+        appendCondition(sql, values, "gtin", search.gtin());
+        appendCondition(sql, values, "lot", search.lot());
+        appendCondition(sql, values, "serial", search.serial());
+        appendCondition(sql, values, "expiry", search.expiry());
+        sql.append(" ORDER BY id DESC LIMIT ?");
+        return queryHeaders(sql.toString(), limit, values.toArray());
+    }
+
+    List<Scan> searchScans(String value, int limit) throws SQLException {
+        return queryHeaders(SELECT_BY_KEY_VALUE, limit, value);
+    }
+
+    List<Scan> searchScansByElement(String ai, String value, int limit) throws SQLException {
+        return queryHeaders(SELECT_BY_ELEMENT, limit, ai, value);
+    }
+
+    boolean serialSeen(String gtin, String serial) throws SQLException {
+        return !query(SELECT_SERIAL_SEEN, resultSet -> Boolean.TRUE, serial, gtin).isEmpty();
+    }
+
+    boolean elementSeen(String ai, String value) throws SQLException {
+        return !query(SELECT_ELEMENT_SEEN, resultSet -> Boolean.TRUE, ai, value).isEmpty();
+    }
+
+    /**
+     * Streams the GTIN and serial of every scan that has both, then every value of
+     * element {@code ai}, each read from a covering index.
+     */
+    void forEachSerialKey(BiConsumer<String, String> serials, String ai, Consumer<String> values) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            try (ResultSet resultSet = reader.prepare(SELECT_SERIAL_KEYS).executeQuery()) {
+                while (resultSet.next()) {
+                    serials.accept(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+            PreparedStatement statement = reader.prepare(SELECT_ELEMENT_VALUES);
+            statement.setString(1, ai);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    values.accept(resultSet.getString(1));
+                }
+            }
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    Scan findScan(long id) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            PreparedStatement statement = reader.prepare(SELECT_SCAN);
+            statement.setLong(1, id);
+            ScanRow row;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    return null;
+                }
+                row = ScanRow.read(resultSet);
+            }
+            return row.toScan(loadElements(reader, id, id).get(id));
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    long scanIdAt(long topId, long offset) throws SQLException {
+        return queryLong(SELECT_ID_AT, topId, offset);
+    }
+
+    long scanIdAbove(long id, long distance) throws SQLException {
+        return queryLong(SELECT_ID_ABOVE, id, distance - 1);
+    }
+
+    long newestScanId() throws SQLException {
+        return queryLong(SELECT_NEWEST_ID);
+    }
+
+    long countScans(long upToId) throws SQLException {
+        return queryLong(COUNT_SCANS_UP_TO, upToId);
+    }
+
+    long countScansAbove(long id) throws SQLException {
+        return queryLong(COUNT_SCANS_ABOVE, id);
+    }
+
+    long countScans(long afterId, long upToId) throws SQLException {
+        return queryLong(COUNT_SCANS_BETWEEN, afterId, upToId);
+    }
+
+    /**
+     * Reads the ids, count and time range of the scans stored.
+     */
+    Span summarize() throws SQLException {
+        return query(SELECT_SPAN, resultSet -> new Span(resultSet.getLong(1), resultSet.getLong(2), resultSet.getLong(3),
+                floorSecond(resultSet.getString(4)), ceilSecond(resultSet.getString(5)))).get(0);
+    }
+
+    private static Instant floorSecond(String timestamp) {
+        Instant instant = instantOf(timestamp);
+        return instant == null ? null : instant.truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private static Instant ceilSecond(String timestamp) {
+        Instant instant = instantOf(timestamp);
+        return instant == null ? null : instant.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    private static Instant instantOf(String timestamp) {
+        if (timestamp == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(timestamp);
+        } catch (DateTimeParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves the WAL into the main file and closes the writer, leaving the partition to
+     * readers.
+     */
+    void seal() throws SQLException {
+        synchronized (writeLock) {
+            try (Statement statement = writer().connection.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            writer.close();
+            writer = null;
+        }
+    }
+
+    /**
+     * Deletes every scan, a small batch per transaction so other writers are never
+     * kept waiting long. The space is given back by {@link #compactIfSparse} the next
+     * time the file is opened, as VACUUM would hold the writer for its whole run.
+     */
+    void deleteAllScans() throws SQLException {
+        int deleted;
+        do {
+            synchronized (writeLock) {
+                PreparedStatement statement = writer().prepare(DELETE_OLDEST_SCANS);
+                statement.setInt(1, DELETE_BATCH_SIZE);
+                deleted = statement.executeUpdate();
+            }
+        } while (deleted > 0);
+    }
+
+    /**
+     * Runs VACUUM if most of the file is free pages, as after {@link #deleteAllScans}.
+     * Meant for start-up, before anything else writes to the partition.
+     */
+    void compactIfSparse() throws SQLException {
+        synchronized (writeLock) {
+            long free = queryLong("PRAGMA freelist_count");
+            if (free < MIN_FREE_PAGES_TO_COMPACT || free * 2 < queryLong("PRAGMA page_count")) {
+                return;
+            }
+            // VACUUM refuses to run on a connection holding prepared statements.
+            PooledConnection vacuum = open(false);
+            try (Statement statement = vacuum.connection.createStatement()) {
+                statement.execute("VACUUM");
+            } finally {
+                vacuum.close();
+            }
+        }
+    }
+
+    /**
+     * Runs an update on the writer connection.
+     */
+    int execute(String sql, Object... values) throws SQLException {
+        synchronized (writeLock) {
+            PreparedStatement statement = writer().prepare(sql);
+            bind(statement, values);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Runs a query on a pooled reader and reads every row.
+     */
+    <T> List<T> query(String sql, RowReader<T> rowReader, Object... values) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            PreparedStatement statement = reader.prepare(sql);
+            bind(statement, values);
+            List<T> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(rowReader.read(resultSet));
+                }
+            }
+            return rows;
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Closes the writer and every idle reader. Readers still in use are closed when
+     * they are handed back.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (writeLock) {
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+        }
+        PooledConnection reader;
+        while ((reader = idleReaders.poll()) != null) {
+            reader.close();
+        }
+    }
+
+    /**
+     * Closes the partition and deletes its file and any WAL left next to it.
+     */
+    void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-wal"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + "-shm"));
+        Files.deleteIfExists(file);
+    }
+
+    private PooledConnection writer() throws SQLException {
+        ensureOpen();
+        if (writer == null) {
+            writer = open(false);
+        }
+        return writer;
+    }
+
+    /**
+     * Takes an idle reader, opens a new one while the pool is below its size, or
+     * waits for one to be handed back.
+     */
+    private PooledConnection acquireReader() throws SQLException {
+        ensureOpen();
+        PooledConnection reader = idleReaders.poll();
+        if (reader != null) {
+            return reader;
+        }
+        if (openReaders.incrementAndGet() <= options.readerPoolSize()) {
+            try {
+                return open(true);
+            } catch (SQLException ex) {
+                openReaders.decrementAndGet();
+                throw ex;
+            }
+        }
+        openReaders.decrementAndGet();
+        try {
+            return idleReaders.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", ex);
+        }
+    }
+
+    private void releaseReader(PooledConnection reader) {
+        if (closed) {
+            reader.close();
+        } else {
+            idleReaders.add(reader);
+        }
+    }
+
+    private PooledConnection open(boolean readOnly) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + options.busyTimeout().toMillis());
+            if (!readOnly) {
+                statement.execute("PRAGMA journal_mode = WAL");
+            }
+            statement.execute("PRAGMA synchronous = " + options.synchronous().name());
+            statement.execute("PRAGMA mmap_size = " + options.mmapSize());
+            statement.execute("PRAGMA foreign_keys = ON");
+            if (readOnly) {
+                statement.execute("PRAGMA query_only = ON");
+            }
+        } catch (SQLException ex) {
+            connection.close();
+            throw ex;
+        }
+        return new PooledConnection(connection);
+    }
+
+    /**
+     * Runs a query whose first column of the first row is a number, or -1 when it
+     * returns no rows.
+     */
+    private long queryLong(String sql, long... parameters) throws SQLException {
+        PooledConnection reader = acquireReader();
+        try {
+            PreparedStatement statement = reader.prepare(sql);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setLong(i + 1, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : -1;
+            }
+        } finally {
+            releaseReader(reader);
+        }
+    }
+
+    /**
+     * Runs a header query taking {@code values} as its first parameters and
+     * {@code limit} as its last.
+     */
+    private List<Scan> queryHeaders(String sql, int limit, Object... values) throws SQLException {
+        Object[] parameters = new Object[values.length + 1];
+        System.arraycopy(values, 0, parameters, 0, values.length);
+        parameters[values.length] = limit;
+        return query(sql, resultSet -> ScanRow.read(resultSet).toScan(null), parameters);
+    }
+
+    private static void bind(PreparedStatement statement, Object[] values) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            statement.setObject(i + 1, values[i]);
+        }
+    }
+
+    private static void appendCondition(StringBuilder sql, List<String> values, String column, String value) {
+        if (value == null) {
+            return;
+        }
+        if (!values.isEmpty()) {
+            sql.append(" AND ");
+        }
+        sql.append(column).append(" = ?");
+        values.add(value);
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("Partition " + file.getFileName() + " is closed");
+        }
+    }
+
+    /**
+     * Elements of the scans with ids from {@code firstId} to {@code lastId}, grouped by
+     * scan id in stored order.
+     */
+    private Map<Long, List<ScanElement>> loadElements(PooledConnection reader, long firstId, long lastId) throws SQLException {
+        Map<Long, List<ScanElement>> elements = new HashMap<>();
+        PreparedStatement statement = reader.prepare(SELECT_ELEMENTS);
+        statement.setLong(1, firstId);
+        statement.setLong(2, lastId);
+        try (ResultSet rs = statement.executeQuery()) {
+            List<ScanElement> current = null;
+            long currentId = 0;
+            while (rs.next()) {
+                long id = rs.getLong("scan_id");
+                if (current == null || id != currentId) {
+                    currentId = id;
+                    current = new ArrayList<>();
+                    elements.put(id, current);
+                }
+                String ai = rs.getString("ai");
+                String value = rs.getString("value");
+                int start = rs.getInt("pos_start");
+                int end = rs.getInt("pos_end");
+                current.add(new ScanElement(id, ai, value, start, end));
+            }
+        }
+        return elements;
+    }
+
+    private record ScanRow(long id, String createdAt, String raw, String normalized, String source, String port,
+                           String symbologyId, boolean parseOk, String error) {
+        static ScanRow read(ResultSet resultSet) throws SQLException {
+            return new ScanRow(
+                    resultSet.getLong("id"),
+                    resultSet.getString("created_at"),
+                    resultSet.getString("raw"),
+                    resultSet.getString("normalized"),
+                    resultSet.getString("source"),
+                    resultSet.getString("port"),
+                    resultSet.getString("symbology_id"),
+                    resultSet.getInt("parse_ok") == 1,
+                    resultSet.getString("error"));
+        }
+
+        Scan toScan(List<ScanElement> elements) {
+            return new Scan(id, createdAt, raw, normalized, source, port, symbologyId, parseOk, error, elements);
+        }
+    }
+
+    /**
+     * A connection with the statements prepared on it so far, keyed by SQL. Used by
+     * one thread at a time.
+     */
+    private static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            return prepare(sql, Statement.NO_GENERATED_KEYS);
+        }
+
+        PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql, autoGeneratedKeys);
+                statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        void close() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
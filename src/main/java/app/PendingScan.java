@@ -0,0 +1,64 @@
+package app;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A scan waiting to be written, with everything {@link Database} stores for it.
+ * {@code createdAt} is the capture time, not the time the row is committed.
+ */
+public record PendingScan(Instant createdAt,
+                          String raw,
+                          String normalized,
+                          String source,
+                          String port,
+                          String symbologyId,
+                          boolean parseOk,
+                          String error,
+                          List<Element> elements) {
+    public PendingScan {
+        Objects.requireNonNull(createdAt, "createdAt");
+        Objects.requireNonNull(raw, "raw");
+        elements = List.copyOf(elements);
+    }
+
+    public record Element(String ai, String value, int start, int end) {
+    }
+
+    public static PendingScan of(NormalizationResult normalization, ParseResult parseResult, String source, String port,
+                                 Instant createdAt) {
+        boolean parseOk = parseResult.success();
+        String error = parseOk ? null : (parseResult.errors().isEmpty() ? "Unknown parse error" : parseResult.errors().get(0).message());
+        return new PendingScan(createdAt, normalization.raw(), normalization.normalized(), source, port,
+                normalization.symbologyId(), parseOk, error, elementsOf(parseResult.elements()));
+    }
+
+    /**
+     * Value of the first element with {@code ai}, or {@code null}.
+     */
+    public String value(String ai) {
+        for (Element element : elements) {
+            if (element.ai().equals(ai)) {
+                return element.value();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The scan as stored under {@code id}, without elements.
+     */
+    public Scan toScan(long id) {
+        return new Scan(id, createdAt.toString(), raw, normalized, source, port, symbologyId, parseOk, error, null);
+    }
+
+    static List<Element> elementsOf(List<ParsedElement> parsed) {
+        List<Element> elements = new ArrayList<>(parsed.size());
+        for (ParsedElement element : parsed) {
+            elements.add(new Element(element.element().ai(), element.element().value(), element.valueStart(), element.valueEnd()));
+        }
+        return elements;
+    }
+}
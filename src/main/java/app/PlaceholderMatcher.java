@@ -0,0 +1,205 @@
+package app;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a fixed set of placeholder spellings. Each state knows
+ * how far back the text it has seen could still be part of a match, and the longest
+ * spelling that ends at it, which is enough for leftmost-longest replacement while
+ * reading the text once. Instances are immutable and shared between threads.
+ */
+final class PlaceholderMatcher {
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+    private static final int ASCII = 128;
+
+    private final boolean ignoreCase;
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[] depth;
+    private final int[] matchLength;
+    private final int[] exactChar;
+    private final int[] asciiNext;
+
+    private PlaceholderMatcher(boolean ignoreCase, char[][] keys, int[][] targets, int[] fail, int[] depth,
+                               int[] matchLength, int[] exactChar, int[] asciiNext) {
+        this.ignoreCase = ignoreCase;
+        this.keys = keys;
+        this.targets = targets;
+        this.fail = fail;
+        this.depth = depth;
+        this.matchLength = matchLength;
+        this.exactChar = exactChar;
+        this.asciiNext = asciiNext;
+    }
+
+    /**
+     * Returns a matcher for the non-empty {@code patterns}, or {@code null} when there
+     * are none. With {@code ignoreCase} characters are compared the way
+     * {@code Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE} compares a quoted
+     * literal, including its quirk that a one-character literal without a case
+     * mapping, such as {@code ß}, only matches itself.
+     */
+    static PlaceholderMatcher compile(Collection<String> patterns, boolean ignoreCase) {
+        List<Map<Character, Integer>> edges = new ArrayList<>();
+        List<Integer> lengths = new ArrayList<>();
+        List<Integer> exact = new ArrayList<>();
+        edges.add(new TreeMap<>());
+        lengths.add(0);
+        exact.add(-1);
+        for (String pattern : patterns) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i), ignoreCase);
+                Integer next = edges.get(state).get(c);
+                if (next == null) {
+                    next = edges.size();
+                    edges.add(new TreeMap<>());
+                    lengths.add(0);
+                    exact.add(-1);
+                    edges.get(state).put(c, next);
+                }
+                state = next;
+            }
+            boolean exactOnly = ignoreCase && pattern.length() == 1 && !hasCaseMapping(pattern.charAt(0));
+            if (lengths.get(state) == 0) {
+                exact.set(state, exactOnly ? pattern.charAt(0) : -1);
+            } else if (!exactOnly) {
+                exact.set(state, -1);
+            }
+            lengths.set(state, pattern.length());
+        }
+        if (edges.size() == 1) {
+            return null;
+        }
+
+        int count = edges.size();
+        char[][] keys = new char[count][];
+        int[][] targets = new int[count][];
+        for (int state = 0; state < count; state++) {
+            Map<Character, Integer> out = edges.get(state);
+            keys[state] = out.isEmpty() ? NO_KEYS : new char[out.size()];
+            targets[state] = out.isEmpty() ? NO_TARGETS : new int[out.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> entry : out.entrySet()) {
+                keys[state][i] = entry.getKey();
+                targets[state][i] = entry.getValue();
+                i++;
+            }
+        }
+
+        int[] fail = new int[count];
+        int[] depth = new int[count];
+        int[] matchLength = new int[count];
+        int[] exactChar = new int[count];
+        exactChar[0] = -1;
+        int[] order = new int[count];
+        int visited = 0;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            order[visited++] = state;
+            for (int i = 0; i < keys[state].length; i++) {
+                int child = targets[state][i];
+                depth[child] = depth[state] + 1;
+                int link = 0;
+                if (state != 0) {
+                    link = fail[state];
+                    int found;
+                    while ((found = edge(keys, targets, link, keys[state][i])) < 0 && link != 0) {
+                        link = fail[link];
+                    }
+                    link = Math.max(found, 0);
+                }
+                fail[child] = link;
+                boolean own = lengths.get(child) > 0;
+                matchLength[child] = own ? lengths.get(child) : matchLength[link];
+                exactChar[child] = own ? exact.get(child) : exactChar[link];
+                queue.add(child);
+            }
+        }
+
+        // Transitions for ASCII input resolved through the failure links up front, so the
+        // common case is a single array read. States are filled in breadth-first order,
+        // which fills each failure state before the states that fall back to it.
+        int[] asciiNext = new int[count * ASCII];
+        for (int i = 0; i < count; i++) {
+            int state = order[i];
+            for (int c = 0; c < ASCII; c++) {
+                int target = edge(keys, targets, state, fold((char) c, ignoreCase));
+                asciiNext[state * ASCII + c] = target >= 0 ? target : state == 0 ? 0 : asciiNext[fail[state] * ASCII + c];
+            }
+        }
+        return new PlaceholderMatcher(ignoreCase, keys, targets, fail, depth, matchLength, exactChar, asciiNext);
+    }
+
+    int next(int state, char c) {
+        if (c < ASCII) {
+            return asciiNext[state * ASCII + c];
+        }
+        char key = fold(c, ignoreCase);
+        while (true) {
+            int target = edge(keys, targets, state, key);
+            if (target >= 0) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = fail[state];
+        }
+    }
+
+    /**
+     * Number of most recent characters that could still begin a match.
+     */
+    int depth(int state) {
+        return depth[state];
+    }
+
+    /**
+     * Length of the longest spelling ending at {@code last}, the character that led to
+     * {@code state}, or 0.
+     */
+    int matchLength(int state, char last) {
+        int exact = exactChar[state];
+        return exact < 0 || exact == last ? matchLength[state] : 0;
+    }
+
+    private static int edge(char[][] keys, int[][] targets, int state, char c) {
+        char[] candidates = keys[state];
+        int low = 0;
+        int high = candidates.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = candidates[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return targets[state][mid];
+            }
+        }
+        return -1;
+    }
+
+    private static boolean hasCaseMapping(char c) {
+        char upper = Character.toUpperCase(c);
+        return upper != Character.toLowerCase(upper);
+    }
+
+    private static char fold(char c, boolean ignoreCase) {
+        return ignoreCase ? Character.toLowerCase(Character.toUpperCase(c)) : c;
+    }
+}
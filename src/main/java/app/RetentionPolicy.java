@@ -0,0 +1,46 @@
+package app;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * What {@link Database} does with monthly partitions once they are more than
+ * {@code keepMonths} months older than the current one. The partition taking inserts
+ * is never touched.
+ */
+public record RetentionPolicy(int keepMonths, Action action, Path archiveDirectory) {
+    public enum Action {
+        /** Keep every partition. */
+        KEEP,
+        /** Write the partition to a {@link ScanArchive} file in the archive directory, then delete it. */
+        ARCHIVE,
+        /** Delete the partition. */
+        DROP
+    }
+
+    public RetentionPolicy {
+        Objects.requireNonNull(action, "action");
+        if (keepMonths < 0) {
+            throw new IllegalArgumentException("keepMonths must not be negative");
+        }
+        if ((action == Action.ARCHIVE) != (archiveDirectory != null)) {
+            throw new IllegalArgumentException("archiveDirectory must be given exactly when archiving");
+        }
+    }
+
+    public static RetentionPolicy keepAll() {
+        return new RetentionPolicy(0, Action.KEEP, null);
+    }
+
+    public static RetentionPolicy archiveAfter(int keepMonths, Path archiveDirectory) {
+        return new RetentionPolicy(keepMonths, Action.ARCHIVE, Objects.requireNonNull(archiveDirectory, "archiveDirectory"));
+    }
+
+    public static RetentionPolicy dropAfter(int keepMonths) {
+        return new RetentionPolicy(keepMonths, Action.DROP, null);
+    }
+
+    public boolean keepsAll() {
+        return action == Action.KEEP;
+    }
+}
@@ -0,0 +1,934 @@
+package app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+
+/**
+ * Compact column-oriented archive of the scan history, oldest scan first. Each
+ * column of {@code scans} and {@code scan_elements} is stored on its own:
+ * <ul>
+ *     <li>ids and timestamps as varint deltas from the previous row,</li>
+ *     <li>small numbers such as positions and element counts as varints,</li>
+ *     <li>text as length-prefixed UTF-8, or as a dictionary plus varint indexes when
+ *     that is smaller, which is the case for AI codes, sources, GTINs, lots and
+ *     expiry dates.</li>
+ * </ul>
+ * Element columns hold the elements of every scan in a row, split up by the
+ * {@link #ELEMENT_COUNT} column. Values of the {@link #KEYED_AIS} each have a
+ * column of their own, so unique serials cannot stop the GTINs and lots from being
+ * dictionary encoded; values of other AIs share {@link #ELEMENT_VALUE}. A directory of column offsets at the end of the
+ * file lets a {@link Reader} map and decode only the columns it asks for.
+ *
+ * <p>Columns are staged in temporary files next to the archive while it is written,
+ * so memory use does not grow with the history.
+ */
+public final class ScanArchive {
+    public static final String ID = "id";
+    public static final String CREATED_AT = "created_at";
+    public static final String RAW = "raw";
+    public static final String NORMALIZED = "normalized";
+    public static final String SOURCE = "source";
+    public static final String PORT = "port";
+    public static final String SYMBOLOGY_ID = "symbology_id";
+    public static final String PARSE_OK = "parse_ok";
+    public static final String ERROR = "error";
+    public static final String ELEMENT_COUNT = "element_count";
+    public static final String ELEMENT_AI = "element_ai";
+    public static final String ELEMENT_VALUE = "element_value";
+    public static final String ELEMENT_START = "element_start";
+    public static final String ELEMENT_LENGTH = "element_length";
+    /**
+     * AIs whose values are stored in a column of their own, named by
+     * {@link #elementValueColumn}.
+     */
+    public static final List<String> KEYED_AIS = List.of(ScanSearch.GTIN_AI, "10", "17", ScanSearch.SERIAL_AI);
+
+    private static final int MAGIC = 0x47534152; // "GSAR"
+    private static final int VERSION = 2;
+    private static final int FIRST_VERSION = 1;
+    private static final int FOOTER_SIZE = Long.BYTES + 2 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_DICTIONARY_ENTRIES = 1 << 16;
+    private static final long MAX_DICTIONARY_BYTES = 8L << 20;
+    private static final int RESTORE_BATCH_SIZE = 4096;
+    private static final List<String> SCAN_COLUMNS = List.of(ID, CREATED_AT, RAW, NORMALIZED, SOURCE, PORT, SYMBOLOGY_ID,
+            PARSE_OK, ERROR, ELEMENT_COUNT);
+    private static final List<String> ELEMENT_COLUMNS = List.of(ELEMENT_AI, ELEMENT_START, ELEMENT_LENGTH);
+
+    /**
+     * How a column is stored.
+     */
+    public enum Encoding {
+        /** Zigzag varint per row. */
+        LONG,
+        /** Zigzag varint difference from the previous row. */
+        LONG_DELTA,
+        /** Varint length plus one, 0 for null, then UTF-8 bytes, per row. */
+        STRING,
+        /** Dictionary of {@link #STRING} entries, then a varint per row: 0 for null, else entry plus one. */
+        STRING_DICTIONARY
+    }
+
+    private ScanArchive() {
+    }
+
+    /**
+     * The column holding the values of {@code ai}: a column of its own for the
+     * {@link #KEYED_AIS}, otherwise {@link #ELEMENT_VALUE}. Archives of version 1
+     * hold every value in {@link #ELEMENT_VALUE}.
+     */
+    public static String elementValueColumn(String ai) {
+        return ai != null && KEYED_AIS.contains(ai) ? ELEMENT_VALUE + "_" + ai : ELEMENT_VALUE;
+    }
+
+    /**
+     * Writes every scan in {@code database} to {@code file} and returns how many were
+     * written. Timestamps that are not in {@link Instant} form are kept as text.
+     */
+    public static long write(Database database, Path file) throws IOException, SQLException {
+        return write(handler -> database.forEachScan(true, false, handler), file);
+    }
+
+    /**
+     * Writes every scan in one partition, for retention.
+     */
+    static long write(Partition partition, Path file) throws IOException, SQLException {
+        return write(handler -> partition.forEachScan(true, false, handler), file);
+    }
+
+    private static long write(ScanCursor cursor, Path file) throws IOException, SQLException {
+        Path directory = file.toAbsolutePath().getParent();
+        List<ColumnWriter> columns = new ArrayList<>();
+        try {
+            LongColumn ids = add(columns, new LongColumn(ID, true, directory));
+            TimestampColumn createdAt = add(columns, new TimestampColumn(directory));
+            StringColumn raw = add(columns, new StringColumn(RAW, directory));
+            StringColumn normalized = add(columns, new StringColumn(NORMALIZED, directory));
+            StringColumn source = add(columns, new StringColumn(SOURCE, directory));
+            StringColumn port = add(columns, new StringColumn(PORT, directory));
+            StringColumn symbologyId = add(columns, new StringColumn(SYMBOLOGY_ID, directory));
+            LongColumn parseOk = add(columns, new LongColumn(PARSE_OK, false, directory));
+            StringColumn error = add(columns, new StringColumn(ERROR, directory));
+            LongColumn elementCount = add(columns, new LongColumn(ELEMENT_COUNT, false, directory));
+            StringColumn ai = add(columns, new StringColumn(ELEMENT_AI, directory));
+            StringColumn value = add(columns, new StringColumn(ELEMENT_VALUE, directory));
+            Map<String, StringColumn> keyedValues = new HashMap<>();
+            for (String keyed : KEYED_AIS) {
+                keyedValues.put(keyed, add(columns, new StringColumn(elementValueColumn(keyed), directory)));
+            }
+            LongColumn start = add(columns, new LongColumn(ELEMENT_START, false, directory));
+            LongColumn length = add(columns, new LongColumn(ELEMENT_LENGTH, false, directory));
+
+            long count = cursor.forEachScan(scan -> {
+                ids.add(scan.getId());
+                createdAt.add(scan.getCreatedAt());
+                raw.add(scan.getRaw());
+                normalized.add(scan.getNormalized());
+                source.add(scan.getSource());
+                port.add(scan.getPort());
+                symbologyId.add(scan.getSymbologyId());
+                parseOk.add(scan.isParseOk() ? 1 : 0);
+                error.add(scan.getError());
+                elementCount.add(scan.getElements().size());
+                for (ScanElement element : scan.getElements()) {
+                    ai.add(element.ai());
+                    keyedValues.getOrDefault(element.ai(), value).add(element.value());
+                    start.add(element.start());
+                    length.add(element.end() - element.start());
+                }
+                return true;
+            });
+            writeFile(file, columns);
+            return count;
+        } finally {
+            for (ColumnWriter column : columns) {
+                column.discard();
+            }
+        }
+    }
+
+    /**
+     * Stores every scan in the archive at {@code file} in {@code database}, oldest
+     * first, in large transactions, and returns how many were stored. Scans get new
+     * ids. Every column is decoded once before anything is stored, so a damaged
+     * archive is rejected as a whole. Each transaction also records an
+     * {@link ImportCheckpoint} for the archive, so a restore that fails part way
+     * carries on after the last batch stored when it is run again.
+     */
+    public static long restore(Path file, Database database) throws IOException, SQLException {
+        Path absolute = file.toAbsolutePath();
+        try (Reader reader = open(absolute)) {
+            reader.verify();
+            long size = Files.size(absolute);
+            long modified = Files.getLastModifiedTime(absolute).toMillis();
+            ImportCheckpoint checkpoint = database.findImportCheckpoint(absolute.toString());
+            long done = checkpoint != null && checkpoint.size() == size && checkpoint.modified() == modified
+                    ? checkpoint.records() : 0;
+            try {
+                long stored = restore(reader, database, absolute.toString(), size, modified, done);
+                database.deleteImportCheckpoint(absolute.toString());
+                return stored;
+            } catch (RuntimeException ex) {
+                throw new IOException("Scan archive is damaged", ex);
+            }
+        }
+    }
+
+    private static long restore(Reader reader, Database database, String file, long size, long modified, long done)
+            throws IOException, SQLException {
+        Iterator<Instant> createdAt = reader.timestamps();
+        Iterator<String> raw = reader.strings(RAW);
+        Iterator<String> normalized = reader.strings(NORMALIZED);
+        Iterator<String> source = reader.strings(SOURCE);
+        Iterator<String> port = reader.strings(PORT);
+        Iterator<String> symbologyId = reader.strings(SYMBOLOGY_ID);
+        PrimitiveIterator.OfLong parseOk = reader.longs(PARSE_OK);
+        Iterator<String> error = reader.strings(ERROR);
+        PrimitiveIterator.OfLong elementCount = reader.longs(ELEMENT_COUNT);
+        Iterator<String> ai = reader.strings(ELEMENT_AI);
+        Iterator<String> value = reader.elementValues();
+        PrimitiveIterator.OfLong start = reader.longs(ELEMENT_START);
+        PrimitiveIterator.OfLong length = reader.longs(ELEMENT_LENGTH);
+
+        List<PendingScan> batch = new ArrayList<>(RESTORE_BATCH_SIZE);
+        long stored = 0;
+        for (long row = 0; row < reader.scanCount(); row++) {
+            int count = (int) elementCount.nextLong();
+            List<PendingScan.Element> elements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int elementStart = (int) start.nextLong();
+                elements.add(new PendingScan.Element(ai.next(), value.next(), elementStart, elementStart + (int) length.nextLong()));
+            }
+            PendingScan scan = new PendingScan(createdAt.next(), raw.next(), normalized.next(), source.next(), port.next(),
+                    symbologyId.next(), parseOk.nextLong() != 0, error.next(), elements);
+            if (row < done) {
+                continue;
+            }
+            batch.add(scan);
+            if (batch.size() == RESTORE_BATCH_SIZE || row == reader.scanCount() - 1) {
+                database.insertScans(batch, new ImportCheckpoint(file, size, modified, row, row + 1));
+                stored += batch.size();
+                batch.clear();
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Opens an archive for reading. Columns are memory-mapped when first asked for.
+     */
+    public static Reader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new Reader(channel);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Read access to the columns of an archive. Each call to {@link #longs} or
+     * {@link #strings} decodes its column from the start.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final Map<String, Column> columns = new LinkedHashMap<>();
+
+        private Reader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            long size = channel.size();
+            if (size < 2L * Integer.BYTES + FOOTER_SIZE) {
+                throw new IOException("Not a scan archive");
+            }
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - FOOTER_SIZE, FOOTER_SIZE);
+            long directoryOffset = footer.getLong();
+            int version = footer.getInt();
+            if (footer.getInt() != MAGIC) {
+                throw new IOException("Not a scan archive");
+            }
+            if (version < FIRST_VERSION || version > VERSION) {
+                throw new IOException("Unsupported scan archive version " + version);
+            }
+            if (directoryOffset < Integer.BYTES || directoryOffset > size - FOOTER_SIZE) {
+                throw new IOException("Scan archive directory is damaged");
+            }
+            ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, size - FOOTER_SIZE - directoryOffset);
+            try {
+                long count = readVarLong(directory);
+                for (long i = 0; i < count; i++) {
+                    String name = readString(directory);
+                    Encoding encoding = Encoding.values()[directory.get()];
+                    long rows = readVarLong(directory);
+                    long offset = readVarLong(directory);
+                    long length = readVarLong(directory);
+                    if (offset < 0 || length < 0 || offset + length > directoryOffset) {
+                        throw new IOException("Scan archive column " + name + " is out of bounds");
+                    }
+                    columns.put(name, new Column(encoding, rows, offset, length));
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException("Scan archive directory is damaged", ex);
+            }
+            checkRows(SCAN_COLUMNS, columns.get(ID));
+            checkRows(ELEMENT_COLUMNS, columns.get(ELEMENT_AI));
+            long values = 0;
+            for (String name : valueColumns()) {
+                values += columns.get(name).rows();
+            }
+            if (values != elementCount()) {
+                throw new IOException("Scan archive has " + values + " element values, not " + elementCount());
+            }
+        }
+
+        /**
+         * The element value columns present: {@link #ELEMENT_VALUE} and, from
+         * version 2, one per keyed AI.
+         */
+        private List<String> valueColumns() throws IOException {
+            List<String> names = new ArrayList<>();
+            names.add(ELEMENT_VALUE);
+            for (String ai : KEYED_AIS) {
+                if (columns.containsKey(elementValueColumn(ai))) {
+                    names.add(elementValueColumn(ai));
+                }
+            }
+            if (!columns.containsKey(ELEMENT_VALUE)) {
+                throw new IOException("Scan archive has no " + ELEMENT_VALUE + " column");
+            }
+            return names;
+        }
+
+        private void checkRows(List<String> names, Column first) throws IOException {
+            if (first == null) {
+                throw new IOException("Scan archive has no " + names.get(0) + " column");
+            }
+            for (String name : names) {
+                Column column = columns.get(name);
+                if (column == null) {
+                    throw new IOException("Scan archive has no " + name + " column");
+                }
+                if (column.rows() != first.rows()) {
+                    throw new IOException("Scan archive column " + name + " has " + column.rows() + " rows, not "
+                            + first.rows());
+                }
+            }
+        }
+
+        /**
+         * Decodes every column to the end and checks that the element counts add up
+         * to the element columns.
+         *
+         * @throws IOException if any column is damaged
+         */
+        public void verify() throws IOException {
+            String current = null;
+            try {
+                for (String name : columns.keySet()) {
+                    current = name;
+                    Column column = columns.get(name);
+                    if (column.encoding() == Encoding.LONG || column.encoding() == Encoding.LONG_DELTA) {
+                        PrimitiveIterator.OfLong values = longs(name);
+                        long total = 0;
+                        while (values.hasNext()) {
+                            long value = values.nextLong();
+                            if (name.equals(ELEMENT_COUNT)) {
+                                if (value < 0 || value > Integer.MAX_VALUE) {
+                                    throw new IOException("Scan archive has a negative or huge element count");
+                                }
+                                total += value;
+                            }
+                        }
+                        if (name.equals(ELEMENT_COUNT) && total != elementCount()) {
+                            throw new IOException("Scan archive element counts add up to " + total + ", not "
+                                    + elementCount());
+                        }
+                    } else {
+                        Iterator<String> values = strings(name);
+                        while (values.hasNext()) {
+                            values.next();
+                        }
+                    }
+                }
+                current = ELEMENT_VALUE;
+                Iterator<String> values = elementValues();
+                while (values.hasNext()) {
+                    values.next();
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException("Scan archive column " + current + " is damaged", ex);
+            }
+        }
+
+        public long scanCount() {
+            return columns.get(ID).rows();
+        }
+
+        public long elementCount() {
+            return columns.get(ELEMENT_AI).rows();
+        }
+
+        public Set<String> columns() {
+            return Collections.unmodifiableSet(columns.keySet());
+        }
+
+        public Encoding encoding(String column) {
+            return column(column).encoding();
+        }
+
+        /**
+         * Values of a {@link Encoding#LONG} or {@link Encoding#LONG_DELTA} column.
+         */
+        public PrimitiveIterator.OfLong longs(String name) throws IOException {
+            Column column = column(name);
+            if (column.encoding() != Encoding.LONG && column.encoding() != Encoding.LONG_DELTA) {
+                throw new IllegalArgumentException(name + " is not a number column");
+            }
+            ByteBuffer data = map(column);
+            boolean delta = column.encoding() == Encoding.LONG_DELTA;
+            return new PrimitiveIterator.OfLong() {
+                private long remaining = column.rows();
+                private long previous;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public long nextLong() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    remaining--;
+                    long value = unzigzag(readVarLong(data));
+                    if (delta) {
+                        value += previous;
+                        previous = value;
+                    }
+                    return value;
+                }
+            };
+        }
+
+        /**
+         * Values of a {@link Encoding#STRING} or {@link Encoding#STRING_DICTIONARY}
+         * column.
+         */
+        public Iterator<String> strings(String name) throws IOException {
+            Column column = column(name);
+            if (column.encoding() != Encoding.STRING && column.encoding() != Encoding.STRING_DICTIONARY) {
+                throw new IllegalArgumentException(name + " is not a text column");
+            }
+            ByteBuffer data = map(column);
+            String[] dictionary;
+            if (column.encoding() == Encoding.STRING_DICTIONARY) {
+                long entries = readVarLong(data);
+                if (entries < 0 || entries > column.length()) {
+                    throw new IOException("Scan archive column " + name + " is damaged");
+                }
+                dictionary = new String[(int) entries];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(data);
+                }
+            } else {
+                dictionary = null;
+            }
+            return new Iterator<>() {
+                private long remaining = column.rows();
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                public String next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    remaining--;
+                    if (dictionary == null) {
+                        return readString(data);
+                    }
+                    int index = (int) readVarLong(data);
+                    return index == 0 ? null : dictionary[index - 1];
+                }
+            };
+        }
+
+        /**
+         * Every element value in element order, taken from the column that holds the
+         * values of each element's AI.
+         */
+        public Iterator<String> elementValues() throws IOException {
+            Iterator<String> ais = strings(ELEMENT_AI);
+            Map<String, Iterator<String>> values = new HashMap<>();
+            for (String name : valueColumns()) {
+                values.put(name, strings(name));
+            }
+            Iterator<String> shared = values.get(ELEMENT_VALUE);
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return ais.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return values.getOrDefault(elementValueColumn(ais.next()), shared).next();
+                }
+            };
+        }
+
+        /**
+         * Creation times from the {@link #CREATED_AT} column, whichever way it is
+         * stored. Text that is not an instant reads as the epoch.
+         */
+        public Iterator<Instant> timestamps() throws IOException {
+            if (encoding(CREATED_AT) == Encoding.LONG_DELTA) {
+                PrimitiveIterator.OfLong nanos = longs(CREATED_AT);
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return nanos.hasNext();
+                    }
+
+                    @Override
+                    public Instant next() {
+                        return instantOf(nanos.nextLong());
+                    }
+                };
+            }
+            Iterator<String> text = strings(CREATED_AT);
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return text.hasNext();
+                }
+
+                @Override
+                public Instant next() {
+                    String value = text.next();
+                    try {
+                        return value == null ? Instant.EPOCH : Instant.parse(value);
+                    } catch (DateTimeParseException ex) {
+                        return Instant.EPOCH;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private Column column(String name) {
+            Column column = columns.get(name);
+            if (column == null) {
+                throw new IllegalArgumentException("No column " + name);
+            }
+            return column;
+        }
+
+        private ByteBuffer map(Column column) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, column.offset(), column.length());
+        }
+    }
+
+    private record Column(Encoding encoding, long rows, long offset, long length) {
+    }
+
+    private static <T extends ColumnWriter> T add(List<ColumnWriter> columns, T column) {
+        columns.add(column);
+        return column;
+    }
+
+    /**
+     * Writes the magic number, each column and then the directory and footer.
+     */
+    private static void writeFile(Path file, List<ColumnWriter> columns) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            List<Column> written = new ArrayList<>(columns.size());
+            for (ColumnWriter column : columns) {
+                out.flush();
+                long offset = channel.position();
+                Encoding encoding = column.finish(out);
+                out.flush();
+                written.add(new Column(encoding, column.rows(), offset, channel.position() - offset));
+            }
+            long directoryOffset = channel.position();
+            writeVarLong(out, columns.size());
+            for (int i = 0; i < columns.size(); i++) {
+                Column column = written.get(i);
+                writeString(out, columns.get(i).name().getBytes(StandardCharsets.UTF_8));
+                out.writeByte(column.encoding().ordinal());
+                writeVarLong(out, column.rows());
+                writeVarLong(out, column.offset());
+                writeVarLong(out, column.length());
+            }
+            out.writeLong(directoryOffset);
+            out.writeInt(VERSION);
+            out.writeInt(MAGIC);
+            out.flush();
+        }
+    }
+
+    /**
+     * Streams scans with their elements, oldest first.
+     */
+    @FunctionalInterface
+    private interface ScanCursor {
+        long forEachScan(ScanRowHandler handler) throws IOException, SQLException;
+    }
+
+    private interface ColumnWriter {
+        String name();
+
+        long rows();
+
+        /**
+         * Writes the column's final form to {@code target} and returns its encoding.
+         */
+        Encoding finish(OutputStream target) throws IOException;
+
+        /**
+         * Deletes any staging files.
+         */
+        void discard();
+    }
+
+    /**
+     * A column staged in a temporary file while the archive is written.
+     */
+    private abstract static class StagedColumn implements ColumnWriter {
+        private final String name;
+        protected final Path staging;
+        protected final DataOutputStream out;
+        protected long rows;
+
+        StagedColumn(String name, Path directory) throws IOException {
+            this.name = name;
+            this.staging = Files.createTempFile(directory, "." + name, ".column");
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(staging), BUFFER_SIZE));
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public long rows() {
+            return rows;
+        }
+
+        protected void copyStaging(OutputStream target) throws IOException {
+            out.close();
+            Files.copy(staging, target);
+        }
+
+        @Override
+        public void discard() {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+            }
+            try {
+                Files.deleteIfExists(staging);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static final class LongColumn extends StagedColumn {
+        private final boolean delta;
+        private long previous;
+
+        LongColumn(String name, boolean delta, Path directory) throws IOException {
+            super(name, directory);
+            this.delta = delta;
+        }
+
+        void add(long value) throws IOException {
+            writeVarLong(out, zigzag(delta ? value - previous : value));
+            previous = value;
+            rows++;
+        }
+
+        @Override
+        public Encoding finish(OutputStream target) throws IOException {
+            copyStaging(target);
+            return delta ? Encoding.LONG_DELTA : Encoding.LONG;
+        }
+    }
+
+    /**
+     * Text staged as {@link Encoding#STRING} while a dictionary of the distinct values
+     * is kept, until it grows too large. The dictionary form is written if it comes
+     * out smaller.
+     */
+    private static final class StringColumn extends StagedColumn {
+        private Map<String, Integer> dictionary = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+        private long dictionaryBytes;
+        private long indexBytes;
+        private long plainBytes;
+
+        StringColumn(String name, Path directory) throws IOException {
+            super(name, directory);
+        }
+
+        void add(String value) throws IOException {
+            byte[] encoded = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            plainBytes += writeString(out, encoded);
+            rows++;
+            if (dictionary == null) {
+                return;
+            }
+            int index = 0;
+            if (value != null) {
+                Integer known = dictionary.get(value);
+                if (known == null) {
+                    if (entries.size() == MAX_DICTIONARY_ENTRIES || dictionaryBytes > MAX_DICTIONARY_BYTES) {
+                        dictionary = null;
+                        entries.clear();
+                        return;
+                    }
+                    entries.add(encoded);
+                    known = entries.size();
+                    dictionary.put(value, known);
+                    dictionaryBytes += varLongLength(encoded.length + 1) + encoded.length;
+                }
+                index = known;
+            }
+            indexBytes += varLongLength(index);
+        }
+
+        @Override
+        public Encoding finish(OutputStream target) throws IOException {
+            if (dictionary == null || varLongLength(entries.size()) + dictionaryBytes + indexBytes >= plainBytes) {
+                copyStaging(target);
+                return Encoding.STRING;
+            }
+            out.close();
+            writeVarLong(target, entries.size());
+            for (byte[] entry : entries) {
+                writeString(target, entry);
+            }
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(staging), BUFFER_SIZE)) {
+                for (long i = 0; i < rows; i++) {
+                    byte[] encoded = readString(in);
+                    writeVarLong(target, encoded == null ? 0 : dictionary.get(new String(encoded, StandardCharsets.UTF_8)));
+                }
+            }
+            return Encoding.STRING_DICTIONARY;
+        }
+    }
+
+    /**
+     * {@link #CREATED_AT} as {@link Encoding#LONG_DELTA} epoch nanoseconds. The first
+     * value that would not read back as the same text turns the column into a
+     * {@link StringColumn}, rebuilt from the values so far.
+     */
+    private static final class TimestampColumn implements ColumnWriter {
+        private final Path directory;
+        private LongColumn nanos;
+        private StringColumn text;
+
+        TimestampColumn(Path directory) throws IOException {
+            this.directory = directory;
+            this.nanos = new LongColumn(CREATED_AT, true, directory);
+        }
+
+        @Override
+        public String name() {
+            return CREATED_AT;
+        }
+
+        @Override
+        public long rows() {
+            return nanos != null ? nanos.rows() : text.rows();
+        }
+
+        void add(String value) throws IOException {
+            if (nanos != null) {
+                Long parsed = nanosOf(value);
+                if (parsed != null) {
+                    nanos.add(parsed);
+                    return;
+                }
+                toText();
+            }
+            text.add(value);
+        }
+
+        @Override
+        public Encoding finish(OutputStream target) throws IOException {
+            return nanos != null ? nanos.finish(target) : text.finish(target);
+        }
+
+        @Override
+        public void discard() {
+            if (nanos != null) {
+                nanos.discard();
+            }
+            if (text != null) {
+                text.discard();
+            }
+        }
+
+        private void toText() throws IOException {
+            text = new StringColumn(CREATED_AT, directory);
+            nanos.out.close();
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(nanos.staging), BUFFER_SIZE)) {
+                long previous = 0;
+                for (long i = 0; i < nanos.rows; i++) {
+                    previous += unzigzag(readVarLong(in));
+                    text.add(instantOf(previous).toString());
+                }
+            }
+            nanos.discard();
+            nanos = null;
+        }
+
+        private static Long nanosOf(String value) {
+            if (value == null) {
+                return null;
+            }
+            try {
+                Instant instant = Instant.parse(value);
+                if (!instant.toString().equals(value)) {
+                    return null;
+                }
+                return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+            } catch (DateTimeParseException | ArithmeticException ex) {
+                return null;
+            }
+        }
+    }
+
+    private static Instant instantOf(long nanos) {
+        return Instant.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L), Math.floorMod(nanos, 1_000_000_000L));
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varLongLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Writes {@code encoded} as a {@link Encoding#STRING} value and returns the bytes
+     * written.
+     */
+    private static int writeString(OutputStream out, byte[] encoded) throws IOException {
+        if (encoded == null) {
+            out.write(0);
+            return 1;
+        }
+        writeVarLong(out, encoded.length + 1L);
+        out.write(encoded);
+        return varLongLength(encoded.length + 1L) + encoded.length;
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return value;
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        long length = readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > in.remaining() || length < 0) {
+            throw new BufferUnderflowException();
+        }
+        byte[] encoded = new byte[(int) length - 1];
+        in.get(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readString(InputStream in) throws IOException {
+        int length = (int) readVarLong(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] encoded = in.readNBytes(length - 1);
+        if (encoded.length != length - 1) {
+            throw new EOFException();
+        }
+        return encoded;
+    }
+}
@@ -0,0 +1,68 @@
+package app;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Growable character buffer that is reused from scan to scan. Views handed out over
+ * it stay valid only until the owner starts the next scan.
+ */
+final class ScanBuffer implements CharSequence {
+    private char[] chars;
+    private int length;
+
+    ScanBuffer(int capacity) {
+        this.chars = new char[capacity];
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    void setLength(int length) {
+        this.length = length;
+    }
+
+    boolean contentEquals(String other) {
+        if (other == null || other.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chars[i] != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new String(chars, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
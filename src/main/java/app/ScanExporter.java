@@ -0,0 +1,275 @@
+package app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes every stored scan to a CSV or JSON file, newest first. Scans are streamed
+ * from a database cursor into a buffered writer, so memory use does not grow with
+ * the history. Values without characters that need escaping are written as they
+ * are. The file is written under a temporary name and moved into place once
+ * complete, so a failed or cancelled export leaves any earlier file untouched. Runs
+ * on the calling thread; {@link #cancel} stops it from another.
+ */
+public final class ScanExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    /**
+     * Told how far an export has got, at most a few times a second, on the exporting
+     * thread.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long rows, long rowsPerSecond);
+    }
+
+    private final Database database;
+    private volatile boolean cancelled;
+
+    public ScanExporter(Database database) {
+        this.database = Objects.requireNonNull(database, "database");
+    }
+
+    /**
+     * Asks a running export to stop. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Writes every scan to {@code file} and returns how many were written.
+     *
+     * @throws InterruptedIOException if the export was cancelled; {@code file} is
+     *                                then left as it was
+     */
+    public long export(Path file, Format format, Progress progress) throws IOException, SQLException {
+        Objects.requireNonNull(format, "format");
+        Objects.requireNonNull(progress, "progress");
+        Path absolute = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".part");
+        boolean moved = false;
+        try {
+            long rows = write(temporary, format, progress);
+            move(temporary, absolute);
+            moved = true;
+            return rows;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private long write(Path file, Format format, Progress progress) throws IOException, SQLException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            RateMeter meter = new RateMeter(progress);
+            long rows;
+            if (format == Format.CSV) {
+                writer.write("id,created_at,source,port,symbology_id,parse_ok,error,raw,normalized\n");
+                rows = database.forEachScan(false, scan -> {
+                    writeCsvRow(writer, scan);
+                    return meter.tick();
+                });
+            } else {
+                writer.write("[\n");
+                rows = database.forEachScan(true, scan -> {
+                    if (meter.rows > 0) {
+                        writer.write(",\n");
+                    }
+                    writeJsonObject(writer, scan);
+                    return meter.tick();
+                });
+                writer.write(rows > 0 ? "\n]\n" : "]\n");
+            }
+            if (cancelled) {
+                throw new InterruptedIOException("Export cancelled after " + meter.rows + " scans");
+            }
+            meter.report();
+            return rows;
+        }
+    }
+
+    private static void writeCsvRow(Writer writer, Scan scan) throws IOException {
+        writeCsv(writer, Long.toString(scan.getId()));
+        writer.write(',');
+        writeCsv(writer, scan.getCreatedAt());
+        writer.write(',');
+        writeCsv(writer, scan.getSource());
+        writer.write(',');
+        writeCsv(writer, scan.getPort());
+        writer.write(',');
+        writeCsv(writer, scan.getSymbologyId());
+        writer.write(',');
+        writer.write(scan.isParseOk() ? "true," : "false,");
+        writeCsv(writer, scan.getError());
+        writer.write(',');
+        writeCsv(writer, scan.getRaw());
+        writer.write(',');
+        writeCsv(writer, scan.getNormalized());
+        writer.write('\n');
+    }
+
+    private static void writeJsonObject(Writer writer, Scan scan) throws IOException {
+        writer.write("  {\n    \"id\": ");
+        writer.write(Long.toString(scan.getId()));
+        writer.write(",\n");
+        writeJsonField(writer, "created_at", scan.getCreatedAt());
+        writeJsonField(writer, "source", scan.getSource());
+        if (scan.getPort() != null) {
+            writeJsonField(writer, "port", scan.getPort());
+        }
+        if (scan.getSymbologyId() != null) {
+            writeJsonField(writer, "symbology_id", scan.getSymbologyId());
+        }
+        writer.write(scan.isParseOk() ? "    \"parse_ok\": true,\n" : "    \"parse_ok\": false,\n");
+        if (scan.getError() != null) {
+            writeJsonField(writer, "error", scan.getError());
+        }
+        writeJsonField(writer, "raw", scan.getRaw());
+        writeJsonField(writer, "normalized", scan.getNormalized());
+        writer.write("    \"elements\": [");
+        List<ScanElement> elements = scan.getElements();
+        for (int i = 0; i < elements.size(); i++) {
+            ScanElement element = elements.get(i);
+            if (i > 0) {
+                writer.write(", ");
+            }
+            writer.write("{\"ai\": \"");
+            writeJson(writer, element.ai());
+            writer.write("\", \"value\": \"");
+            writeJson(writer, element.value());
+            writer.write("\"}");
+        }
+        writer.write("]\n  }");
+    }
+
+    private static void writeJsonField(Writer writer, String name, String value) throws IOException {
+        writer.write("    \"");
+        writer.write(name);
+        writer.write("\": \"");
+        writeJson(writer, value);
+        writer.write("\",\n");
+    }
+
+    /**
+     * Writes {@code value} in double quotes with quotes doubled; {@code null} is
+     * written as an empty field.
+     */
+    static void writeCsv(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        writer.write('"');
+        int quote = value.indexOf('"');
+        if (quote < 0) {
+            writer.write(value);
+        } else {
+            int start = 0;
+            while (quote >= 0) {
+                writer.write(value, start, quote + 1 - start);
+                writer.write('"');
+                start = quote + 1;
+                quote = value.indexOf('"', start);
+            }
+            writer.write(value, start, value.length() - start);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Writes the contents of a JSON string; {@code null} is written as an empty
+     * string. Control characters such as GS are written as {@code \\u} escapes.
+     */
+    static void writeJson(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"', '\\' -> {
+                    writer.write('\\');
+                    writer.write(c);
+                }
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    writer.write("\\u00");
+                    writer.write(HEX[c >> 4]);
+                    writer.write(HEX[c & 0xF]);
+                }
+            }
+        }
+        writer.write(value, start, length - start);
+    }
+
+    /**
+     * Counts rows and reports the rate since the export started.
+     */
+    private final class RateMeter {
+        private final Progress progress;
+        private final long startNanos = System.nanoTime();
+        private long lastReport = startNanos;
+        private long rows;
+
+        RateMeter(Progress progress) {
+            this.progress = progress;
+        }
+
+        /**
+         * Counts one row; returns {@code false} once the export has been cancelled.
+         */
+        boolean tick() {
+            rows++;
+            if ((rows & 0xFF) == 0) {
+                long now = System.nanoTime();
+                if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                    lastReport = now;
+                    report();
+                }
+                return !cancelled;
+            }
+            return true;
+        }
+
+        void report() {
+            long elapsed = Math.max(System.nanoTime() - startNanos, 1);
+            progress.update(rows, rows * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Splits scan dumps into records directly from channel bytes. Records end at CR, LF,
+ * ETX or NUL, the same terminators the serial reader uses, and are decoded as UTF-8
+ * into a reused buffer. Only one read buffer (or mapped window) and the current
+ * record are held at a time, so files of any size stream through.
+ */
+public final class ScanFileReader implements Closeable {
+    public static final int DEFAULT_MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 256 * 1024;
+    private static final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+    private static final long MAP_THRESHOLD = 16L * 1024 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final FileChannel mappedChannel;
+    private final int maxRecordLength;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private byte[] recordBytes = new byte[256];
+    private int recordLength;
+    private long recordOffset;
+    private boolean discarding;
+    private CharBuffer recordChars = CharBuffer.allocate(256);
+    private long skippedRecords;
+    private long delivered;
+    private boolean stopped;
+
+    public ScanFileReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    public ScanFileReader(ReadableByteChannel channel, int maxRecordLength) {
+        this(channel, null, maxRecordLength);
+    }
+
+    private ScanFileReader(ReadableByteChannel channel, FileChannel mappedChannel, int maxRecordLength) {
+        this.channel = channel;
+        this.mappedChannel = mappedChannel;
+        this.maxRecordLength = Math.max(1, maxRecordLength);
+    }
+
+    /**
+     * Opens {@code path}, memory-mapping it when it is large enough for mapping to pay off.
+     */
+    public static ScanFileReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        boolean mapped;
+        try {
+            mapped = channel.size() >= MAP_THRESHOLD;
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        return new ScanFileReader(channel, mapped ? channel : null, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    public static ScanFileReader open(Path path, boolean memoryMapped) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new ScanFileReader(channel, memoryMapped ? channel : null, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    /**
+     * Reads until the end of the source or until {@code handler} returns {@code false}.
+     *
+     * @return the number of records delivered
+     */
+    public long readAll(ScanRecordHandler handler) throws IOException {
+        return readAll(0, handler);
+    }
+
+    /**
+     * Reads like {@link #readAll(ScanRecordHandler)}, starting {@code startOffset}
+     * bytes in, which should be the start of a record. Offsets given to the handler
+     * still count from the start of the source. A start past 0 needs a seekable
+     * source.
+     *
+     * @return the number of records delivered
+     */
+    public long readAll(long startOffset, ScanRecordHandler handler) throws IOException {
+        Objects.requireNonNull(handler, "handler");
+        if (startOffset < 0) {
+            throw new IllegalArgumentException("startOffset must not be negative");
+        }
+        delivered = 0;
+        stopped = false;
+        recordLength = 0;
+        discarding = false;
+        long position = startOffset;
+        if (startOffset > 0 && mappedChannel == null) {
+            if (!(channel instanceof SeekableByteChannel seekable)) {
+                throw new IllegalArgumentException("Source cannot start at an offset");
+            }
+            seekable.position(startOffset);
+        }
+        if (mappedChannel != null) {
+            long size = mappedChannel.size();
+            while (position < size && !stopped) {
+                long window = Math.min(MAP_WINDOW_SIZE, size - position);
+                split(mappedChannel.map(FileChannel.MapMode.READ_ONLY, position, window), position, handler);
+                position += window;
+            }
+        } else {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+            while (!stopped && channel.read(buffer) >= 0) {
+                buffer.flip();
+                int length = buffer.remaining();
+                split(buffer, position, handler);
+                position += length;
+                buffer.clear();
+            }
+        }
+        if (!stopped) {
+            emit(handler);
+        }
+        return delivered;
+    }
+
+    /**
+     * Number of records dropped because they exceeded the maximum record length.
+     */
+    public long skippedRecords() {
+        return skippedRecords;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void split(ByteBuffer buffer, long basePosition, ScanRecordHandler handler) {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        while (start < limit && !stopped) {
+            int end = start;
+            while (end < limit && !isDelimiter(buffer.get(end))) {
+                end++;
+            }
+            append(buffer, start, end, basePosition);
+            if (end == limit) {
+                break;
+            }
+            emit(handler);
+            start = end + 1;
+        }
+    }
+
+    private void append(ByteBuffer buffer, int start, int end, long basePosition) {
+        int length = end - start;
+        if (length == 0 || discarding) {
+            return;
+        }
+        if (recordLength == 0) {
+            recordOffset = basePosition + start;
+        }
+        if (recordLength + length > maxRecordLength) {
+            discarding = true;
+            recordLength = 0;
+            skippedRecords++;
+            return;
+        }
+        if (recordLength + length > recordBytes.length) {
+            recordBytes = Arrays.copyOf(recordBytes, Math.min(maxRecordLength, Math.max(recordBytes.length * 2, recordLength + length)));
+        }
+        buffer.get(start, recordBytes, recordLength, length);
+        recordLength += length;
+    }
+
+    private void emit(ScanRecordHandler handler) {
+        discarding = false;
+        if (recordLength == 0) {
+            return;
+        }
+        CharBuffer chars = decode();
+        recordLength = 0;
+        delivered++;
+        if (!handler.onRecord(chars, recordOffset)) {
+            stopped = true;
+        }
+    }
+
+    private CharBuffer decode() {
+        if (recordChars.capacity() < recordLength) {
+            recordChars = CharBuffer.allocate(Math.max(recordChars.capacity() * 2, recordLength));
+        }
+        recordChars.clear();
+        boolean ascii = true;
+        for (int i = 0; i < recordLength; i++) {
+            if (recordBytes[i] < 0) {
+                ascii = false;
+                break;
+            }
+        }
+        if (ascii) {
+            char[] target = recordChars.array();
+            for (int i = 0; i < recordLength; i++) {
+                target[i] = (char) recordBytes[i];
+            }
+            recordChars.position(recordLength);
+        } else {
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(recordBytes, 0, recordLength), recordChars, true);
+            decoder.flush(recordChars);
+        }
+        recordChars.flip();
+        return recordChars;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == '\r' || b == '\n' || b == 0x03 || b == 0x00;
+    }
+}
@@ -0,0 +1,340 @@
+package app;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Table of every stored scan, newest first, read from the database a page at a time.
+ * Rows are numbered from the newest scan as of the last {@link #refresh}. A page is
+ * located by keyset from a neighbouring cached page when there is one, and by an
+ * offset on the primary key otherwise, and loaded on a background thread together
+ * with the pages either side of it. Only the most recently used pages are kept, and
+ * rows hold no elements. Must be used on the EDT.
+ *
+ * <p>Scans stored since the last refresh are {@link #append appended} above the paged
+ * rows without touching the database. Each full page of them is folded into the page
+ * cache as page 0, so an append costs the same however much history there is. Scans
+ * stored by anything other than capture are not appended; a fold that finds them
+ * refreshes the table.
+ */
+final class ScanHistoryModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    static final int PAGE_SIZE = 256;
+    private static final int CACHED_PAGES = 48;
+    private static final int FRAME_INTERVAL_MS = 16;
+    private static final int RETRY_DELAY_MS = 2000;
+    static final String[] COLUMNS = {"ID", "Created", "Source", "Status", "Raw"};
+
+    private final Database database;
+    private final Consumer<Exception> errorHandler;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HistoryLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Integer, List<Scan>> pages = new LinkedHashMap<>(CACHED_PAGES * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Scan>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    /** First and last id of each page read, touched only by the loader thread. */
+    private final Map<Integer, long[]> bounds = new HashMap<>();
+    private int boundsEpoch;
+    /** Scans appended since the last refresh, oldest first; row 0 is the last one. */
+    private final List<Scan> fresh = new ArrayList<>();
+    private final List<Scan> arrived = new ArrayList<>();
+    private final Timer flushTimer;
+    private long topId;
+    private int baseCount;
+    private int refreshes;
+    private int epochs;
+    /** Identifies the current page numbering; loads started under another are dropped. */
+    private int shownEpoch;
+    /** Last epoch a failed page load was reported in, so a broken database is reported once. */
+    private int reportedEpoch;
+
+    ScanHistoryModel(Database database, Consumer<Exception> errorHandler) {
+        this.database = database;
+        this.errorHandler = errorHandler;
+        this.flushTimer = new Timer(FRAME_INTERVAL_MS, e -> flush());
+        this.flushTimer.setRepeats(false);
+    }
+
+    /**
+     * Re-reads the newest scan id and row count and drops every cached page. The first
+     * page is loaded before the table is told, so {@code then} can select row 0.
+     * Appended scans newer than the ones read stay on top.
+     */
+    void refresh(Runnable then) {
+        int request = ++refreshes;
+        int epoch = ++epochs;
+        loader.execute(() -> {
+            try {
+                long newest = database.newestScanId();
+                long count = database.countScans(newest);
+                List<Scan> first = readPage(epoch, newest, 0);
+                SwingUtilities.invokeLater(() -> {
+                    if (request != refreshes) {
+                        return;
+                    }
+                    shownEpoch = epoch;
+                    topId = newest;
+                    baseCount = (int) Math.min(count, Integer.MAX_VALUE);
+                    fresh.removeIf(scan -> scan.getId() <= newest);
+                    pages.clear();
+                    loading.clear();
+                    pages.put(0, first);
+                    fireTableDataChanged();
+                    then.run();
+                });
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> errorHandler.accept(ex));
+            }
+        });
+    }
+
+    /**
+     * The scan shown in {@code row}, without elements, or {@code null} while its page
+     * is still loading.
+     */
+    Scan scanAt(int row) {
+        if (row < fresh.size()) {
+            return fresh.get(fresh.size() - 1 - row);
+        }
+        int baseRow = row - fresh.size();
+        List<Scan> page = pages.get(baseRow / PAGE_SIZE);
+        int index = baseRow % PAGE_SIZE;
+        if (page == null) {
+            request(baseRow / PAGE_SIZE);
+            return null;
+        }
+        return index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * Adds a just stored scan at the top. Scans arriving within one frame interval are
+     * inserted together with a single event.
+     */
+    void append(Scan scan) {
+        arrived.add(scan);
+        if (!flushTimer.isRunning()) {
+            flushTimer.start();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return baseCount + fresh.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Scan scan = scanAt(row);
+        if (scan == null) {
+            return column == 0 ? "…" : null;
+        }
+        return valueAt(scan, column);
+    }
+
+    /**
+     * What {@code column} shows for {@code scan}.
+     */
+    static Object valueAt(Scan scan, int column) {
+        return switch (column) {
+            case 0 -> scan.getId();
+            case 1 -> scan.getCreatedAt();
+            case 2 -> scan.getSource();
+            case 3 -> scan.isParseOk() ? "OK" : "Error";
+            default -> GS1Parser.withVisibleControlChars(scan.getRaw());
+        };
+    }
+
+    /**
+     * Loads {@code page} and then the pages after and before it, unless they are
+     * cached or already on their way.
+     */
+    private void request(int page) {
+        load(page);
+        load(page + 1);
+        load(page - 1);
+    }
+
+    private void load(int page) {
+        if (page < 0 || (long) page * PAGE_SIZE >= baseCount || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int expected = shownEpoch;
+        long top = topId;
+        loader.execute(() -> {
+            try {
+                List<Scan> rows = readPage(expected, top, page);
+                SwingUtilities.invokeLater(() -> loaded(expected, page, rows));
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> failed(expected, page, ex));
+            }
+        });
+    }
+
+    /**
+     * Reads a page on the loader thread, starting from the page above or below it
+     * when one has been read for the same refresh.
+     */
+    private List<Scan> readPage(int epoch, long top, int page) throws SQLException {
+        if (boundsEpoch != epoch) {
+            boundsEpoch = epoch;
+            bounds.clear();
+        }
+        long[] above = bounds.get(page - 1);
+        long[] below = bounds.get(page + 1);
+        long from;
+        if (above != null) {
+            from = above[1] - 1;
+        } else if (below != null) {
+            from = database.scanIdAbove(below[0], PAGE_SIZE);
+        } else {
+            from = database.scanIdAt(top, (long) page * PAGE_SIZE);
+        }
+        List<Scan> rows = from < 0 ? List.of() : database.listScanHeaders(from, PAGE_SIZE);
+        if (!rows.isEmpty()) {
+            bounds.put(page, new long[]{rows.get(0).getId(), rows.get(rows.size() - 1).getId()});
+        }
+        return rows;
+    }
+
+    private void loaded(int expected, int page, List<Scan> rows) {
+        if (expected != shownEpoch) {
+            return;
+        }
+        loading.remove(page);
+        pages.put(page, rows);
+        firePageUpdated(page);
+    }
+
+    /**
+     * Keeps a page that failed to load marked as loading for a while, so it is not
+     * retried on every paint, and then lets the next paint request it again.
+     */
+    private void failed(int expected, int page, SQLException ex) {
+        if (expected != shownEpoch) {
+            return;
+        }
+        if (reportedEpoch != expected) {
+            reportedEpoch = expected;
+            errorHandler.accept(ex);
+        }
+        Timer retry = new Timer(RETRY_DELAY_MS, e -> {
+            if (expected == shownEpoch && loading.remove(page)) {
+                firePageUpdated(page);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+
+    private void firePageUpdated(int page) {
+        int first = page * PAGE_SIZE;
+        int last = Math.min(first + PAGE_SIZE, baseCount) - 1;
+        if (first <= last) {
+            fireTableRowsUpdated(first + fresh.size(), last + fresh.size());
+        }
+    }
+
+    private void flush() {
+        long newest = fresh.isEmpty() ? topId : fresh.get(fresh.size() - 1).getId();
+        int added = 0;
+        for (Scan scan : arrived) {
+            if (scan.getId() > newest) {
+                fresh.add(scan);
+                newest = scan.getId();
+                added++;
+            }
+        }
+        arrived.clear();
+        if (added == 0) {
+            return;
+        }
+        fireTableRowsInserted(0, added - 1);
+        if (fresh.size() >= PAGE_SIZE) {
+            fold();
+        }
+    }
+
+    /**
+     * Moves whole pages of the oldest appended scans into the page cache. Row numbers
+     * do not change, so no event is needed, but cached pages move down by one index per
+     * page folded and loads still in flight are dropped.
+     */
+    private void fold() {
+        int folded = fresh.size() / PAGE_SIZE;
+        Map<Integer, List<Scan>> shifted = new LinkedHashMap<>();
+        for (Map.Entry<Integer, List<Scan>> entry : pages.entrySet()) {
+            shifted.put(entry.getKey() + folded, entry.getValue());
+        }
+        pages.clear();
+        for (int i = 0; i < folded; i++) {
+            List<Scan> page = new ArrayList<>(fresh.subList(i * PAGE_SIZE, (i + 1) * PAGE_SIZE));
+            Collections.reverse(page);
+            shifted.put(folded - 1 - i, page);
+        }
+        pages.putAll(shifted);
+        long previousTop = topId;
+        topId = fresh.get(folded * PAGE_SIZE - 1).getId();
+        baseCount += folded * PAGE_SIZE;
+        fresh.subList(0, folded * PAGE_SIZE).clear();
+        loading.clear();
+        shownEpoch = ++epochs;
+        verifyFold(shownEpoch, previousTop, topId, folded * PAGE_SIZE);
+    }
+
+    /**
+     * Checks on the loader thread that the rows folded are all the scans stored between
+     * the old and new top, and refreshes if scans arrived some other way, such as an
+     * import, since their rows would be missing and every offset below them wrong.
+     */
+    private void verifyFold(int epoch, long previousTop, long newTop, int rows) {
+        loader.execute(() -> {
+            try {
+                if (database.countScans(previousTop, newTop) != rows) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (epoch == shownEpoch) {
+                            refresh(() -> {
+                            });
+                        }
+                    });
+                }
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> errorHandler.accept(ex));
+            }
+        });
+    }
+}
@@ -0,0 +1,260 @@
+package app;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports a file of scans, one per record, in bulk. The calling thread reads the
+ * file in chunks of {@link #CHUNK_SIZE} records and hands each chunk to the pool to
+ * be normalized and then parsed by {@link GS1Parser#parseAll} on the same pool,
+ * keeping one chunk per worker plus one in flight. Chunks
+ * are inserted in file order, each in one transaction that also moves the
+ * {@link ImportCheckpoint} on, so an import that stops for any reason can be resumed
+ * after the last chunk stored. Empty and over-long records are skipped.
+ */
+public final class ScanImportJob {
+    static final int CHUNK_SIZE = 2048;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    /**
+     * Told how far the import has got, at most a few times a second, on the
+     * importing thread.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long records, long bytesRead, long fileSize, long recordsPerSecond);
+    }
+
+    /**
+     * Outcome of {@link #run}. {@code records} counts the records read in this run.
+     */
+    public record Result(long records, long stored, long skipped, boolean cancelled) {
+    }
+
+    private final Database database;
+    private final Path file;
+    private final SettingsSnapshot settings;
+    private final ForkJoinPool pool;
+    private volatile boolean cancelled;
+
+    public ScanImportJob(Database database, Path file, SettingsSnapshot settings) {
+        this(database, file, settings, ForkJoinPool.commonPool());
+    }
+
+    public ScanImportJob(Database database, Path file, SettingsSnapshot settings, ForkJoinPool pool) {
+        this.database = Objects.requireNonNull(database, "database");
+        this.file = file.toAbsolutePath();
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.pool = Objects.requireNonNull(pool, "pool");
+    }
+
+    /**
+     * The checkpoint of an earlier, unfinished import of this file, or {@code null}
+     * if there is none or the file has changed since.
+     */
+    public ImportCheckpoint checkpoint() throws IOException, SQLException {
+        ImportCheckpoint checkpoint = database.findImportCheckpoint(file.toString());
+        if (checkpoint == null) {
+            return null;
+        }
+        if (checkpoint.size() != Files.size(file) || checkpoint.modified() != Files.getLastModifiedTime(file).toMillis()) {
+            return null;
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Stops the import after the chunks already parsed have been stored. May be
+     * called from any thread.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Imports the file, after the records covered by {@code resumeFrom} if it is not
+     * {@code null}. The checkpoint is removed once the whole file has been stored.
+     */
+    public Result run(ImportCheckpoint resumeFrom, Progress progress) throws IOException, SQLException {
+        Objects.requireNonNull(progress, "progress");
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        long skipUpTo = resumeFrom == null ? -1 : resumeFrom.recordOffset();
+        Run run = new Run(size, modified, resumeFrom == null ? 0 : resumeFrom.records(), progress);
+        try (ScanFileReader reader = ScanFileReader.open(file)) {
+            reader.readAll(Math.max(skipUpTo, 0), (record, offset) -> {
+                if (offset <= skipUpTo) {
+                    return true;
+                }
+                run.add(record.toString(), offset);
+                return !cancelled;
+            });
+            run.finish();
+        } catch (CompletionException ex) {
+            throw rethrow(ex.getCause());
+        } finally {
+            run.abandon();
+        }
+        if (!cancelled) {
+            database.deleteImportCheckpoint(file.toString());
+        }
+        run.report();
+        return new Result(run.records, run.stored, run.skipped, cancelled);
+    }
+
+    private static RuntimeException rethrow(Throwable cause) throws IOException, SQLException {
+        if (cause instanceof SQLException ex) {
+            throw ex;
+        }
+        if (cause instanceof IOException ex) {
+            throw ex;
+        }
+        if (cause instanceof RuntimeException ex) {
+            throw ex;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    /**
+     * A chunk of records read; {@code scans} is filled in by a pool worker.
+     */
+    private record Chunk(List<String> lines, long lastOffset, CompletableFuture<List<PendingScan>> scans) {
+    }
+
+    /**
+     * State of one {@link #run}, used by the reading thread only.
+     */
+    private final class Run {
+        private final long size;
+        private final long modified;
+        private final long recordsBefore;
+        private final Progress progress;
+        private final ArrayDeque<Chunk> inFlight = new ArrayDeque<>();
+        private final long startNanos = System.nanoTime();
+        private long lastReport = startNanos;
+        private List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        private long lastOffset;
+        private long records;
+        private long stored;
+        private long skipped;
+        private long bytesRead;
+
+        Run(long size, long modified, long recordsBefore, Progress progress) {
+            this.size = size;
+            this.modified = modified;
+            this.recordsBefore = recordsBefore;
+            this.progress = progress;
+        }
+
+        void add(String line, long offset) {
+            lines.add(line);
+            lastOffset = offset;
+            bytesRead = offset;
+            if (lines.size() == CHUNK_SIZE) {
+                submit();
+            }
+        }
+
+        void finish() throws SQLException {
+            if (!lines.isEmpty()) {
+                submit();
+            }
+            while (!inFlight.isEmpty()) {
+                store(inFlight.poll());
+            }
+            if (!cancelled) {
+                bytesRead = size;
+            }
+        }
+
+        /**
+         * Cancels chunks parsed but not stored after a failure.
+         */
+        void abandon() {
+            for (Chunk chunk : inFlight) {
+                chunk.scans().cancel(false);
+            }
+            inFlight.clear();
+        }
+
+        private void submit() {
+            List<String> chunk = lines;
+            lines = new ArrayList<>(CHUNK_SIZE);
+            inFlight.add(new Chunk(chunk, lastOffset, CompletableFuture.supplyAsync(() -> parse(chunk), pool)));
+            if (inFlight.size() > pool.getParallelism()) {
+                try {
+                    store(inFlight.poll());
+                } catch (SQLException ex) {
+                    throw new CompletionException(ex);
+                }
+            }
+        }
+
+        private List<PendingScan> parse(List<String> chunk) {
+            CompiledNormalizer normalizer = settings.normalizationOptions().compiled();
+            CompiledNormalizer.Workspace workspace = new CompiledNormalizer.Workspace();
+            List<NormalizationResult> normalizations = new ArrayList<>(chunk.size());
+            List<String> normalized = new ArrayList<>(chunk.size());
+            for (String line : chunk) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                normalizer.normalize(line, workspace);
+                int length = workspace.text().length();
+                if (length == 0 || length > settings.maxScanLength()) {
+                    continue;
+                }
+                NormalizationResult normalization = workspace.toResult(line);
+                normalizations.add(normalization);
+                normalized.add(normalization.normalized());
+            }
+            List<ParseResult> parsed = GS1Parser.parseAll(normalized, settings.parseOptions(), pool);
+            Instant now = Instant.now();
+            String source = ScanSource.IMPORT.display();
+            List<PendingScan> scans = new ArrayList<>(normalizations.size());
+            for (int i = 0; i < normalizations.size(); i++) {
+                scans.add(PendingScan.of(normalizations.get(i), parsed.get(i), source, null, now));
+            }
+            return scans;
+        }
+
+        private void store(Chunk chunk) throws SQLException {
+            List<PendingScan> scans;
+            try {
+                scans = chunk.scans().get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            } catch (ExecutionException ex) {
+                throw new CompletionException(ex.getCause());
+            }
+            long total = recordsBefore + records + chunk.lines().size();
+            database.insertScans(scans, new ImportCheckpoint(file.toString(), size, modified, chunk.lastOffset(), total));
+            records += chunk.lines().size();
+            stored += scans.size();
+            skipped += chunk.lines().size() - scans.size();
+            long now = System.nanoTime();
+            if (now - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                lastReport = now;
+                report();
+            }
+        }
+
+        void report() {
+            long elapsed = Math.max(System.nanoTime() - startNanos, 1);
+            progress.update(recordsBefore + records, bytesRead, size, records * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+    }
+}
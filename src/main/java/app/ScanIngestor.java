@@ -0,0 +1,304 @@
+package app;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Takes raw scans from every source and normalizes, deduplicates, parses and queues
+ * them for writing on worker threads, so capture threads and the EDT only hand scans
+ * over. Each {@link ScanSource} has its own bounded queue and worker, which keeps
+ * scans from one source in order and lets duplicate suppression compare each scan
+ * with the previous one from the same source. With a {@link SerialIndex}, scans
+ * whose GTIN and serial or SSCC were seen before are reported as they are accepted,
+ * and still stored. With a {@link ParseCache}, scans are parsed through it, so a
+ * payload scanned again is not parsed twice and the history shows a scan just taken
+ * without parsing it again. Outcomes are reported to a {@link Listener} on the
+ * worker or writer thread.
+ */
+public final class ScanIngestor implements AutoCloseable {
+    static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final long POLL_MILLIS = 100;
+
+    /**
+     * Why a scan was dropped before it was stored.
+     */
+    public enum Rejection {
+        EMPTY, TOO_LONG, DUPLICATE
+    }
+
+    /**
+     * Where a scan came from and whether its outcome should be shown to the operator.
+     */
+    public record Submission(ScanSource source, String port, boolean silent) {
+        public Submission {
+            Objects.requireNonNull(source, "source");
+        }
+    }
+
+    /**
+     * Receives outcomes. Methods are called on ingestion and writer threads.
+     */
+    public interface Listener {
+        default void rejected(Submission submission, Rejection rejection, SettingsSnapshot snapshot) {
+        }
+
+        /**
+         * The scan was parsed and handed to the writer.
+         */
+        default void accepted(Submission submission, PendingScan scan) {
+        }
+
+        /**
+         * The scan carries a GTIN and serial or an SSCC that was stored or submitted
+         * before. Called before {@link #accepted}.
+         */
+        default void serialReused(Submission submission, PendingScan scan, SerialIndex.Key key) {
+        }
+
+        /**
+         * The scan could not be checked for a reused serial; it is written all the same.
+         * Called before {@link #accepted}.
+         */
+        default void serialCheckFailed(Submission submission, PendingScan scan, SQLException failure) {
+        }
+
+        default void stored(Submission submission, PendingScan scan, long id, long normalizeNanos) {
+        }
+
+        /**
+         * Processing or writing failed; {@code scan} is {@code null} if it failed before
+         * the scan was parsed.
+         */
+        default void failed(Submission submission, PendingScan scan, Throwable failure) {
+        }
+    }
+
+    private final Supplier<SettingsSnapshot> settings;
+    private final ScanWriter writer;
+    private final SerialIndex serials;
+    private final ParseCache parseCache;
+    private final Listener listener;
+    private final int queueCapacity;
+    private final Map<ScanSource, Lane> lanes = new EnumMap<>(ScanSource.class);
+    /** Set under the {@code lanes} lock, so no lane starts after {@link #close} looked. */
+    private volatile boolean closing;
+
+    public ScanIngestor(Supplier<SettingsSnapshot> settings, ScanWriter writer, Listener listener) {
+        this(settings, writer, null, null, listener, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ScanIngestor(Supplier<SettingsSnapshot> settings, ScanWriter writer, SerialIndex serials,
+                        ParseCache parseCache, Listener listener) {
+        this(settings, writer, serials, parseCache, listener, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param serials index to check for reused serials, or {@code null} not to check
+     * @param parseCache cache to parse through, or {@code null} to parse every scan;
+     *                   the caller invalidates it when the settings change
+     */
+    public ScanIngestor(Supplier<SettingsSnapshot> settings, ScanWriter writer, SerialIndex serials,
+                        ParseCache parseCache, Listener listener, int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1");
+        }
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.writer = Objects.requireNonNull(writer, "writer");
+        this.serials = serials;
+        this.parseCache = parseCache;
+        this.listener = Objects.requireNonNull(listener, "listener");
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Queues {@code raw}, waiting while the source's queue is full.
+     */
+    public void submit(String raw, Submission submission) throws InterruptedException {
+        Lane lane = lane(submission);
+        try {
+            lane.queue.put(new Job(raw, null, submission, Instant.now()));
+        } finally {
+            lane.submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues {@code length} bytes of {@code line} from {@code offset}, read one
+     * character per byte. The bytes are copied, so the array may be reused at once.
+     */
+    public void submit(byte[] line, int offset, int length, Submission submission) throws InterruptedException {
+        Objects.checkFromIndexSize(offset, length, line.length);
+        byte[] copy = new byte[length];
+        System.arraycopy(line, offset, copy, 0, length);
+        Lane lane = lane(submission);
+        try {
+            lane.queue.put(new Job(null, copy, submission, Instant.now()));
+        } finally {
+            lane.submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues {@code raw} unless the source's queue is full, for callers that must not
+     * wait, such as the EDT.
+     */
+    public boolean offer(String raw, Submission submission) {
+        Lane lane = lane(submission);
+        try {
+            return lane.queue.offer(new Job(raw, null, submission, Instant.now()));
+        } finally {
+            lane.submitters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stops accepting scans and waits until every queued scan has been handed to the
+     * writer.
+     */
+    @Override
+    public void close() {
+        Lane[] started;
+        synchronized (lanes) {
+            closing = true;
+            started = lanes.values().toArray(new Lane[0]);
+        }
+        for (Lane lane : started) {
+            try {
+                lane.thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the source's lane, counting the caller as a submitter until it
+     * decrements {@link Lane#submitters}, so the lane does not stop before its job is
+     * queued.
+     */
+    private Lane lane(Submission submission) {
+        synchronized (lanes) {
+            if (closing) {
+                throw new IllegalStateException("Scan ingestor is closed");
+            }
+            Lane lane = lanes.computeIfAbsent(submission.source(), Lane::new);
+            lane.submitters.incrementAndGet();
+            return lane;
+        }
+    }
+
+    private record Job(String text, byte[] bytes, Submission submission, Instant capturedAt) {
+    }
+
+    private final class Lane {
+        private final ScanSource source;
+        private final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicInteger submitters = new AtomicInteger();
+        private final Thread thread;
+        private String lastNormalized;
+        private long lastTimestamp;
+
+        Lane(ScanSource source) {
+            this.source = source;
+            this.thread = new Thread(this::run, "Ingest-" + source.display());
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        private void run() {
+            try {
+                while (!closing || submitters.get() > 0 || !queue.isEmpty()) {
+                    Job job = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (job != null) {
+                        try {
+                            process(job);
+                        } catch (RuntimeException ex) {
+                            listener.failed(job.submission(), null, ex);
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void process(Job job) {
+            SettingsSnapshot snapshot = settings.get();
+            ScanView view = job.bytes() != null
+                    ? snapshot.pipeline().process(job.bytes(), 0, job.bytes().length)
+                    : snapshot.pipeline().process(job.text());
+            Submission submission = job.submission();
+            int length = view.normalized().length();
+            if (length == 0) {
+                listener.rejected(submission, Rejection.EMPTY, snapshot);
+                return;
+            }
+            if (length > snapshot.maxScanLength()) {
+                listener.rejected(submission, Rejection.TOO_LONG, snapshot);
+                return;
+            }
+            long timestamp = job.capturedAt().toEpochMilli();
+            boolean deduplicate = source == ScanSource.HID || source == ScanSource.SERIAL;
+            if (deduplicate && view.normalizedEquals(lastNormalized)
+                    && timestamp - lastTimestamp < snapshot.duplicateSuppressionMs()) {
+                listener.rejected(submission, Rejection.DUPLICATE, snapshot);
+                return;
+            }
+            NormalizationResult normalization = view.toNormalizationResult();
+            ParseResult parseResult = parseCache != null
+                    ? parseCache.parse(normalization.normalized(), snapshot.parseOptions(), view::toParseResult)
+                    : view.toParseResult();
+            if (deduplicate) {
+                lastNormalized = normalization.normalized();
+                lastTimestamp = timestamp;
+            }
+            PendingScan scan = PendingScan.of(normalization, parseResult, source.display(), submission.port(), job.capturedAt());
+            CompletableFuture<Long> written;
+            try {
+                if (serials != null) {
+                    checkSerial(submission, scan);
+                }
+                listener.accepted(submission, scan);
+                written = writer.submit(scan);
+            } catch (RuntimeException ex) {
+                if (serials != null) {
+                    serials.settled(scan);
+                }
+                throw ex;
+            }
+            written.whenComplete((id, failure) -> {
+                if (serials != null) {
+                    serials.settled(scan);
+                }
+                if (failure != null) {
+                    listener.failed(submission, scan, failure);
+                } else {
+                    listener.stored(submission, scan, id, normalization.elapsedNanos());
+                }
+            });
+        }
+
+        private void checkSerial(Submission submission, PendingScan scan) {
+            SerialIndex.Key reused;
+            try {
+                reused = serials.register(scan);
+            } catch (SQLException ex) {
+                listener.serialCheckFailed(submission, scan, ex);
+                return;
+            }
+            if (reused != null) {
+                listener.serialReused(submission, scan, reused);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package app;
+
+import java.util.Objects;
+
+/**
+ * Normalizes and parses a scan in one go, for capture paths where per-scan latency
+ * matters. The normalized text is written to a buffer owned by the calling thread
+ * and parsed in place into offsets, so nothing is copied until the caller decides
+ * to keep the scan and asks the returned {@link ScanView} for strings.
+ *
+ * <p>A pipeline is immutable and may be shared; build a new one when the settings
+ * change.
+ */
+public final class ScanPipeline {
+    private static final ThreadLocal<ScanView> VIEWS = ThreadLocal.withInitial(ScanView::new);
+
+    private final NormalizationOptions normalizationOptions;
+    private final CompiledNormalizer normalizer;
+    private final ParseOptions parseOptions;
+
+    public ScanPipeline(NormalizationOptions normalizationOptions, ParseOptions parseOptions) {
+        this.normalizationOptions = Objects.requireNonNull(normalizationOptions, "normalizationOptions");
+        this.normalizer = normalizationOptions.compiled();
+        this.parseOptions = parseOptions == null ? ParseOptions.defaults() : parseOptions;
+    }
+
+    public NormalizationOptions normalizationOptions() {
+        return normalizationOptions;
+    }
+
+    public ParseOptions parseOptions() {
+        return parseOptions;
+    }
+
+    /**
+     * Processes {@code raw}. The returned view belongs to the calling thread and is
+     * overwritten by that thread's next call.
+     */
+    public ScanView process(CharSequence raw) {
+        Objects.requireNonNull(raw, "raw");
+        return VIEWS.get().process(raw, normalizer, parseOptions);
+    }
+
+    /**
+     * Processes {@code length} bytes of {@code raw} starting at {@code offset}, one
+     * character per byte (ISO-8859-1), as serial scanners send them. The bytes are
+     * read in place, so the array must not change until the view is done with.
+     */
+    public ScanView process(byte[] raw, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, raw.length);
+        ScanView view = VIEWS.get();
+        return view.process(view.wrap(raw, offset, length), normalizer, parseOptions);
+    }
+}
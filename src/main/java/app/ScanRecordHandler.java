@@ -0,0 +1,15 @@
+package app;
+
+/**
+ * Receives records split by {@link ScanFileReader}. The record view is reused for the
+ * next record, so call {@code toString()} on it to keep the text.
+ */
+@FunctionalInterface
+public interface ScanRecordHandler {
+    /**
+     * @param record     decoded record without its delimiter
+     * @param byteOffset offset of the record's first byte in the source
+     * @return {@code false} to stop reading
+     */
+    boolean onRecord(CharSequence record, long byteOffset);
+}
@@ -0,0 +1,48 @@
+package app;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+/**
+ * Table of search results, with the same columns as {@link ScanHistoryModel}. Rows
+ * hold no elements. Must be used on the EDT.
+ */
+final class ScanResultsModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private List<Scan> scans = List.of();
+
+    void setScans(List<Scan> scans) {
+        this.scans = List.copyOf(scans);
+        fireTableDataChanged();
+    }
+
+    Scan scanAt(int row) {
+        return scans.get(row);
+    }
+
+    @Override
+    public int getRowCount() {
+        return scans.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return ScanHistoryModel.COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return ScanHistoryModel.COLUMNS[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return ScanHistoryModel.valueAt(scans.get(row), column);
+    }
+}
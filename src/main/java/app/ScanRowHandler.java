@@ -0,0 +1,14 @@
+package app;
+
+import java.io.IOException;
+
+/**
+ * Receives scans streamed by {@link Database#forEachScan}, one at a time.
+ */
+@FunctionalInterface
+public interface ScanRowHandler {
+    /**
+     * @return {@code false} to stop reading
+     */
+    boolean onScan(Scan scan) throws IOException;
+}
@@ -0,0 +1,40 @@
+package app;
+
+import java.util.List;
+
+/**
+ * Values to look scans up by in the indexed GTIN, lot, serial and expiry columns.
+ * Fields left {@code null} are not matched; the others must all match.
+ */
+public record ScanSearch(String gtin, String lot, String serial, String expiry) {
+    public static final String GTIN_AI = "01";
+    public static final String LOT_AI = "10";
+    public static final String EXPIRY_AI = "17";
+    public static final String SERIAL_AI = "21";
+
+    /**
+     * The key values among {@code elements}, taking the first of each AI.
+     */
+    public static ScanSearch of(List<ParsedElement> elements) {
+        String gtin = null;
+        String lot = null;
+        String serial = null;
+        String expiry = null;
+        for (ParsedElement parsed : elements) {
+            String value = parsed.element().value();
+            switch (parsed.element().ai()) {
+                case GTIN_AI -> gtin = gtin == null ? value : gtin;
+                case LOT_AI -> lot = lot == null ? value : lot;
+                case SERIAL_AI -> serial = serial == null ? value : serial;
+                case EXPIRY_AI -> expiry = expiry == null ? value : expiry;
+                default -> {
+                }
+            }
+        }
+        return new ScanSearch(gtin, lot, serial, expiry);
+    }
+
+    public boolean isEmpty() {
+        return gtin == null && lot == null && serial == null && expiry == null;
+    }
+}
@@ -0,0 +1,111 @@
+package app;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Result of {@link ScanPipeline#process}, held in buffers reused by the thread that
+ * produced it. Everything here is only valid until that thread processes its next
+ * scan; the {@code to...} methods copy what should outlive it.
+ */
+public final class ScanView {
+    private final CompiledNormalizer.Workspace workspace = new CompiledNormalizer.Workspace();
+    private final ParseSpans spans = new ParseSpans();
+    private final Latin1Chars bytes = new Latin1Chars();
+    private CharSequence raw = "";
+    private ParseOptions parseOptions = ParseOptions.defaults();
+    private long elapsedNanos;
+
+    ScanView() {
+    }
+
+    ScanView process(CharSequence raw, CompiledNormalizer normalizer, ParseOptions parseOptions) {
+        long started = System.nanoTime();
+        this.raw = raw;
+        this.parseOptions = parseOptions;
+        normalizer.normalize(raw, workspace);
+        GS1Parser.parse(workspace.text(), parseOptions, spans);
+        elapsedNanos = System.nanoTime() - started;
+        return this;
+    }
+
+    CharSequence wrap(byte[] data, int offset, int length) {
+        bytes.data = data;
+        bytes.offset = offset;
+        bytes.length = length;
+        return bytes;
+    }
+
+    public CharSequence raw() {
+        return raw;
+    }
+
+    public CharSequence normalized() {
+        return workspace.text();
+    }
+
+    public boolean normalizedEquals(String other) {
+        return workspace.text().contentEquals(other);
+    }
+
+    public ParseSpans spans() {
+        return spans;
+    }
+
+    /**
+     * Time spent normalizing and parsing the scan.
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String rawString() {
+        return raw.toString();
+    }
+
+    public String normalizedString() {
+        return workspace.text().toString();
+    }
+
+    public NormalizationResult toNormalizationResult() {
+        String rawText = rawString();
+        return new NormalizationResult(rawText, normalizedString(), workspace.symbologyId(rawText),
+                workspace.warnings(rawText), workspace.elapsedNanos());
+    }
+
+    /**
+     * Copies the parsed elements and runs the per-element checks, as
+     * {@link GS1Parser#parse(String, ParseOptions)} does.
+     */
+    public ParseResult toParseResult() {
+        return GS1Parser.materialize(spans, parseOptions);
+    }
+
+    private static final class Latin1Chars implements CharSequence {
+        private byte[] data;
+        private int offset;
+        private int length;
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            Objects.checkIndex(index, length);
+            return (char) (data[offset + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            Objects.checkFromToIndex(start, end, length);
+            return new String(data, offset + start, end - start, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
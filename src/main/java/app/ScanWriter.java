@@ -0,0 +1,412 @@
+package app;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind queue in front of {@link Database}. Callers hand over scans and get a
+ * future back straight away; a single writer thread commits them in batches of up
+ * to {@link WriteBehindOptions#batchSize()} scans, waiting at most
+ * {@link WriteBehindOptions#flushInterval()} for a batch to fill. A scan's future
+ * completes with its row id once its transaction has committed, or exceptionally
+ * if the transaction failed.
+ *
+ * <p>At most {@link WriteBehindOptions#capacity()} scans are held in memory. Past
+ * that, {@link #submit} either waits or spills to disk, depending on
+ * {@link WriteBehindOptions#overflowPolicy()}. Scans are committed in the order
+ * they were submitted either way.
+ *
+ * <p>A batch that fails because the database is busy or unavailable is kept and
+ * tried again after a pause: with a spill file its scans go back to the file, so
+ * scans that were waiting in memory may be committed before them; otherwise the
+ * writer retries it in place. A batch rejected
+ * for any other reason is retried one scan at a time, so only the scans at fault
+ * fail. Spilled scans leave the spill file only once committed.
+ */
+public final class ScanWriter implements AutoCloseable {
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_NOMEM = 7;
+    private static final int SQLITE_IOERR = 10;
+    private static final int SQLITE_FULL = 13;
+    private static final int SQLITE_CANTOPEN = 14;
+    private static final int SQLITE_PROTOCOL = 15;
+    private static final long MIN_RETRY_DELAY_MILLIS = 100;
+    private static final long MAX_RETRY_DELAY_MILLIS = 5_000;
+
+    private final Database database;
+    private final WriteBehindOptions options;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<Entry> queue;
+    private final SpillFile spill;
+    private final ArrayDeque<CompletableFuture<Long>> spilledFutures = new ArrayDeque<>();
+    private final Object spillLock = new Object();
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private final Thread thread;
+    private volatile boolean closing;
+    private long retryDelayMillis;
+
+    public ScanWriter(Database database, WriteBehindOptions options) throws IOException {
+        this.database = Objects.requireNonNull(database, "database");
+        this.options = Objects.requireNonNull(options, "options");
+        this.flushIntervalNanos = options.flushInterval().toNanos();
+        this.queue = new ArrayBlockingQueue<>(options.capacity());
+        if (options.overflowPolicy() == WriteBehindOptions.OverflowPolicy.SPILL) {
+            this.spill = SpillFile.open(options.spillFile());
+            for (int i = 0; i < spill.pending(); i++) {
+                spilledFutures.add(new CompletableFuture<>());
+            }
+        } else {
+            this.spill = null;
+        }
+        this.thread = new Thread(this::run, "ScanWriter");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues {@code scan} for writing. Only waits when the memory queue is full and
+     * the overflow policy is {@link WriteBehindOptions.OverflowPolicy#BLOCK}.
+     */
+    public CompletableFuture<Long> submit(PendingScan scan) {
+        Objects.requireNonNull(scan, "scan");
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        // Held while queueing, so close() cannot slip between the check and the queue.
+        closeLock.readLock().lock();
+        try {
+            if (closing) {
+                future.completeExceptionally(new IllegalStateException("Scan writer is closed"));
+                return future;
+            }
+            enqueue(new Entry(scan, future, false));
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return future;
+    }
+
+    private void enqueue(Entry entry) {
+        if (spill == null) {
+            try {
+                queue.put(entry);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                entry.future.completeExceptionally(ex);
+            }
+            return;
+        }
+        synchronized (spillLock) {
+            // Once anything has spilled, later scans spill too so they stay behind it.
+            if (spill.pending() == 0 && queue.offer(entry)) {
+                return;
+            }
+            try {
+                spill.append(entry.scan);
+                spilledFutures.add(entry.future);
+            } catch (IOException ex) {
+                entry.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Number of scans submitted but not yet taken by the writer thread.
+     */
+    public int backlog() {
+        synchronized (spillLock) {
+            return queue.size() + (spill == null ? 0 : spill.pending());
+        }
+    }
+
+    /**
+     * Stops accepting scans, writes everything already submitted and stops the writer
+     * thread.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closing = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (spill != null) {
+            synchronized (spillLock) {
+                try {
+                    spill.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(options.batchSize());
+        try {
+            while (true) {
+                fill(batch);
+                if (batch.isEmpty()) {
+                    if (closing && backlog() == 0) {
+                        return;
+                    }
+                    continue;
+                }
+                boolean stored = commit(batch);
+                batch.clear();
+                if (!stored) {
+                    if (closing) {
+                        abandon();
+                        return;
+                    }
+                    Thread.sleep(retryDelayMillis);
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (Entry entry : batch) {
+                entry.future.completeExceptionally(ex);
+            }
+        }
+    }
+
+    /**
+     * Adds scans to {@code batch} until it is full, the flush interval has passed since
+     * its first scan, or the writer is closing.
+     */
+    private void fill(List<Entry> batch) throws InterruptedException {
+        long deadline = 0;
+        while (true) {
+            drain(batch);
+            if (batch.size() >= options.batchSize() || closing) {
+                return;
+            }
+            long now = System.nanoTime();
+            if (!batch.isEmpty() && deadline == 0) {
+                deadline = now + flushIntervalNanos;
+            }
+            long wait = batch.isEmpty() ? flushIntervalNanos : deadline - now;
+            if (wait <= 0) {
+                return;
+            }
+            Entry next = queue.poll(Math.max(wait, 1), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    /**
+     * Moves waiting scans into {@code batch}, those in memory first. With a spill file
+     * both are read under the lock {@link #submit} holds, so a scan spilled meanwhile
+     * cannot overtake one still in memory.
+     */
+    private void drain(List<Entry> batch) {
+        if (spill == null) {
+            queue.drainTo(batch, options.batchSize() - batch.size());
+            return;
+        }
+        synchronized (spillLock) {
+            queue.drainTo(batch, options.batchSize() - batch.size());
+            if (spill.pending() == 0 || batch.size() >= options.batchSize()) {
+                return;
+            }
+            List<PendingScan> scans = new ArrayList<>();
+            try {
+                spill.read(options.batchSize() - batch.size(), scans);
+            } catch (IOException ex) {
+                // The rest of the spill file cannot be read back; fail what it held.
+                spill.discard();
+                CompletableFuture<Long> future;
+                while ((future = spilledFutures.poll()) != null) {
+                    future.completeExceptionally(ex);
+                }
+                return;
+            }
+            for (PendingScan scan : scans) {
+                batch.add(new Entry(scan, spilledFutures.poll(), true));
+            }
+        }
+    }
+
+    /**
+     * Commits {@code batch}, retrying it one scan at a time if it is rejected.
+     *
+     * @return {@code false} if the database could not be reached and scans were kept
+     *         for another attempt
+     */
+    private boolean commit(List<Entry> batch) throws InterruptedException {
+        List<Entry> kept = List.of();
+        Exception failure = null;
+        try {
+            long[] ids = database.insertScans(scansOf(batch));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(ids[i]);
+            }
+        } catch (SQLException | RuntimeException ex) {
+            if (isTransient(ex)) {
+                kept = batch;
+                failure = ex;
+            } else {
+                for (int i = 0; i < batch.size(); i++) {
+                    Entry entry = batch.get(i);
+                    try {
+                        entry.future.complete(database.insertScans(List.of(entry.scan))[0]);
+                    } catch (SQLException | RuntimeException single) {
+                        if (isTransient(single)) {
+                            kept = batch.subList(i, batch.size());
+                            failure = single;
+                            break;
+                        }
+                        entry.future.completeExceptionally(single);
+                    }
+                }
+            }
+        }
+        if (kept.isEmpty()) {
+            retryDelayMillis = 0;
+            if (spill != null) {
+                acknowledge(batch, kept);
+            }
+            return true;
+        }
+        retryDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, Math.max(MIN_RETRY_DELAY_MILLIS, retryDelayMillis * 2));
+        if (spill != null) {
+            acknowledge(batch, kept);
+            return false;
+        }
+        // Without a spill file the batch is retried in place; producers wait meanwhile.
+        while (!closing) {
+            Thread.sleep(retryDelayMillis);
+            try {
+                long[] ids = database.insertScans(scansOf(kept));
+                for (int i = 0; i < kept.size(); i++) {
+                    kept.get(i).future.complete(ids[i]);
+                }
+                retryDelayMillis = 0;
+                return true;
+            } catch (SQLException | RuntimeException ex) {
+                if (!isTransient(ex)) {
+                    return commit(new ArrayList<>(kept));
+                }
+                failure = ex;
+                retryDelayMillis = Math.min(MAX_RETRY_DELAY_MILLIS, retryDelayMillis * 2);
+            }
+        }
+        for (Entry entry : kept) {
+            entry.future.completeExceptionally(failure);
+        }
+        return false;
+    }
+
+    /**
+     * Removes the spilled scans of {@code batch} that are settled from the spill file
+     * and spills the {@code kept} ones again. Kept scans that were read from the file
+     * stay where they were; kept scans from memory are appended.
+     */
+    private void acknowledge(List<Entry> batch, List<Entry> kept) {
+        int settled = 0;
+        for (Entry entry : batch) {
+            if (entry.spilled) {
+                settled++;
+            }
+        }
+        List<Entry> respill = new ArrayList<>();
+        for (Entry entry : kept) {
+            if (entry.spilled) {
+                settled--;
+            } else {
+                respill.add(entry);
+            }
+        }
+        synchronized (spillLock) {
+            try {
+                spill.acknowledge(settled);
+            } catch (IOException ex) {
+                // The header could not move past them, so the settled scans would be read
+                // again on the next start; nothing more can be done about that here.
+            }
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                if (kept.get(i).spilled) {
+                    spilledFutures.addFirst(kept.get(i).future);
+                }
+            }
+            for (Entry entry : respill) {
+                try {
+                    spill.append(entry.scan);
+                    spilledFutures.add(entry.future);
+                } catch (IOException ex) {
+                    entry.future.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives up on closing while the database is unreachable. Scans still waiting are
+     * spilled for the next start where possible, and every future fails.
+     */
+    private void abandon() {
+        Exception failure = new IllegalStateException("Scan writer closed while the database was unavailable");
+        List<Entry> waiting = new ArrayList<>();
+        if (spill == null) {
+            queue.drainTo(waiting);
+            for (Entry entry : waiting) {
+                entry.future.completeExceptionally(failure);
+            }
+            return;
+        }
+        synchronized (spillLock) {
+            queue.drainTo(waiting);
+            for (Entry entry : waiting) {
+                try {
+                    spill.append(entry.scan);
+                } catch (IOException ignored) {
+                }
+                entry.future.completeExceptionally(failure);
+            }
+            CompletableFuture<Long> future;
+            while ((future = spilledFutures.poll()) != null) {
+                future.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static List<PendingScan> scansOf(List<Entry> entries) {
+        List<PendingScan> scans = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            scans.add(entry.scan);
+        }
+        return scans;
+    }
+
+    /**
+     * Whether {@code ex} says the database could not be written right now, rather than
+     * that the scans themselves were rejected.
+     */
+    static boolean isTransient(Exception ex) {
+        if (!(ex instanceof SQLException sql)) {
+            return false;
+        }
+        return switch (sql.getErrorCode() & 0xFF) {
+            case SQLITE_BUSY, SQLITE_LOCKED, SQLITE_NOMEM, SQLITE_IOERR, SQLITE_FULL, SQLITE_CANTOPEN, SQLITE_PROTOCOL -> true;
+            default -> false;
+        };
+    }
+
+    private record Entry(PendingScan scan, CompletableFuture<Long> future, boolean spilled) {
+    }
+}
@@ -0,0 +1,277 @@
+package app;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Remembers every GTIN plus serial (AIs 01 and 21) and SSCC (AI 00) ever stored, so a
+ * scan reusing one can be flagged as it is captured. Keys are held in a Bloom filter
+ * that answers "never seen" in well under a microsecond; a "maybe" is confirmed
+ * against the database indexes, or against scans still waiting to be written. The
+ * filter is filled from the database on a background thread and kept up to date
+ * from every insert. Until the first fill has finished every check goes to the
+ * database.
+ */
+public final class SerialIndex {
+    public static final String SSCC_AI = "00";
+    static final long MIN_CAPACITY = 1L << 20;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * A key that must not repeat: a GTIN with a serial, or an SSCC.
+     */
+    public record Key(String gtin, String serial, String sscc) {
+        public static Key ofSerial(String gtin, String serial) {
+            return new Key(Objects.requireNonNull(gtin, "gtin"), Objects.requireNonNull(serial, "serial"), null);
+        }
+
+        public static Key ofSscc(String sscc) {
+            return new Key(null, null, Objects.requireNonNull(sscc, "sscc"));
+        }
+
+        /**
+         * The keys a scan carries, taking the first of each AI.
+         */
+        public static List<Key> of(PendingScan scan) {
+            List<Key> keys = new ArrayList<>(2);
+            String gtin = scan.value(ScanSearch.GTIN_AI);
+            String serial = scan.value(ScanSearch.SERIAL_AI);
+            if (gtin != null && serial != null) {
+                keys.add(ofSerial(gtin, serial));
+            }
+            String sscc = scan.value(SSCC_AI);
+            if (sscc != null) {
+                keys.add(ofSscc(sscc));
+            }
+            return keys;
+        }
+
+        public String describe() {
+            return sscc != null ? "SSCC " + sscc : "GTIN " + gtin + " serial " + serial;
+        }
+    }
+
+    private final Database database;
+    private final Consumer<Exception> errorHandler;
+    private final Map<Key, Integer> pending = new ConcurrentHashMap<>();
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+
+    private SerialIndex(Database database, Consumer<Exception> errorHandler) {
+        this.database = database;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Creates an index of {@code database}, starts filling it in the background and
+     * keeps it up to date from every insert. Failures to fill it are handed to
+     * {@code errorHandler} on the filling thread.
+     */
+    public static SerialIndex start(Database database, Consumer<Exception> errorHandler) {
+        SerialIndex index = new SerialIndex(Objects.requireNonNull(database, "database"),
+                Objects.requireNonNull(errorHandler, "errorHandler"));
+        database.addInsertListener(index::stored);
+        index.rebuildInBackground();
+        return index;
+    }
+
+    /**
+     * Whether the filter holds every stored key, so a "never seen" needs no query.
+     */
+    public boolean isReady() {
+        return filter != null;
+    }
+
+    /**
+     * Records that {@code scan} is about to be written and returns the first of its
+     * keys stored or submitted before, or {@code null} if all are new. Call
+     * {@link #settled} once the write has finished, whether it succeeded or not.
+     */
+    public Key register(PendingScan scan) throws SQLException {
+        List<Key> keys = Key.of(scan);
+        boolean[] suspect = new boolean[keys.size()];
+        Key inFlight = null;
+        for (int i = 0; i < suspect.length; i++) {
+            Key key = keys.get(i);
+            BloomFilter current = filter;
+            suspect[i] = current == null || current.mightContain(textOf(key));
+            if (pending.merge(key, 1, Integer::sum) > 1 && inFlight == null) {
+                inFlight = key;
+            }
+        }
+        if (inFlight != null) {
+            return inFlight;
+        }
+        // Every key is counted as pending before any query, so settled() undoes exactly this.
+        for (int i = 0; i < suspect.length; i++) {
+            if (suspect[i] && storedBefore(keys.get(i))) {
+                return keys.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets that {@code scan} is waiting to be written.
+     */
+    public void settled(PendingScan scan) {
+        for (Key key : Key.of(scan)) {
+            pending.computeIfPresent(key, (ignored, count) -> count == 1 ? null : count - 1);
+        }
+    }
+
+    private boolean storedBefore(Key key) throws SQLException {
+        return key.sscc() != null
+                ? database.elementSeen(SSCC_AI, key.sscc())
+                : database.serialSeen(key.gtin(), key.serial());
+    }
+
+    /**
+     * Adds the keys of scans just committed. Runs on the inserting thread.
+     */
+    private void stored(List<PendingScan> scans) {
+        long keys = 0;
+        for (PendingScan scan : scans) {
+            for (Key key : Key.of(scan)) {
+                put(textOf(key));
+                keys++;
+            }
+        }
+        BloomFilter current = filter;
+        if (current != null && added.addAndGet(keys) > current.capacity()) {
+            rebuildInBackground();
+        }
+    }
+
+    /**
+     * Puts {@code text} into the filter in use and the one being filled. The filter
+     * being filled is read first: a rebuild publishes it as {@code filter} before
+     * clearing {@code building}, so the key reaches whichever filter survives.
+     */
+    private void put(String text) {
+        BloomFilter next = building;
+        BloomFilter current = filter;
+        if (next != null) {
+            next.put(text);
+        }
+        if (current != null && current != next) {
+            current.put(text);
+        }
+    }
+
+    /**
+     * Fills a new filter, sized for the history plus room to grow, from the database
+     * and swaps it in. Keys put while it fills go into both filters. Started again
+     * once more keys have been stored than the current filter was sized for.
+     */
+    private void rebuildInBackground() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                long expected = database.countScans(database.newestScanId());
+                BloomFilter next = new BloomFilter(Math.max(MIN_CAPACITY, 2 * Math.max(expected, added.get())), FALSE_POSITIVE_RATE);
+                building = next;
+                database.forEachSerialKey((gtin, serial) -> next.put(textOf(Key.ofSerial(gtin, serial))),
+                        sscc -> next.put(textOf(Key.ofSscc(sscc))));
+                added.set(0);
+                filter = next;
+            } catch (SQLException | RuntimeException ex) {
+                errorHandler.accept(ex);
+            } finally {
+                building = null;
+                rebuilding.set(false);
+            }
+        }, "SerialIndex");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static String textOf(Key key) {
+        return key.sscc() != null ? SSCC_AI + key.sscc() : ScanSearch.GTIN_AI + key.gtin() + '\u001D' + key.serial();
+    }
+
+    /**
+     * A Bloom filter over strings with lock-free concurrent puts. Each key sets
+     * {@code hashes} bits chosen by double hashing one 64-bit hash of its characters.
+     */
+    static final class BloomFilter {
+        private final AtomicLongArray words;
+        private final long bits;
+        private final int hashes;
+        private final long capacity;
+
+        BloomFilter(long capacity, double falsePositiveRate) {
+            long size = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            long wordCount = Math.max(1, (size + 63) >>> 6);
+            if (wordCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Bloom filter too large for " + capacity + " keys");
+            }
+            this.words = new AtomicLongArray((int) wordCount);
+            this.bits = wordCount << 6;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+            this.capacity = capacity;
+        }
+
+        long capacity() {
+            return capacity;
+        }
+
+        void put(String key) {
+            long hash = hash(key);
+            long step = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * step, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value = words.get(word);
+                while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask)) {
+                    value = words.get(word);
+                }
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash(key);
+            long step = mix(hash) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(hash + i * step, bits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long hash(String key) {
+            long hash = 0xCBF29CE484222325L;
+            for (int i = 0; i < key.length(); i++) {
+                hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+            }
+            return mix(hash);
+        }
+
+        /**
+         * The MurmurHash3 finalizer, which spreads every input bit over the result.
+         */
+        private static long mix(long value) {
+            value ^= value >>> 33;
+            value *= 0xFF51AFD7ED558CCDL;
+            value ^= value >>> 33;
+            value *= 0xC4CEB9FE1A85EC53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+}
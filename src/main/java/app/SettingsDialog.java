@@ -12,6 +12,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JSpinner;
 import javax.swing.JTextArea;
+import javax.swing.JTextField;
 import javax.swing.SpinnerNumberModel;
 import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
@@ -50,6 +51,18 @@ public final class SettingsDialog extends JDialog {
         JSpinner printSizeSpinner = new JSpinner(new SpinnerNumberModel(settings.getPrintSizeMillimetres(), 10.0, 200.0, 1.0));
         JSpinner printDpiSpinner = new JSpinner(new SpinnerNumberModel(settings.getPrintDpi(), 150, 1200, 25));
 
+        JComboBox<RetentionOption> retentionCombo = new JComboBox<>(RetentionOption.values());
+        retentionCombo.setSelectedItem(RetentionOption.fromAction(settings.getRetentionAction()));
+        JSpinner retentionMonthsSpinner = new JSpinner(new SpinnerNumberModel(settings.getRetentionMonths(), 1, 120, 1));
+        JTextField archiveDirectoryField = new JTextField(settings.getArchiveDirectory(), 24);
+        Runnable updateRetentionFields = () -> {
+            RetentionPolicy.Action action = ((RetentionOption) retentionCombo.getSelectedItem()).action;
+            retentionMonthsSpinner.setEnabled(action != RetentionPolicy.Action.KEEP);
+            archiveDirectoryField.setEnabled(action == RetentionPolicy.Action.ARCHIVE);
+        };
+        retentionCombo.addActionListener(e -> updateRetentionFields.run());
+        updateRetentionFields.run();
+
         JPanel form = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.insets = new Insets(5, 5, 5, 5);
@@ -128,6 +141,21 @@ public final class SettingsDialog extends JDialog {
         gbc.gridy++;
         form.add(printDpiSpinner, gbc);
 
+        gbc.gridy++;
+        form.add(new JLabel("Scans older than the kept months"), gbc);
+        gbc.gridy++;
+        form.add(retentionCombo, gbc);
+
+        gbc.gridy++;
+        form.add(new JLabel("Months kept besides the current one"), gbc);
+        gbc.gridy++;
+        form.add(retentionMonthsSpinner, gbc);
+
+        gbc.gridy++;
+        form.add(new JLabel("Archive directory"), gbc);
+        gbc.gridy++;
+        form.add(archiveDirectoryField, gbc);
+
         add(form, BorderLayout.CENTER);
 
         JPanel buttons = new JPanel();
@@ -151,6 +179,9 @@ public final class SettingsDialog extends JDialog {
             settings.setBarcodeMargin((Integer) barcodeMarginSpinner.getValue());
             settings.setPrintSizeMillimetres(((Number) printSizeSpinner.getValue()).doubleValue());
             settings.setPrintDpi((Integer) printDpiSpinner.getValue());
+            settings.setRetentionAction(((RetentionOption) retentionCombo.getSelectedItem()).action);
+            settings.setRetentionMonths((Integer) retentionMonthsSpinner.getValue());
+            settings.setArchiveDirectory(archiveDirectoryField.getText());
             settings.save();
             dispose();
         });
@@ -162,6 +193,34 @@ public final class SettingsDialog extends JDialog {
         setLocationRelativeTo(owner);
     }
 
+    private enum RetentionOption {
+        KEEP("Keep", RetentionPolicy.Action.KEEP),
+        ARCHIVE("Archive, then delete", RetentionPolicy.Action.ARCHIVE),
+        DROP("Delete", RetentionPolicy.Action.DROP);
+
+        private final String label;
+        private final RetentionPolicy.Action action;
+
+        RetentionOption(String label, RetentionPolicy.Action action) {
+            this.label = label;
+            this.action = action;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+
+        private static RetentionOption fromAction(RetentionPolicy.Action action) {
+            for (RetentionOption option : values()) {
+                if (option.action == action) {
+                    return option;
+                }
+            }
+            return KEEP;
+        }
+    }
+
     private enum StopBitsOption {
         ONE("1", SerialPort.ONE_STOP_BIT),
         ONE_POINT_FIVE("1.5", SerialPort.ONE_POINT_FIVE_STOP_BITS),
@@ -0,0 +1,26 @@
+package app;
+
+import java.util.Objects;
+
+/**
+ * Immutable view of the settings that scan capture reads on every scan: the compiled
+ * pipeline and the limits checked around it. {@link UserSettings} publishes a new
+ * snapshot on each save, so a thread holding one sees a consistent set of values
+ * for the whole scan.
+ */
+public record SettingsSnapshot(ScanPipeline pipeline,
+                               int maxScanLength,
+                               int duplicateSuppressionMs,
+                               int serialIdleTimeoutMs) {
+    public SettingsSnapshot {
+        Objects.requireNonNull(pipeline, "pipeline");
+    }
+
+    public NormalizationOptions normalizationOptions() {
+        return pipeline.normalizationOptions();
+    }
+
+    public ParseOptions parseOptions() {
+        return pipeline.parseOptions();
+    }
+}
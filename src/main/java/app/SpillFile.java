@@ -0,0 +1,267 @@
+package app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * First-in first-out file of {@link PendingScan}s that did not fit in memory. A
+ * header holds the offset of the oldest record not yet acknowledged, and each record
+ * is a length followed by its fields. Reading a record does not remove it: only
+ * {@link #acknowledge} moves the header past records once they are committed, and
+ * the file is truncated once every record has been acknowledged. After a crash the
+ * unacknowledged records are read again. A record cut short by a crash ends the
+ * file. Not thread-safe.
+ */
+final class SpillFile implements Closeable {
+    static final int MAGIC = 0x47535350;
+    static final int HEADER = Integer.BYTES + Long.BYTES;
+    private static final int NULL_LENGTH = -1;
+
+    private final FileChannel channel;
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER);
+    private long[] readEnds = new long[16];
+    private int read;
+    private long acknowledged = HEADER;
+    private long readPosition = HEADER;
+    private long writePosition = HEADER;
+    private int pending;
+
+    private SpillFile(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens {@code path}, keeping any complete records left unacknowledged by an
+     * earlier run.
+     */
+    static SpillFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        SpillFile file = new SpillFile(channel);
+        try {
+            file.recover();
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        return file;
+    }
+
+    /**
+     * Number of records not yet read.
+     */
+    int pending() {
+        return pending;
+    }
+
+    void append(PendingScan scan) throws IOException {
+        bytes.reset();
+        out.writeInt(0);
+        out.writeLong(scan.createdAt().getEpochSecond());
+        out.writeInt(scan.createdAt().getNano());
+        writeString(scan.raw());
+        writeString(scan.normalized());
+        writeString(scan.source());
+        writeString(scan.port());
+        writeString(scan.symbologyId());
+        out.writeBoolean(scan.parseOk());
+        writeString(scan.error());
+        out.writeInt(scan.elements().size());
+        for (PendingScan.Element element : scan.elements()) {
+            writeString(element.ai());
+            writeString(element.value());
+            out.writeInt(element.start());
+            out.writeInt(element.end());
+        }
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.remaining() - Integer.BYTES);
+        while (buffer.hasRemaining()) {
+            writePosition += channel.write(buffer, writePosition);
+        }
+        pending++;
+    }
+
+    /**
+     * Reads up to {@code max} of the oldest unread records into {@code into}. They stay
+     * in the file until {@link #acknowledge acknowledged}.
+     */
+    void read(int max, List<PendingScan> into) throws IOException {
+        for (int i = 0; i < max && pending > 0; i++) {
+            byte[] record = readRecord(readPosition);
+            readPosition += Integer.BYTES + record.length;
+            pending--;
+            if (read == readEnds.length) {
+                readEnds = Arrays.copyOf(readEnds, read * 2);
+            }
+            readEnds[read++] = readPosition;
+            into.add(decode(record));
+        }
+    }
+
+    /**
+     * Removes the first {@code count} records read since the last call, which have
+     * been committed. Any read after them are returned to the unread records, to be
+     * read again first.
+     */
+    void acknowledge(int count) throws IOException {
+        if (count < 0 || count > read) {
+            throw new IllegalArgumentException("Cannot acknowledge " + count + " of " + read + " records read");
+        }
+        pending += read - count;
+        if (count > 0) {
+            acknowledged = readEnds[count - 1];
+            writeHeader(acknowledged);
+        }
+        readPosition = acknowledged;
+        read = 0;
+        if (pending == 0 && acknowledged == writePosition && writePosition > HEADER) {
+            channel.truncate(HEADER);
+            reset();
+        }
+    }
+
+    /**
+     * Drops every record not yet acknowledged.
+     */
+    void discard() {
+        pending = 0;
+        read = 0;
+        try {
+            channel.truncate(HEADER);
+            reset();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size < HEADER) {
+            channel.truncate(0);
+            reset();
+            return;
+        }
+        readFully(header.clear(), 0);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a spill file");
+        }
+        long position = header.getLong(Integer.BYTES);
+        if (position < HEADER) {
+            throw new IOException("Spill file header is damaged");
+        }
+        int count = 0;
+        while (size - position >= Integer.BYTES) {
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, position);
+            int recordLength = length.getInt(0);
+            if (recordLength < 0 || position + Integer.BYTES + recordLength > size) {
+                break;
+            }
+            position += Integer.BYTES + recordLength;
+            count++;
+        }
+        if (count == 0) {
+            // Also covers a crash between acknowledging the last record and truncating.
+            channel.truncate(HEADER);
+            reset();
+            return;
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        acknowledged = header.getLong(Integer.BYTES);
+        readPosition = acknowledged;
+        writePosition = position;
+        pending = count;
+    }
+
+    private void reset() throws IOException {
+        acknowledged = HEADER;
+        readPosition = HEADER;
+        writePosition = HEADER;
+        writeHeader(HEADER);
+    }
+
+    private void writeHeader(long position) throws IOException {
+        header.clear();
+        header.putInt(MAGIC).putLong(position).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private byte[] readRecord(long position) throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+        readFully(length, position);
+        ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+        readFully(record, position + Integer.BYTES);
+        return record.array();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Spill file ended inside a record");
+            }
+        }
+    }
+
+    private static PendingScan decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        Instant createdAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        String raw = readString(in);
+        String normalized = readString(in);
+        String source = readString(in);
+        String port = readString(in);
+        String symbologyId = readString(in);
+        boolean parseOk = in.readBoolean();
+        String error = readString(in);
+        int count = in.readInt();
+        List<PendingScan.Element> elements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            elements.add(new PendingScan.Element(readString(in), readString(in), in.readInt(), in.readInt()));
+        }
+        return new PendingScan(createdAt, raw, normalized, source, port, symbologyId, parseOk, error, elements);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(encoded.length);
+        out.write(encoded);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] encoded = new byte[length];
+        in.readFully(encoded);
+        return new String(encoded, StandardCharsets.UTF_8);
+    }
+}
@@ -2,11 +2,13 @@ package app;
 
 import com.fazecast.jSerialComm.SerialPort;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.prefs.Preferences;
 
 public final class UserSettings {
@@ -28,6 +30,11 @@ public final class UserSettings {
     private static final String KEY_BARCODE_MARGIN = "barcodeMargin";
     private static final String KEY_PRINT_SIZE = "printSize";
     private static final String KEY_PRINT_DPI = "printDpi";
+    private static final String KEY_RETENTION_ACTION = "retentionAction";
+    private static final String KEY_RETENTION_MONTHS = "retentionMonths";
+    private static final String KEY_ARCHIVE_DIRECTORY = "archiveDirectory";
+    private static final int DEFAULT_RETENTION_MONTHS = 12;
+    private static final String DEFAULT_ARCHIVE_DIRECTORY = "archive";
 
     private final Preferences preferences = Preferences.userNodeForPackage(UserSettings.class);
 
@@ -48,7 +55,12 @@ public final class UserSettings {
     private int barcodeMargin = 4;
     private double printSizeMillimetres = 40.0;
     private int printDpi = 300;
+    private RetentionPolicy.Action retentionAction = RetentionPolicy.Action.KEEP;
+    private int retentionMonths = DEFAULT_RETENTION_MONTHS;
+    private String archiveDirectory = DEFAULT_ARCHIVE_DIRECTORY;
     private final List<String> gsPlaceholders = new ArrayList<>();
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile SettingsSnapshot snapshot;
 
     private UserSettings() {
         gsPlaceholders.addAll(NormalizationOptions.DefaultPlaceholders.VALUES);
@@ -73,6 +85,14 @@ public final class UserSettings {
         settings.barcodeMargin = settings.preferences.getInt(KEY_BARCODE_MARGIN, 4);
         settings.printSizeMillimetres = settings.preferences.getDouble(KEY_PRINT_SIZE, 40.0);
         settings.printDpi = settings.preferences.getInt(KEY_PRINT_DPI, 300);
+        try {
+            settings.retentionAction = RetentionPolicy.Action.valueOf(
+                    settings.preferences.get(KEY_RETENTION_ACTION, RetentionPolicy.Action.KEEP.name()));
+        } catch (IllegalArgumentException ex) {
+            settings.retentionAction = RetentionPolicy.Action.KEEP;
+        }
+        settings.setRetentionMonths(settings.preferences.getInt(KEY_RETENTION_MONTHS, DEFAULT_RETENTION_MONTHS));
+        settings.setArchiveDirectory(settings.preferences.get(KEY_ARCHIVE_DIRECTORY, DEFAULT_ARCHIVE_DIRECTORY));
         String placeholderBlob = settings.preferences.get(KEY_PLACEHOLDERS, null);
         if (placeholderBlob != null && !placeholderBlob.isBlank()) {
             settings.gsPlaceholders.clear();
@@ -86,6 +106,7 @@ public final class UserSettings {
         if (settings.gsPlaceholders.isEmpty()) {
             settings.gsPlaceholders.addAll(NormalizationOptions.DefaultPlaceholders.VALUES);
         }
+        settings.publishSnapshot();
         return settings;
     }
 
@@ -107,7 +128,34 @@ public final class UserSettings {
         preferences.putInt(KEY_BARCODE_MARGIN, barcodeMargin);
         preferences.putDouble(KEY_PRINT_SIZE, printSizeMillimetres);
         preferences.putInt(KEY_PRINT_DPI, printDpi);
+        preferences.put(KEY_RETENTION_ACTION, retentionAction.name());
+        preferences.putInt(KEY_RETENTION_MONTHS, retentionMonths);
+        preferences.put(KEY_ARCHIVE_DIRECTORY, archiveDirectory);
         preferences.put(KEY_PLACEHOLDERS, String.join("\n", gsPlaceholders));
+        publishSnapshot();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers {@code listener} to run after every {@link #save()}.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * Settings as of the last {@link #load()} or {@link #save()}. Changes made through
+     * the setters are not visible here until they are saved.
+     */
+    public SettingsSnapshot snapshot() {
+        return snapshot;
+    }
+
+    private void publishSnapshot() {
+        ScanPipeline pipeline = new ScanPipeline(toNormalizationOptions(), toParseOptions());
+        snapshot = new SettingsSnapshot(pipeline, maxScanLength, duplicateSuppressionMs, serialIdleTimeoutMs);
     }
 
     public NormalizationOptions toNormalizationOptions() {
@@ -126,6 +174,19 @@ public final class UserSettings {
                 .build();
     }
 
+    /**
+     * What to do with monthly partitions older than {@link #getRetentionMonths()}.
+     * The archive directory is resolved against the working directory, like the
+     * database file.
+     */
+    public RetentionPolicy toRetentionPolicy() {
+        return switch (retentionAction) {
+            case KEEP -> RetentionPolicy.keepAll();
+            case ARCHIVE -> RetentionPolicy.archiveAfter(retentionMonths, Path.of(archiveDirectory));
+            case DROP -> RetentionPolicy.dropAfter(retentionMonths);
+        };
+    }
+
     public boolean isAutoSaveOnEnter() {
         return autoSaveOnEnter;
     }
@@ -262,6 +323,31 @@ public final class UserSettings {
         this.printDpi = Math.max(150, printDpi);
     }
 
+    public RetentionPolicy.Action getRetentionAction() {
+        return retentionAction;
+    }
+
+    public void setRetentionAction(RetentionPolicy.Action retentionAction) {
+        this.retentionAction = Objects.requireNonNull(retentionAction, "retentionAction");
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = Math.max(1, retentionMonths);
+    }
+
+    public String getArchiveDirectory() {
+        return archiveDirectory;
+    }
+
+    public void setArchiveDirectory(String archiveDirectory) {
+        String trimmed = archiveDirectory == null ? "" : archiveDirectory.trim();
+        this.archiveDirectory = trimmed.isEmpty() ? DEFAULT_ARCHIVE_DIRECTORY : trimmed;
+    }
+
     public List<String> getGsPlaceholders() {
         return List.copyOf(gsPlaceholders);
     }
@@ -0,0 +1,60 @@
+package app;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Built-in validators keyed by exact AI or by AI prefix. An exact registration wins
+ * over a prefix, and a longer prefix over a shorter one. New AIs get validation by
+ * adding a registration here; the parser itself does not change.
+ */
+final class ValidatorRegistry {
+    private static final Map<String, ElementValidator> EXACT = new HashMap<>();
+    private static final Map<String, ElementValidator> PREFIX = new HashMap<>();
+
+    static {
+        ElementValidator gtin = ((ElementValidator) FieldValidators::gtin)
+                .withPlausibility(FieldValidators::checkDigitPlausibility);
+        ElementValidator checkDigit = ((ElementValidator) FieldValidators::checkDigit)
+                .withPlausibility(FieldValidators::checkDigitPlausibility);
+        ElementValidator date = ((ElementValidator) FieldValidators::date)
+                .withPlausibility(FieldValidators::datePlausibility);
+        exact(gtin, "01");
+        exact(checkDigit, "00", "02", "410", "411", "412", "413", "414", "415", "416", "417");
+        exact(FieldValidators.lengthRange(1, 20), "10", "21");
+        exact(date, "11", "12", "13", "15", "16", "17");
+        prefix(FieldValidators::quantity, "31", "32", "33", "34", "35", "36");
+        prefix(FieldValidators::currency, "391");
+        prefix(FieldValidators::price, "392");
+        prefix(((ElementValidator) FieldValidators::price).andThen(FieldValidators::currency), "393");
+    }
+
+    private ValidatorRegistry() {
+    }
+
+    private static void exact(ElementValidator validator, String... codes) {
+        for (String code : codes) {
+            EXACT.put(code, validator);
+        }
+    }
+
+    private static void prefix(ElementValidator validator, String... prefixes) {
+        for (String prefix : prefixes) {
+            PREFIX.put(prefix, validator);
+        }
+    }
+
+    static ElementValidator resolve(String code) {
+        ElementValidator validator = EXACT.get(code);
+        if (validator != null) {
+            return validator;
+        }
+        for (int length = code.length(); length >= 2; length--) {
+            validator = PREFIX.get(code.substring(0, length));
+            if (validator != null) {
+                return validator;
+            }
+        }
+        return ElementValidator.NONE;
+    }
+}
@@ -0,0 +1,134 @@
+package app;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Batching and back-pressure settings for {@link ScanWriter}.
+ */
+public final class WriteBehindOptions {
+    static final int DEFAULT_BATCH_SIZE = 256;
+    static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofMillis(50);
+    static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * What {@link ScanWriter#submit} does when {@link #capacity()} scans are already
+     * waiting in memory.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the writer to make room.
+         */
+        BLOCK,
+        /**
+         * Append the scan to {@link #spillFile()} and return at once. Spilled scans are
+         * written in order after the ones in memory, and any left over when the
+         * application stops are written on the next start.
+         */
+        SPILL
+    }
+
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final int capacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Path spillFile;
+
+    private WriteBehindOptions(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.flushInterval = builder.flushInterval;
+        this.capacity = builder.capacity;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.spillFile = builder.spillFile;
+    }
+
+    /**
+     * Most scans committed in one transaction.
+     */
+    public int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Longest a scan waits for others to share its transaction.
+     */
+    public Duration flushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Most scans held in memory before the overflow policy applies.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    public OverflowPolicy overflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public Path spillFile() {
+        return spillFile;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static WriteBehindOptions defaults() {
+        return builder().build();
+    }
+
+    public static final class Builder {
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private Duration flushInterval = DEFAULT_FLUSH_INTERVAL;
+        private int capacity = DEFAULT_CAPACITY;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+        private Path spillFile;
+
+        private Builder() {
+        }
+
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder flushInterval(Duration flushInterval) {
+            Objects.requireNonNull(flushInterval, "flushInterval");
+            if (flushInterval.isNegative()) {
+                throw new IllegalArgumentException("flushInterval must not be negative");
+            }
+            this.flushInterval = flushInterval;
+            return this;
+        }
+
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be at least 1");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        public Builder block() {
+            this.overflowPolicy = OverflowPolicy.BLOCK;
+            this.spillFile = null;
+            return this;
+        }
+
+        public Builder spillTo(Path spillFile) {
+            this.overflowPolicy = OverflowPolicy.SPILL;
+            this.spillFile = Objects.requireNonNull(spillFile, "spillFile");
+            return this;
+        }
+
+        public WriteBehindOptions build() {
+            return new WriteBehindOptions(this);
+        }
+    }
+}
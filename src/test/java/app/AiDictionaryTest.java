@@ -0,0 +1,72 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AiDictionaryTest {
+
+    @Test
+    void bundledTableResolvesLongestAi() {
+        assertEquals("01", AiDictionary.lookup("01").code());
+        assertEquals("3103", AiDictionary.match("3103000500", 0, 10).code());
+        assertEquals(null, AiDictionary.lookup("0"));
+    }
+
+    @Test
+    void malformedEntriesAreSkipped() throws IOException {
+        byte[] table = table(out -> {
+            entry(out, "01", 'N', AiDictionary.FLAG_FIXED, 14, 14);
+            entry(out, "1A", 'X', 0, 1, 20);
+            entry(out, "12345", 'N', AiDictionary.FLAG_FIXED, 6, 6);
+            entry(out, "10", 'Q', 0, 1, 20);
+            entry(out, "21", 'X', AiDictionary.FLAG_FNC1, 20, 1);
+            entry(out, "17", 'N', AiDictionary.FLAG_FIXED, 4, 6);
+            entry(out, "21", 'X', AiDictionary.FLAG_FNC1, 1, 20);
+        }, 7);
+
+        List<AiDefinition> definitions = AiDictionary.read(new ByteArrayInputStream(table), "test");
+
+        assertEquals(List.of("01", "21"), definitions.stream().map(AiDefinition::code).toList());
+    }
+
+    @Test
+    void truncatedTableFails() throws IOException {
+        byte[] table = table(out -> entry(out, "01", 'N', AiDictionary.FLAG_FIXED, 14, 14), 2);
+
+        assertThrows(IOException.class, () -> AiDictionary.read(new ByteArrayInputStream(table), "test"));
+        assertThrows(IOException.class, () -> AiDictionary.read(new ByteArrayInputStream(Arrays.copyOf(table, 10)), "test"));
+    }
+
+    private interface Entries {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] table(Entries entries, int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AiDictionary.MAGIC);
+        out.writeShort(AiDictionary.FORMAT_VERSION);
+        out.writeUTF("test");
+        out.writeShort(count);
+        entries.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void entry(DataOutputStream out, String code, char set, int flags, int min, int max) throws IOException {
+        out.writeUTF(code);
+        out.writeByte(set);
+        out.writeByte(flags);
+        out.writeByte(min);
+        out.writeByte(max);
+        out.writeUTF("AI " + code);
+    }
+}
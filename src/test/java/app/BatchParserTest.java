@@ -0,0 +1,66 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchParserTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parseAllMatchesSequentialParsingInOrder() {
+        List<String> scans = SampleScans.generate(5_000, 1);
+        List<ParseResult> results = GS1Parser.parseAll(scans, ParseOptions.defaults(), pool);
+
+        assertEquals(scans.size(), results.size());
+        for (int i = 0; i < scans.size(); i++) {
+            assertEquals(render(GS1Parser.parse(scans.get(i), ParseOptions.defaults())), render(results.get(i)), scans.get(i));
+        }
+    }
+
+    @Test
+    void orderedStreamCallsSinkInInputOrder() {
+        List<String> scans = SampleScans.generate(20_000, 2);
+        List<Long> indexes = new ArrayList<>();
+        long count = GS1Parser.parseAll(scans.stream(), ParseOptions.defaults(), true, pool,
+                (index, input, result) -> indexes.add(index));
+
+        assertEquals(scans.size(), count);
+        for (int i = 0; i < indexes.size(); i++) {
+            assertEquals(i, indexes.get(i));
+        }
+    }
+
+    @Test
+    void unorderedStreamDeliversEveryScanOnce() {
+        List<String> scans = SampleScans.generate(20_000, 3);
+        Map<Long, String> seen = new ConcurrentHashMap<>();
+        GS1Parser.parseAll(scans.stream(), ParseOptions.defaults(), false, pool,
+                (index, input, result) -> assertEquals(null, seen.put(index, input)));
+
+        assertEquals(scans.size(), seen.size());
+        seen.forEach((index, input) -> assertEquals(scans.get(index.intValue()), input));
+    }
+
+    static String render(ParseResult result) {
+        StringBuilder builder = new StringBuilder();
+        for (ParsedElement element : result.elements()) {
+            builder.append('(').append(element.element().ai()).append(')').append(element.element().value())
+                    .append(element.valid() ? "" : "!").append(element.warnings());
+        }
+        result.errors().forEach(message -> builder.append(" E:").append(message.message()));
+        result.warnings().forEach(message -> builder.append(" W:").append(message.message()));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,179 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabasePartitionTest {
+    private static final Instant MARCH = Instant.parse("2026-03-15T10:00:00Z");
+    private static final Instant APRIL = Instant.parse("2026-04-02T10:00:00Z");
+    private static final Instant MAY = Instant.parse("2026-05-20T10:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(MARCH);
+    private Database database;
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void newMonthStartsANewPartitionAndIdsKeepRising() throws Exception {
+        database = open(RetentionPolicy.keepAll());
+        long[] march = insert(MARCH, 10);
+        clock.now = APRIL;
+        long[] april = insert(APRIL, 10);
+
+        assertEquals(10, march[9]);
+        assertEquals(11, april[0]);
+        assertTrue(Files.exists(directory.resolve("scans-2026-03.db")));
+        assertTrue(Files.exists(directory.resolve("scans-2026-04.db")));
+        assertEquals(20, database.countScans(database.newestScanId()));
+        assertEquals(20, database.listScans(100).size());
+        assertEquals(8, database.countScans(6, 14));
+
+        database.close();
+        database = open(RetentionPolicy.keepAll());
+        assertEquals(20, database.newestScanId());
+        assertEquals(20, database.listScanHeaders(Long.MAX_VALUE, 100).size());
+        assertEquals(21, insert(APRIL, 1)[0]);
+    }
+
+    @Test
+    void dropRemovesPartitionsOlderThanTheMonthsKept() throws Exception {
+        database = open(RetentionPolicy.dropAfter(1));
+        insert(MARCH, 10);
+        clock.now = APRIL;
+        insert(APRIL, 10);
+        assertEquals(0, database.applyRetention());
+
+        clock.now = MAY;
+        insert(MAY, 10);
+        assertEquals(1, database.applyRetention());
+        assertFalse(Files.exists(directory.resolve("scans-2026-03.db")));
+        assertEquals(20, database.countScans(database.newestScanId()));
+        assertEquals(11, database.listScanHeaders(Long.MAX_VALUE, 100).get(19).getId());
+
+        database.close();
+        database = open(RetentionPolicy.dropAfter(1));
+        assertEquals(20, database.countScans(database.newestScanId()));
+    }
+
+    @Test
+    void archiveWritesOldPartitionsOutBeforeDeletingThem() throws Exception {
+        Path archives = directory.resolve("archive");
+        database = open(RetentionPolicy.keepAll());
+        insert(MARCH, 10);
+        clock.now = APRIL;
+        insert(APRIL, 5);
+        assertEquals(0, database.applyRetention());
+
+        database.setRetention(RetentionPolicy.archiveAfter(0, archives));
+        assertEquals(1, database.applyRetention());
+        assertEquals(5, database.countScans(database.newestScanId()));
+
+        Database restored = new Database(directory.resolve("restored.db").toString());
+        try {
+            restored.initialize();
+            assertEquals(10, ScanArchive.restore(archives.resolve("scans-2026-03.gsar"), restored));
+        } finally {
+            restored.close();
+        }
+    }
+
+    @Test
+    void rowOfASealedPartitionWhoseFileIsGoneIsDropped() throws Exception {
+        database = open(RetentionPolicy.keepAll());
+        insert(MARCH, 10);
+        clock.now = APRIL;
+        insert(APRIL, 10);
+        database.close();
+        Files.delete(directory.resolve("scans-2026-03.db"));
+
+        database = open(RetentionPolicy.keepAll());
+        assertEquals(10, database.countScans(database.newestScanId()));
+        database.close();
+        database = open(RetentionPolicy.keepAll());
+        assertEquals(10, database.countScans(database.newestScanId()));
+    }
+
+    @Test
+    void timeRangeComparesInstantsNotText() throws Exception {
+        database = open(RetentionPolicy.keepAll());
+        Instant second = Instant.parse("2026-03-15T10:00:00Z");
+        List<PendingScan> scans = new ArrayList<>();
+        for (Instant createdAt : List.of(second, second.plusMillis(500), second.plusMillis(1250), second.plusSeconds(2))) {
+            scans.add(scan(createdAt, createdAt.toString()));
+        }
+        database.insertScans(scans);
+
+        assertArrayEquals(new long[]{2, 1}, ids(database.listScanHeaders(second, second.plusSeconds(1), 10)));
+        assertArrayEquals(new long[]{2}, ids(database.listScanHeaders(second.plusMillis(500), second.plusMillis(1250), 10)));
+        assertArrayEquals(new long[]{4, 3}, ids(database.listScanHeaders(second.plusMillis(501), second.plusSeconds(3), 10)));
+        assertArrayEquals(new long[]{4}, ids(database.listScanHeaders(second, second.plusSeconds(3), 1)));
+    }
+
+    private Database open(RetentionPolicy retention) throws Exception {
+        Database opened = new Database(directory.resolve("scans.db").toString(),
+                DatabaseOptions.builder().clock(clock).retention(retention).build());
+        opened.initialize();
+        return opened;
+    }
+
+    private long[] insert(Instant createdAt, int count) throws Exception {
+        List<PendingScan> scans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            scans.add(scan(createdAt.plusSeconds(i), "0109506000134352" + "\u001D21" + createdAt.getEpochSecond() + i));
+        }
+        return database.insertScans(scans);
+    }
+
+    private static PendingScan scan(Instant createdAt, String raw) {
+        return new PendingScan(createdAt, raw, raw, "HID", null, null, true, null, List.of());
+    }
+
+    private static long[] ids(List<Scan> scans) {
+        return scans.stream().mapToLong(Scan::getId).toArray();
+    }
+
+    private static final class MutableClock extends Clock {
+        volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package app;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * {@link FieldValidators} against the substring, stream and {@code java.time} checks
+ * they replaced, kept here as {@link Legacy}. Run with {@code -prof gc} to see the
+ * allocation per check as well as the time. The current checks allocate only the
+ * {@link ParsedElement} they record on, which the legacy side leaves out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldValidatorsBenchmark {
+    @Param({"17", "01", "3922"})
+    public String ai;
+
+    private AiDefinition definition;
+    private String value;
+
+    @Setup
+    public void setUp() {
+        definition = AiDictionary.lookup(ai);
+        value = switch (ai) {
+            case "17" -> "250600";
+            case "01" -> "09501101530003";
+            default -> "1999";
+        };
+    }
+
+    @Benchmark
+    public ParsedElement current() {
+        ParsedElement element = new ParsedElement(null, definition, 0, value.length());
+        definition.validator().validate(value, 0, value.length(), element);
+        return element;
+    }
+
+    @Benchmark
+    public String legacy() {
+        return switch (ai) {
+            case "17" -> Legacy.date(value);
+            case "01" -> Legacy.gtin(value);
+            default -> Legacy.price(ai, value);
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(FieldValidatorsBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+
+    /**
+     * The checks as they were before {@link FieldValidators}, returning the rendered
+     * finding instead of recording it.
+     */
+    static final class Legacy {
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyMMdd", Locale.ROOT);
+
+        private Legacy() {
+        }
+
+        static String date(String value) {
+            if (!value.chars().allMatch(Character::isDigit)) {
+                return "Date contains non-numeric characters";
+            }
+            int month = Integer.parseInt(value.substring(2, 4));
+            int day = Integer.parseInt(value.substring(4, 6));
+            if (month < 1 || month > 12) {
+                return "Month out of range: " + month;
+            }
+            if (day < 0 || day > 31) {
+                return "Day out of range: " + day;
+            }
+            try {
+                if (day == 0) {
+                    YearMonth yearMonth = YearMonth.parse(value.substring(0, 4), DateTimeFormatter.ofPattern("yyMM"));
+                    return "Date: " + yearMonth.atEndOfMonth();
+                }
+                return "Date: " + LocalDate.parse(value, DATE_FORMAT);
+            } catch (DateTimeParseException ex) {
+                return "Invalid date: " + value;
+            }
+        }
+
+        static String gtin(String value) {
+            if (!value.chars().allMatch(Character::isDigit)) {
+                return "GTIN must be numeric";
+            }
+            int expectedCheck = Character.digit(value.charAt(value.length() - 1), 10);
+            String body = value.substring(0, value.length() - 1);
+            int sum = 0;
+            boolean even = true;
+            for (int i = body.length() - 1; i >= 0; i--) {
+                int digit = body.charAt(i) - '0';
+                sum += even ? digit * 3 : digit;
+                even = !even;
+            }
+            int calculated = (10 - sum % 10) % 10;
+            return expectedCheck == calculated ? "GTIN check digit OK"
+                    : "GTIN check digit mismatch: expected " + expectedCheck + " calculated " + calculated;
+        }
+
+        static String price(String ai, String value) {
+            if (!value.chars().allMatch(Character::isDigit)) {
+                return "Price contains non-numeric characters";
+            }
+            int modifier = ai.charAt(3) - '0';
+            if (value.length() <= modifier) {
+                return null;
+            }
+            String integral = value.substring(0, value.length() - modifier);
+            String fractional = modifier > 0 ? value.substring(value.length() - modifier) : "";
+            return "Price preview: " + integral + (modifier > 0 ? "." + fractional : "");
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The allocation-free validators must render exactly what the checks they replaced did.
+ */
+class FieldValidatorsTest {
+
+    @Test
+    void everyDateMatchesJavaTimeResolution() {
+        AiDefinition definition = AiDictionary.lookup("17");
+        for (int i = 0; i < 1_000_000; i++) {
+            String value = String.format("%06d", i);
+            assertEquals(List.of(FieldValidatorsBenchmark.Legacy.date(value)), validate(definition, value), value);
+        }
+    }
+
+    @Test
+    void gtinCheckDigitsMatch() {
+        AiDefinition definition = AiDictionary.lookup("01");
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            String value = String.format("%014d", random.nextLong(100_000_000_000_000L));
+            assertEquals(List.of(FieldValidatorsBenchmark.Legacy.gtin(value)), validate(definition, value), value);
+        }
+        assertEquals(List.of("GTIN must be numeric"), validate(definition, "0950110153000A"));
+    }
+
+    @Test
+    void pricePreviewsMatch() {
+        Random random = new Random(6);
+        for (int modifier = 0; modifier <= 9; modifier++) {
+            AiDefinition definition = AiDictionary.lookup("392" + modifier);
+            for (int i = 0; i < 1_000; i++) {
+                String value = Long.toString(random.nextLong(1_000_000_000L));
+                String expected = FieldValidatorsBenchmark.Legacy.price(definition.code(), value);
+                assertEquals(expected == null ? List.of() : List.of(expected), validate(definition, value), value);
+            }
+        }
+    }
+
+    @Test
+    void everyTradeMeasureFamilyShowsTheScaledQuantity() {
+        assertEquals(List.of("Quantity: 001.500"), validate(AiDictionary.lookup("3103"), "001500"));
+        assertEquals(List.of("Quantity: 0015.00"), validate(AiDictionary.lookup("3502"), "001500"));
+        assertEquals(List.of("Quantity: 001500"), validate(AiDictionary.lookup("3690"), "001500"));
+    }
+
+    private static List<String> validate(AiDefinition definition, String value) {
+        ParsedElement element = new ParsedElement(new GS1Element(definition.code(), value), definition, 0, value.length());
+        definition.validator().validate(value, 0, value.length(), element);
+        return element.warnings();
+    }
+}
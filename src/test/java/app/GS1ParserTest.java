@@ -0,0 +1,93 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class GS1ParserTest {
+    private static final String GS = "\u001D";
+    private static final String GTIN = "0109501101530003";
+
+    @Test
+    void splitsFixedAndGsTerminatedElements() {
+        ParseResult result = GS1Parser.parse(GTIN + "17250630" + "10LOT1" + GS + "21SER1", null);
+
+        assertTrue(result.success());
+        assertEquals("(01)09501101530003(17)250630(10)LOT1(21)SER1", hri(result));
+    }
+
+    @Test
+    void numericTrailingSerialIsNotSplitAtAiLookalikes() {
+        for (String serial : new String[] {"12345678901234", "64188605717372", "94049564259690", "953232224082837"}) {
+            ParseResult result = GS1Parser.parse(GTIN + "21" + serial, null);
+
+            assertTrue(result.success(), serial + ": " + result.errors());
+            assertEquals("(01)09501101530003(21)" + serial, hri(result));
+        }
+    }
+
+    @Test
+    void overlongTrailingLotReportsTheSwallowedAi() {
+        ParseResult result = GS1Parser.parse(GTIN + "10ABCDEFGHIJKLMNOPQR" + "17250630", null);
+
+        assertFalse(result.success());
+        assertEquals("(01)09501101530003(10)ABCDEFGHIJKLMNOPQR(17)250630", hri(result));
+        assertEquals("Expected GS after variable-length AI (10) before AI (17)", result.errors().get(0).message());
+    }
+
+    @Test
+    void shortTrailingLotReportsTheSwallowedAi() {
+        ParseResult result = GS1Parser.parse(GTIN + "10ABC" + "17250630", null);
+
+        assertFalse(result.success());
+        assertEquals("(01)09501101530003(10)ABC(17)250630", hri(result));
+        assertEquals("Expected GS after variable-length AI (10) before AI (17)", result.errors().get(0).message());
+    }
+
+    @Test
+    void heuristicRepairSplitsShortTrailingLotWithDroppedGs() {
+        ParseOptions heuristics = ParseOptions.builder().heuristicRepair(true).build();
+        ParseResult result = GS1Parser.parse(GTIN + "10ABC" + "17250630", heuristics);
+
+        assertTrue(result.heuristicsApplied());
+        assertEquals("(01)09501101530003(10)ABC(17)250630", hri(result));
+    }
+
+    @Test
+    void heuristicRepairLeavesGsTerminatedValuesAlone() {
+        ParseOptions heuristics = ParseOptions.builder().heuristicRepair(true).build();
+        ParseResult result = GS1Parser.parse(GTIN + "10LOT17250630" + GS + "21SER1", heuristics);
+
+        assertTrue(result.success());
+        assertFalse(result.heuristicsApplied());
+        assertEquals("(01)09501101530003(10)LOT17250630(21)SER1", hri(result));
+    }
+
+    @Test
+    void heuristicRepairSplitsTrailingValueWithDroppedGs() {
+        ParseOptions heuristics = ParseOptions.builder().heuristicRepair(true).build();
+        ParseResult result = GS1Parser.parse(GTIN + "10ABCDEFGHIJKLMN" + "17250630" + "21SER1", heuristics);
+
+        assertTrue(result.heuristicsApplied());
+        assertEquals("(01)09501101530003(10)ABCDEFGHIJKLMN(17)250630(21)SER1", hri(result));
+    }
+
+    @Test
+    void heuristicRepairSplitsOverlongGsTerminatedValue() {
+        ParseOptions heuristics = ParseOptions.builder().heuristicRepair(true).build();
+        ParseResult result = GS1Parser.parse(GTIN + "10ABCDEFGHIJKLMNOP" + "17250630" + GS + "21SER1", heuristics);
+
+        assertTrue(result.heuristicsApplied());
+        assertEquals("(01)09501101530003(10)ABCDEFGHIJKLMNOP(17)250630(21)SER1", hri(result));
+    }
+
+    private static String hri(ParseResult result) {
+        StringBuilder builder = new StringBuilder();
+        for (ParsedElement element : result.elements()) {
+            builder.append('(').append(element.element().ai()).append(')').append(element.element().value());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package app;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Cost of one scan through the offset-based parse into a reused {@link ParseSpans},
+ * against the materializing {@link GS1Parser#parse(String, ParseOptions)}. Run with
+ * {@code -prof gc}; {@code gc.alloc.rate.norm} is the bytes allocated per scan.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseAllocationBenchmark {
+    private final ParseSpans spans = new ParseSpans();
+    private final ParseOptions options = ParseOptions.defaults();
+    private List<String> scans;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        scans = SampleScans.generate(1024, 7);
+    }
+
+    @Benchmark
+    public ParseSpans spans() {
+        return GS1Parser.parse(nextScan(), options, spans);
+    }
+
+    @Benchmark
+    public ParseResult materialized() {
+        return GS1Parser.parse(nextScan(), options);
+    }
+
+    private String nextScan() {
+        String scan = scans.get(next);
+        next = (next + 1) & 1023;
+        return scan;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ParseAllocationBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
@@ -0,0 +1,41 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ParseAllocationTest {
+    private static final int ROUNDS = 200;
+
+    @Test
+    void reusedSpansAllocateAlmostNothingPerScan() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        List<String> scans = SampleScans.generate(1_000, 11);
+        ParseSpans spans = new ParseSpans();
+        ParseOptions options = ParseOptions.defaults();
+        long elements = parseAll(scans, options, spans, ROUNDS);
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        elements += parseAll(scans, options, spans, ROUNDS);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        double perScan = (double) allocated / (scans.size() * ROUNDS);
+        assertTrue(elements > 0);
+        assertTrue(perScan < 1.0, "allocated " + perScan + " bytes per scan");
+    }
+
+    private static long parseAll(List<String> scans, ParseOptions options, ParseSpans spans, int rounds) {
+        long elements = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String scan : scans) {
+                elements += GS1Parser.parse(scan, options, spans).size();
+            }
+        }
+        return elements;
+    }
+}
@@ -0,0 +1,74 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic pharma-style scans for tests and benchmarks: GTIN, expiry, lot and
+ * serial in varying order, some with the GS separators a scanner drops.
+ */
+final class SampleScans {
+    static final char GS = 0x1D;
+
+    private SampleScans() {
+    }
+
+    static List<String> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> scans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            scans.add(scan(random));
+        }
+        return scans;
+    }
+
+    static String scan(Random random) {
+        String gtin = "0" + digits(random, 12);
+        gtin += checkDigit(gtin);
+        String expiry = String.format("%02d%02d%02d", 24 + random.nextInt(6), 1 + random.nextInt(12), random.nextInt(29));
+        String lot = alphanumeric(random, 3 + random.nextInt(8));
+        String serial = random.nextBoolean() ? digits(random, 6 + random.nextInt(14)) : alphanumeric(random, 6 + random.nextInt(14));
+        StringBuilder scan = new StringBuilder(64).append("01").append(gtin);
+        boolean dropGs = random.nextInt(10) == 0;
+        if (random.nextBoolean()) {
+            scan.append("17").append(expiry).append("10").append(lot);
+        } else {
+            scan.append("10").append(lot);
+            if (!dropGs) {
+                scan.append(GS);
+            }
+            scan.append("17").append(expiry);
+        }
+        if (!dropGs) {
+            scan.append(GS);
+        }
+        return scan.append("21").append(serial).toString();
+    }
+
+    static String checkDigit(String digits) {
+        int sum = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(digits.length() - 1 - i) - '0';
+            sum += i % 2 == 0 ? digit * 3 : digit;
+        }
+        return String.valueOf((10 - sum % 10) % 10);
+    }
+
+    private static String digits(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('0' + random.nextInt(10)));
+        }
+        return builder.toString();
+    }
+
+    private static String alphanumeric(Random random, int length) {
+        String alphabet = "ABCDEFGHJKLMNPQRSTUVWXYZ0123456789";
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanArchiveTest {
+    private static final int SCANS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    private final List<Database> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (Database database : opened) {
+            database.close();
+        }
+    }
+
+    @Test
+    void restoreReadsBackWhatWasWritten() throws Exception {
+        Database source = open(new Database(directory.resolve("source.db").toString()));
+        fill(source);
+        Path archive = directory.resolve("scans.gsar");
+        assertEquals(SCANS, ScanArchive.write(source, archive));
+
+        Database target = open(new Database(directory.resolve("target.db").toString()));
+        assertEquals(SCANS, ScanArchive.restore(archive, target));
+        assertEquals(rows(source), rows(target));
+        assertNull(target.findImportCheckpoint(archive.toAbsolutePath().toString()));
+    }
+
+    @Test
+    void damagedArchiveIsRejectedBeforeAnythingIsStored() throws Exception {
+        Database source = open(new Database(directory.resolve("source.db").toString()));
+        fill(source);
+        Path archive = directory.resolve("scans.gsar");
+        ScanArchive.write(source, archive);
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            ByteBuffer garbage = ByteBuffer.allocate(256);
+            new Random(3).nextBytes(garbage.array());
+            channel.write(garbage, channel.size() / 2);
+        }
+
+        Database target = open(new Database(directory.resolve("target.db").toString()));
+        assertThrows(IOException.class, () -> ScanArchive.restore(archive, target));
+        assertEquals(0, target.countScans(target.newestScanId()));
+    }
+
+    @Test
+    void failedRestoreCarriesOnWhenRunAgain() throws Exception {
+        Database source = open(new Database(directory.resolve("source.db").toString()));
+        fill(source);
+        Path archive = directory.resolve("scans.gsar");
+        ScanArchive.write(source, archive);
+
+        FailingDatabase target = open(new FailingDatabase(directory.resolve("target.db")));
+        target.failAfter = 1;
+        assertThrows(SQLException.class, () -> ScanArchive.restore(archive, target));
+        long first = target.countScans(target.newestScanId());
+        assertTrue(first > 0 && first < SCANS);
+
+        target.failAfter = Integer.MAX_VALUE;
+        assertEquals(SCANS - first, ScanArchive.restore(archive, target));
+        assertEquals(rows(source), rows(target));
+    }
+
+    @Test
+    void uniqueSerialsLeaveGtinsAndLotsDictionaryEncoded() throws Exception {
+        Database source = open(new Database(directory.resolve("source.db").toString()));
+        int scans = 70_000;
+        Instant start = Instant.parse("2026-03-01T08:00:00Z");
+        List<PendingScan> batch = new ArrayList<>();
+        for (int i = 0; i < scans; i++) {
+            String gtin = "0950600013435" + i % 10;
+            String lot = "LOT" + i % 40;
+            String serial = "S" + i;
+            String text = "01" + gtin + "17261231" + "10" + lot + "\u001D21" + serial;
+            int lotStart = 2 + gtin.length() + 8 + 2;
+            int serialStart = lotStart + lot.length() + 3;
+            batch.add(new PendingScan(start.plusSeconds(i), text, text, "HID", null, null, true, null, List.of(
+                    new PendingScan.Element("01", gtin, 2, 2 + gtin.length()),
+                    new PendingScan.Element("17", "261231", 2 + gtin.length() + 2, lotStart - 2),
+                    new PendingScan.Element("10", lot, lotStart, lotStart + lot.length()),
+                    new PendingScan.Element("21", serial, serialStart, serialStart + serial.length()))));
+        }
+        source.insertScans(batch);
+        Path archive = directory.resolve("scans.gsar");
+        assertEquals(scans, ScanArchive.write(source, archive));
+
+        try (ScanArchive.Reader reader = ScanArchive.open(archive)) {
+            reader.verify();
+            assertEquals(ScanArchive.Encoding.STRING_DICTIONARY, reader.encoding(ScanArchive.elementValueColumn("01")));
+            assertEquals(ScanArchive.Encoding.STRING_DICTIONARY, reader.encoding(ScanArchive.elementValueColumn("10")));
+            assertEquals(ScanArchive.Encoding.STRING_DICTIONARY, reader.encoding(ScanArchive.elementValueColumn("17")));
+            assertEquals(ScanArchive.Encoding.STRING, reader.encoding(ScanArchive.elementValueColumn("21")));
+        }
+        Database target = open(new Database(directory.resolve("target.db").toString()));
+        assertEquals(scans, ScanArchive.restore(archive, target));
+        assertEquals(rows(source), rows(target));
+    }
+
+    private <T extends Database> T open(T database) throws SQLException {
+        database.initialize();
+        opened.add(database);
+        return database;
+    }
+
+    private static void fill(Database database) throws SQLException {
+        ParseOptions options = ParseOptions.defaults();
+        Instant start = Instant.parse("2026-03-01T08:00:00.123456Z");
+        List<PendingScan> batch = new ArrayList<>();
+        List<String> scans = SampleScans.generate(SCANS, 11);
+        for (int i = 0; i < scans.size(); i++) {
+            String scan = scans.get(i);
+            NormalizationResult normalization = new NormalizationResult(scan, scan, i % 3 == 0 ? "]d2" : null, List.of(), 0);
+            batch.add(PendingScan.of(normalization, GS1Parser.parse(scan, options), i % 2 == 0 ? "HID" : "Import",
+                    i % 5 == 0 ? "COM3" : null, start.plusMillis(i * 1500L)));
+        }
+        database.insertScans(batch);
+    }
+
+    /**
+     * Every stored column except the id, oldest first, one string per scan.
+     */
+    private static List<String> rows(Database database) throws Exception {
+        List<String> rows = new ArrayList<>();
+        database.forEachScan(true, false, scan -> {
+            StringBuilder row = new StringBuilder()
+                    .append(scan.getCreatedAt()).append('|').append(scan.getRaw()).append('|').append(scan.getNormalized())
+                    .append('|').append(scan.getSource()).append('|').append(scan.getPort()).append('|')
+                    .append(scan.getSymbologyId()).append('|').append(scan.isParseOk()).append('|').append(scan.getError());
+            for (ScanElement element : scan.getElements()) {
+                row.append('|').append(element.ai()).append('=').append(element.value())
+                        .append('@').append(element.start()).append('-').append(element.end());
+            }
+            return rows.add(row.toString());
+        });
+        return rows;
+    }
+
+    private static final class FailingDatabase extends Database {
+        int failAfter;
+
+        FailingDatabase(Path file) {
+            super(file.toString());
+        }
+
+        @Override
+        public long[] insertScans(List<PendingScan> scans, ImportCheckpoint checkpoint) throws SQLException {
+            if (failAfter-- <= 0) {
+                throw new SQLException("injected");
+            }
+            return super.insertScans(scans, checkpoint);
+        }
+    }
+}
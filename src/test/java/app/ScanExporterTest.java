@@ -0,0 +1,75 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanExporterTest {
+    @TempDir
+    Path directory;
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new Database(directory.resolve("scans.db").toString());
+        database.initialize();
+        List<PendingScan> scans = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            scans.add(SpillFileTest.scan(i));
+        }
+        database.insertScans(scans);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void exportReplacesTheFileOnceComplete() throws Exception {
+        Path file = directory.resolve("scans.csv");
+        Files.writeString(file, "old");
+        long rows = new ScanExporter(database).export(file, ScanExporter.Format.CSV, (count, rate) -> { });
+        assertEquals(10, rows);
+        assertEquals(11, Files.readAllLines(file).size());
+        assertEquals(List.of(), partFiles());
+    }
+
+    @Test
+    void cancelledExportLeavesTheFileAsItWas() throws Exception {
+        Path file = directory.resolve("scans.json");
+        Files.writeString(file, "old");
+        ScanExporter exporter = new ScanExporter(database);
+        exporter.cancel();
+        assertThrows(InterruptedIOException.class, () -> exporter.export(file, ScanExporter.Format.JSON, (count, rate) -> { }));
+        assertEquals("old", Files.readString(file));
+        assertEquals(List.of(), partFiles());
+    }
+
+    @Test
+    void failedExportLeavesNoFile() throws Exception {
+        Path file = directory.resolve("scans.csv");
+        database.close();
+        assertThrows(Exception.class, () -> new ScanExporter(database).export(file, ScanExporter.Format.CSV, (count, rate) -> { }));
+        assertTrue(Files.notExists(file));
+        assertEquals(List.of(), partFiles());
+    }
+
+    private List<Path> partFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".part")).toList();
+        }
+    }
+}
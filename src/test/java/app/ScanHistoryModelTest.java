@@ -0,0 +1,120 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanHistoryModelTest {
+    @TempDir
+    Path directory;
+
+    private Database database;
+    private ScanHistoryModel model;
+    private final List<Exception> errors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new Database(directory.resolve("scans.db").toString());
+        database.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+        assertEquals(List.of(), errors);
+    }
+
+    @Test
+    void rowsMatchTheDatabaseNewestFirst() throws Exception {
+        insert(1000, 0);
+        refresh();
+
+        assertEquals(1000, rowCount());
+        long top = database.newestScanId();
+        for (int row : new int[] {0, 255, 256, 700, 999}) {
+            assertEquals(top - row, idAt(row));
+        }
+    }
+
+    @Test
+    void foldNoticesScansStoredByAnImport() throws Exception {
+        insert(10, 0);
+        refresh();
+        insert(100, 10);
+        long[] captured = insert(ScanHistoryModel.PAGE_SIZE, 110);
+        SwingUtilities.invokeAndWait(() -> {
+            for (int i = 0; i < captured.length; i++) {
+                model.append(SpillFileTest.scan(110 + i).toScan(captured[i]));
+            }
+        });
+
+        await(() -> rowCount() == 366);
+        long top = database.newestScanId();
+        for (int row : new int[] {0, 255, 256, 300, 365}) {
+            assertEquals(top - row, idAt(row));
+        }
+    }
+
+    private long[] insert(int count, int first) throws SQLException {
+        List<PendingScan> scans = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            scans.add(SpillFileTest.scan(first + i));
+        }
+        return database.insertScans(scans);
+    }
+
+    private void refresh() throws Exception {
+        CountDownLatch ready = new CountDownLatch(1);
+        SwingUtilities.invokeAndWait(() -> {
+            model = new ScanHistoryModel(database, errors::add);
+            model.refresh(ready::countDown);
+        });
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+    }
+
+    private int rowCount() {
+        int[] count = new int[1];
+        onEdt(() -> count[0] = model.getRowCount());
+        return count[0];
+    }
+
+    /**
+     * Id shown in {@code row}, waiting for its page to load.
+     */
+    private long idAt(int row) throws Exception {
+        Object[] value = new Object[1];
+        await(() -> {
+            onEdt(() -> value[0] = model.getValueAt(row, 0));
+            return value[0] instanceof Long;
+        });
+        return (Long) value[0];
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void onEdt(Runnable action) {
+        try {
+            SwingUtilities.invokeAndWait(action);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanImportJobTest {
+    private static final SettingsSnapshot SETTINGS = new SettingsSnapshot(
+            new ScanPipeline(NormalizationOptions.defaults(), ParseOptions.defaults()), 256, 0, 1000);
+
+    @TempDir
+    Path directory;
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new Database(directory.resolve("scans.db").toString());
+        database.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void importedScansAreParsedLikeSingleScans() throws Exception {
+        List<String> scans = SampleScans.generate(3 * ScanImportJob.CHUNK_SIZE + 17, 7);
+        List<String> lines = new ArrayList<>(scans);
+        lines.add(100, "   ");
+        lines.add(200, "01" + "9".repeat(300));
+        Path file = directory.resolve("scans.txt");
+        Files.write(file, lines);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ScanImportJob.Result result = new ScanImportJob(database, file, SETTINGS, pool)
+                    .run(null, (records, bytesRead, fileSize, rate) -> { });
+            assertEquals(lines.size(), result.records());
+            assertEquals(scans.size(), result.stored());
+            assertEquals(2, result.skipped());
+            assertFalse(result.cancelled());
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Scan> stored = new ArrayList<>();
+        database.forEachScan(true, false, scan -> stored.add(scan));
+        assertEquals(scans.size(), stored.size());
+        for (int i = 0; i < scans.size(); i++) {
+            Scan scan = stored.get(i);
+            assertEquals(scans.get(i), scan.getRaw());
+            ParseResult expected = GS1Parser.parse(scan.getNormalized(), ParseOptions.defaults());
+            assertEquals(expected.success(), scan.isParseOk());
+            List<String> elements = new ArrayList<>();
+            for (ParsedElement element : expected.elements()) {
+                elements.add(element.element().ai() + "=" + element.element().value());
+            }
+            assertEquals(elements, scan.getElements().stream().map(element -> element.ai() + "=" + element.value()).toList());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanIngestorTest {
+    private static final SettingsSnapshot SETTINGS = new SettingsSnapshot(
+            new ScanPipeline(NormalizationOptions.defaults(), ParseOptions.defaults()), 4096, 0, 1000);
+    private static final ScanIngestor.Submission IMPORT = new ScanIngestor.Submission(ScanSource.IMPORT, null, true);
+
+    @TempDir
+    Path directory;
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new Database(directory.resolve("scans.db").toString());
+        database.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void everyScanQueuedBeforeCloseIsWritten() throws Exception {
+        AtomicInteger stored = new AtomicInteger();
+        ScanIngestor.Listener listener = new ScanIngestor.Listener() {
+            @Override
+            public void stored(ScanIngestor.Submission submission, PendingScan scan, long id, long normalizeNanos) {
+                stored.incrementAndGet();
+            }
+        };
+        AtomicInteger queued = new AtomicInteger();
+        try (ScanWriter writer = new ScanWriter(database, WriteBehindOptions.builder().batchSize(64)
+                .flushInterval(Duration.ofMillis(5)).build())) {
+            ScanIngestor ingestor = new ScanIngestor(() -> SETTINGS, writer, null, null, listener, 4);
+            List<Thread> submitters = new ArrayList<>();
+            for (ScanSource source : ScanSource.values()) {
+                ScanIngestor.Submission submission = new ScanIngestor.Submission(source, null, true);
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; ; i++) {
+                        try {
+                            if (ingestor.offer("0109506000134352\u001D10" + source + i, submission)) {
+                                queued.incrementAndGet();
+                            }
+                        } catch (IllegalStateException closed) {
+                            return;
+                        }
+                    }
+                });
+                thread.start();
+                submitters.add(thread);
+            }
+            Thread.sleep(50);
+            ingestor.close();
+            for (Thread thread : submitters) {
+                thread.join();
+            }
+        }
+        assertEquals(queued.get(), stored.get());
+        assertEquals(queued.get(), database.countScans(database.newestScanId()));
+    }
+
+    @Test
+    void failedReuseCheckStillStoresTheScan() throws Exception {
+        Database broken = new Database(directory.resolve("broken.db").toString()) {
+            @Override
+            public boolean serialSeen(String gtin, String serial) throws SQLException {
+                throw new SQLException("injected");
+            }
+
+            @Override
+            public void forEachSerialKey(BiConsumer<String, String> serials, Consumer<String> ssccs) throws SQLException {
+                throw new SQLException("injected");
+            }
+        };
+        broken.initialize();
+        List<String> outcomes = new CopyOnWriteArrayList<>();
+        ScanIngestor.Listener listener = new ScanIngestor.Listener() {
+            @Override
+            public void serialCheckFailed(ScanIngestor.Submission submission, PendingScan scan, SQLException failure) {
+                outcomes.add("unchecked");
+            }
+
+            @Override
+            public void stored(ScanIngestor.Submission submission, PendingScan scan, long id, long normalizeNanos) {
+                outcomes.add("stored");
+            }
+
+            @Override
+            public void failed(ScanIngestor.Submission submission, PendingScan scan, Throwable failure) {
+                outcomes.add("failed");
+            }
+        };
+        try {
+            SerialIndex serials = SerialIndex.start(broken, ex -> { });
+            try (ScanWriter writer = new ScanWriter(broken, WriteBehindOptions.builder().build())) {
+                try (ScanIngestor ingestor = new ScanIngestor(() -> SETTINGS, writer, serials, null, listener)) {
+                    ingestor.submit("0109506000134352\u001D21SER1", IMPORT);
+                }
+            }
+            assertEquals(List.of("unchecked", "stored"), outcomes);
+            assertEquals(1, broken.countScans(broken.newestScanId()));
+        } finally {
+            broken.close();
+        }
+    }
+
+    @Test
+    void capturedScansAreParsedThroughTheCache() throws Exception {
+        ParseCache cache = new ParseCache(16);
+        List<PendingScan> accepted = new CopyOnWriteArrayList<>();
+        ScanIngestor.Listener listener = new ScanIngestor.Listener() {
+            @Override
+            public void accepted(ScanIngestor.Submission submission, PendingScan scan) {
+                accepted.add(scan);
+            }
+        };
+        try (ScanWriter writer = new ScanWriter(database, WriteBehindOptions.builder().build())) {
+            try (ScanIngestor ingestor = new ScanIngestor(() -> SETTINGS, writer, null, cache, listener)) {
+                ingestor.submit("0109506000134352\u001D10LOT1", IMPORT);
+                ingestor.submit("0109506000134352\u001D10LOT1", IMPORT);
+            }
+        }
+        assertEquals(2, accepted.size());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.hits());
+        assertEquals("09506000134352", accepted.get(1).value("01"));
+        assertEquals("LOT1", accepted.get(1).value("10"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void cacheMissTakesTheParseTheViewAlreadyMade() {
+        ParseCache cache = new ParseCache(16);
+        ScanView view = SETTINGS.pipeline().process("0109506000134352\u001D10LOT1");
+        AtomicInteger parses = new AtomicInteger();
+        Supplier<ParseResult> parser = () -> {
+            parses.incrementAndGet();
+            return view.toParseResult();
+        };
+
+        ParseResult first = cache.parse(view.normalizedString(), SETTINGS.parseOptions(), parser);
+        ParseResult second = cache.parse(view.normalizedString(), SETTINGS.parseOptions(), parser);
+        assertEquals(1, parses.get());
+        assertSame(first, second);
+        assertSame(first, cache.parse(view.normalizedString(), SETTINGS.parseOptions()));
+    }
+}
@@ -0,0 +1,182 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ScanWriterTest {
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_CONSTRAINT = 19;
+
+    @TempDir
+    Path directory;
+
+    private FaultyDatabase database;
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void spilledScansAreCommittedInSubmissionOrder() throws Exception {
+        database = open();
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        try (ScanWriter writer = new ScanWriter(database, options().capacity(4).build())) {
+            for (int i = 1; i <= 500; i++) {
+                futures.add(writer.submit(SpillFileTest.scan(i)));
+            }
+        }
+        assertCommittedInOrder(futures);
+    }
+
+    @Test
+    void batchFailingWhileDatabaseIsBusyIsRetried() throws Exception {
+        database = open();
+        database.failures.set(3);
+        database.errorCode = SQLITE_BUSY;
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        try (ScanWriter writer = new ScanWriter(database, options().capacity(4).build())) {
+            for (int i = 1; i <= 50; i++) {
+                futures.add(writer.submit(SpillFileTest.scan(i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(50, database.countScans(database.newestScanId()));
+        for (CompletableFuture<Long> future : futures) {
+            assertTrue(future.get() > 0);
+        }
+    }
+
+    @Test
+    void rejectedBatchOnlyFailsTheScanAtFault() throws Exception {
+        database = open();
+        database.rejected = "13";
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        try (ScanWriter writer = new ScanWriter(database, options().block().build())) {
+            for (int i = 1; i <= 20; i++) {
+                futures.add(writer.submit(SpillFileTest.scan(i)));
+            }
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i == 12, futures.get(i).isCompletedExceptionally(), "scan " + (i + 1));
+        }
+        assertEquals(19, database.countScans(database.newestScanId()));
+    }
+
+    @Test
+    void spilledScansLeftByAnOutageAreWrittenOnTheNextStart() throws Exception {
+        database = open();
+        database.failures.set(Integer.MAX_VALUE);
+        database.errorCode = SQLITE_BUSY;
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        try (ScanWriter writer = new ScanWriter(database, options().capacity(2).build())) {
+            for (int i = 1; i <= 10; i++) {
+                futures.add(writer.submit(SpillFileTest.scan(i)));
+            }
+            Thread.sleep(200);
+        }
+        for (CompletableFuture<Long> future : futures) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+        database.failures.set(0);
+        new ScanWriter(database, options().build()).close();
+        assertEquals(10, database.countScans(database.newestScanId()));
+    }
+
+    @Test
+    void everySubmitRacingCloseCompletes() throws Exception {
+        database = open();
+        for (int round = 0; round < 20; round++) {
+            ScanWriter writer = new ScanWriter(database, options().capacity(8).build());
+            List<CompletableFuture<Long>> futures = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> producers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread producer = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 200; i++) {
+                        futures.add(writer.submit(SpillFileTest.scan(i)));
+                    }
+                });
+                producer.start();
+                producers.add(producer);
+            }
+            started.await();
+            writer.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            for (CompletableFuture<Long> future : futures) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException expected) {
+                    assertTrue(expected.getCause() instanceof IllegalStateException);
+                }
+            }
+        }
+    }
+
+    private WriteBehindOptions.Builder options() {
+        return WriteBehindOptions.builder().batchSize(16).flushInterval(Duration.ofMillis(5))
+                .spillTo(directory.resolve("scans.spill"));
+    }
+
+    private FaultyDatabase open() throws SQLException {
+        FaultyDatabase opened = new FaultyDatabase(directory.resolve("scans.db"));
+        opened.initialize();
+        return opened;
+    }
+
+    private static void assertCommittedInOrder(List<CompletableFuture<Long>> futures) throws Exception {
+        long previous = 0;
+        for (CompletableFuture<Long> future : futures) {
+            long id = future.get(5, TimeUnit.SECONDS);
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    /**
+     * Fails the next {@code failures} inserts with {@code errorCode}, and every insert
+     * holding a scan whose raw text is {@code rejected} as a constraint violation.
+     */
+    private static final class FaultyDatabase extends Database {
+        final AtomicInteger failures = new AtomicInteger();
+        volatile int errorCode;
+        volatile String rejected;
+
+        FaultyDatabase(Path file) {
+            super(file.toString());
+        }
+
+        @Override
+        public long[] insertScans(List<PendingScan> scans) throws SQLException {
+            if (failures.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw new SQLException("injected", null, errorCode);
+            }
+            for (PendingScan scan : scans) {
+                if (scan.raw().equals(rejected)) {
+                    throw new SQLException("injected", null, SQLITE_CONSTRAINT);
+                }
+            }
+            return super.insertScans(scans);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SerialIndexTest {
+    private static final String GTIN = "09506000134352";
+
+    @TempDir
+    Path directory;
+
+    private Database database;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new Database(directory.resolve("scans.db").toString());
+        database.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void scanStillBeingWrittenIsReported() throws Exception {
+        SerialIndex index = ready(SerialIndex.start(database, Throwable::printStackTrace));
+        PendingScan first = serial("A1");
+        PendingScan second = serial("A1");
+
+        assertNull(index.register(first));
+        assertEquals(SerialIndex.Key.ofSerial(GTIN, "A1"), index.register(second));
+        index.settled(first);
+        index.settled(second);
+        assertNull(index.register(serial("A1")));
+    }
+
+    @Test
+    void storedScanIsReportedBeforeAndAfterTheFill() throws Exception {
+        database.insertScans(List.of(serial("B1"), sscc("009506000134352011")));
+        SerialIndex index = SerialIndex.start(database, Throwable::printStackTrace);
+        assertEquals(SerialIndex.Key.ofSerial(GTIN, "B1"), index.register(serial("B1")));
+
+        ready(index);
+        assertEquals(SerialIndex.Key.ofSscc("009506000134352011"), index.register(sscc("009506000134352011")));
+        database.insertScans(List.of(serial("B2")));
+        assertEquals(SerialIndex.Key.ofSerial(GTIN, "B2"), index.register(serial("B2")));
+        assertNull(index.register(serial("B3")));
+    }
+
+    @Test
+    void keysStoredWhileTheFilterFillsAreKept() throws Exception {
+        List<PendingScan> history = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            history.add(serial(String.valueOf(800_000 + i)));
+        }
+        database.insertScans(history);
+
+        SerialIndex index = SerialIndex.start(database, Throwable::printStackTrace);
+        List<String> serials = new ArrayList<>();
+        for (int batch = 0; !index.isReady() || batch < 5; batch++) {
+            List<PendingScan> scans = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                String serial = String.valueOf(9_000_000 + 50 * batch + i);
+                serials.add(serial);
+                scans.add(serial(serial));
+            }
+            database.insertScans(scans);
+        }
+        for (String serial : serials) {
+            assertEquals(SerialIndex.Key.ofSerial(GTIN, serial), index.register(serial(serial)), serial);
+        }
+    }
+
+    @Test
+    void bloomFilterHasNoFalseNegatives() {
+        SerialIndex.BloomFilter filter = new SerialIndex.BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("key" + i));
+            if (filter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    private static SerialIndex ready(SerialIndex index) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!index.isReady()) {
+            assertTrue(System.nanoTime() < deadline, "index not filled");
+            Thread.sleep(5);
+        }
+        return index;
+    }
+
+    private static PendingScan serial(String serial) {
+        return parsed("01" + GTIN + "21" + serial);
+    }
+
+    private static PendingScan sscc(String sscc) {
+        return parsed("00" + sscc);
+    }
+
+    private static PendingScan parsed(String text) {
+        NormalizationResult normalization = new NormalizationResult(text, text, null, List.of(), 0);
+        return PendingScan.of(normalization, GS1Parser.parse(text, ParseOptions.defaults()), "HID", null, Instant.now());
+    }
+}
@@ -0,0 +1,125 @@
+package app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpillFileTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void unacknowledgedRecordsSurviveReopening() throws IOException {
+        Path path = directory.resolve("scans.spill");
+        try (SpillFile spill = SpillFile.open(path)) {
+            append(spill, 1, 2, 3);
+            spill.read(2, new ArrayList<>());
+        }
+        try (SpillFile spill = SpillFile.open(path)) {
+            assertEquals(List.of("1", "2", "3"), readAll(spill));
+        }
+    }
+
+    @Test
+    void acknowledgedRecordsAreNotReadAgain() throws IOException {
+        Path path = directory.resolve("scans.spill");
+        try (SpillFile spill = SpillFile.open(path)) {
+            append(spill, 1, 2, 3);
+            spill.read(2, new ArrayList<>());
+            spill.acknowledge(2);
+        }
+        try (SpillFile spill = SpillFile.open(path)) {
+            assertEquals(List.of("3"), readAll(spill));
+        }
+    }
+
+    @Test
+    void recordsReadButNotAcknowledgedAreReadAgainFirst() throws IOException {
+        try (SpillFile spill = SpillFile.open(directory.resolve("scans.spill"))) {
+            append(spill, 1, 2, 3);
+            spill.read(3, new ArrayList<>());
+            spill.acknowledge(1);
+            append(spill, 4);
+
+            assertEquals(3, spill.pending());
+            assertEquals(List.of("2", "3", "4"), readAll(spill));
+        }
+    }
+
+    @Test
+    void fileShrinksOnceEverythingIsAcknowledged() throws IOException {
+        Path path = directory.resolve("scans.spill");
+        try (SpillFile spill = SpillFile.open(path)) {
+            append(spill, 1, 2);
+            spill.read(2, new ArrayList<>());
+            spill.acknowledge(2);
+
+            assertEquals(SpillFile.HEADER, Files.size(path));
+            append(spill, 3);
+        }
+        try (SpillFile spill = SpillFile.open(path)) {
+            assertEquals(List.of("3"), readAll(spill));
+        }
+    }
+
+    @Test
+    void recordCutShortByACrashIsDropped() throws IOException {
+        Path path = directory.resolve("scans.spill");
+        try (SpillFile spill = SpillFile.open(path)) {
+            append(spill, 1, 2);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (SpillFile spill = SpillFile.open(path)) {
+            assertEquals(List.of("1"), readAll(spill));
+            append(spill, 3);
+        }
+        try (SpillFile spill = SpillFile.open(path)) {
+            assertEquals(List.of("1", "3"), readAll(spill));
+        }
+    }
+
+    @Test
+    void recordsRoundTrip() throws IOException {
+        PendingScan scan = new PendingScan(Instant.ofEpochSecond(1_700_000_000L, 123), "01\u001D21", "0121", "SERIAL",
+                "COM3", "]d2", false, "Unknown AI", List.of(new PendingScan.Element("01", "09501101530003", 2, 16)));
+        try (SpillFile spill = SpillFile.open(directory.resolve("scans.spill"))) {
+            spill.append(scan);
+            List<PendingScan> read = new ArrayList<>();
+            spill.read(1, read);
+
+            assertEquals(List.of(scan), read);
+        }
+    }
+
+    static PendingScan scan(int number) {
+        return new PendingScan(Instant.ofEpochSecond(number), String.valueOf(number), String.valueOf(number), "HID",
+                null, null, true, null, List.of());
+    }
+
+    private static void append(SpillFile spill, int... numbers) throws IOException {
+        for (int number : numbers) {
+            spill.append(scan(number));
+        }
+    }
+
+    private static List<String> readAll(SpillFile spill) throws IOException {
+        List<PendingScan> scans = new ArrayList<>();
+        spill.read(Integer.MAX_VALUE, scans);
+        List<String> raw = new ArrayList<>();
+        for (PendingScan scan : scans) {
+            raw.add(scan.raw());
+        }
+        return raw;
+    }
+}